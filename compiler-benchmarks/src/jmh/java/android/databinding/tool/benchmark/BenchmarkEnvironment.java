@@ -0,0 +1,70 @@
+/*
+ * Copyright (C) 2021 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package android.databinding.tool.benchmark;
+
+import android.databinding.tool.Context;
+import android.databinding.tool.ext.ExtKt;
+import android.databinding.tool.reflection.ModelAnalyzer;
+import android.databinding.tool.reflection.java.JavaAnalyzer;
+import android.databinding.tool.store.SetterStore;
+import android.databinding.tool.util.GenerationalClassUtil;
+
+import org.apache.commons.io.FileUtils;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+
+/**
+ * Initializes the compiler singletons the same way the unit tests do, using the reflection
+ * backed {@link JavaAnalyzer} and a synthetic adapter store written by {@link SyntheticAdapters}.
+ */
+public final class BenchmarkEnvironment {
+    /**
+     * Adapter count used by benchmarks that do not parameterize the store size.
+     */
+    public static final int DEFAULT_ADAPTER_COUNT = 400;
+
+    private BenchmarkEnvironment() {
+    }
+
+    public static void init() throws IOException {
+        init(DEFAULT_ADAPTER_COUNT);
+    }
+
+    public static void init(int adapterCount) throws IOException {
+        JavaAnalyzer.initForTests();
+        File folder = Files.createTempDirectory("db-benchmark").toFile();
+        try {
+            SyntheticAdapters.write(folder, adapterCount);
+            ModelAnalyzer analyzer = ModelAnalyzer.getInstance();
+            SetterStore setterStore = SetterStore.create(analyzer,
+                    new GenerationalClassUtil(folder, null));
+            Context.initForTests(analyzer, Context.getSdkUtil(), setterStore);
+        } finally {
+            FileUtils.deleteQuietly(folder);
+        }
+    }
+
+    /**
+     * Drops the lazily computed properties so that state does not accumulate across
+     * benchmark invocations.
+     */
+    public static void clearLazyProps() {
+        ExtKt.cleanLazyProps();
+    }
+}
@@ -0,0 +1,242 @@
+/*
+ * Copyright (C) 2021 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package android.databinding.tool.benchmark;
+
+import android.databinding.tool.writer.BrLookupWriter;
+
+import com.squareup.javapoet.ClassName;
+import com.squareup.javapoet.CodeBlock;
+import com.squareup.javapoet.FieldSpec;
+import com.squareup.javapoet.JavaFile;
+import com.squareup.javapoet.MethodSpec;
+import com.squareup.javapoet.ParameterizedTypeName;
+import com.squareup.javapoet.TypeName;
+import com.squareup.javapoet.TypeSpec;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.IOException;
+import java.net.URLClassLoader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntFunction;
+
+import javax.lang.model.element.Modifier;
+
+import kotlin.Pair;
+
+/**
+ * Compares the BR id to name lookup of the generated {@code DataBinderMapperImpl}: the
+ * {@code SparseArray} it used to generate and the {@code String[]} generated by
+ * {@link BrLookupWriter} for dense ids.
+ * <p>
+ * {@code android.util.SparseArray} is not available on the JVM, so the old lookup uses a copy that
+ * keeps its sorted {@code int[]} keys and {@code Object[]} values. The init benchmarks load and
+ * initialize the lookup in a new class loader. The memory each table allocates while it is
+ * initialized is reported by the gc profiler:
+ * <pre>
+ * ./gradlew :compiler-benchmarks:jmh -Pjmh.include=BrLookupBenchmark -Pjmh.profilers=gc
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class BrLookupBenchmark {
+    private static final String PACKAGE = "android.databinding.tool.benchmark.generated";
+    private static final String SPARSE_ARRAY = "SparseArray";
+    private static final String SPARSE_LOOKUP = "SparseBrLookup";
+    private static final String ARRAY_LOOKUP = "ArrayBrLookup";
+    // same as the chunk size used by BindingMapperWriterV2
+    private static final int CHUNK_SIZE = 500;
+
+    private static final String SPARSE_ARRAY_SOURCE = ""
+            + "package " + PACKAGE + ";\n"
+            + "public class SparseArray<E> {\n"
+            + "    private int[] mKeys;\n"
+            + "    private Object[] mValues;\n"
+            + "    private int mSize;\n"
+            + "    public SparseArray(int initialCapacity) {\n"
+            + "        mKeys = new int[initialCapacity];\n"
+            + "        mValues = new Object[initialCapacity];\n"
+            + "    }\n"
+            + "    @SuppressWarnings(\"unchecked\")\n"
+            + "    public E get(int key) {\n"
+            + "        int i = java.util.Arrays.binarySearch(mKeys, 0, mSize, key);\n"
+            + "        return i < 0 ? null : (E) mValues[i];\n"
+            + "    }\n"
+            + "    public void put(int key, E value) {\n"
+            + "        int i = java.util.Arrays.binarySearch(mKeys, 0, mSize, key);\n"
+            + "        if (i >= 0) {\n"
+            + "            mValues[i] = value;\n"
+            + "            return;\n"
+            + "        }\n"
+            + "        i = ~i;\n"
+            + "        if (mSize == mKeys.length) {\n"
+            + "            mKeys = java.util.Arrays.copyOf(mKeys, mSize * 2 + 1);\n"
+            + "            mValues = java.util.Arrays.copyOf(mValues, mSize * 2 + 1);\n"
+            + "        }\n"
+            + "        System.arraycopy(mKeys, i, mKeys, i + 1, mSize - i);\n"
+            + "        System.arraycopy(mValues, i, mValues, i + 1, mSize - i);\n"
+            + "        mKeys[i] = key;\n"
+            + "        mValues[i] = value;\n"
+            + "        mSize++;\n"
+            + "    }\n"
+            + "}\n";
+
+    @Param({"100", "1000"})
+    public int brCount;
+
+    private GeneratedClasses mClasses;
+
+    private IntFunction<String> mSparseLookup;
+
+    private IntFunction<String> mArrayLookup;
+
+    private URLClassLoader mLoader;
+
+    @Setup(Level.Trial)
+    public void setupTrial() throws Exception {
+        List<Pair<String, Integer>> props = new ArrayList<>();
+        props.add(new Pair<>("_all", 0));
+        for (int i = 1; i < brCount; i++) {
+            props.add(new Pair<>("property" + i, i));
+        }
+        mClasses = new GeneratedClasses()
+                .add(PACKAGE + "." + SPARSE_ARRAY, SPARSE_ARRAY_SOURCE)
+                .add(JavaFile.builder(PACKAGE, createSparseLookup(props)).build())
+                .add(JavaFile.builder(PACKAGE, createArrayLookup(props)).build())
+                .compile();
+        try (URLClassLoader loader = mClasses.newLoader()) {
+            mSparseLookup = newLookup(loader, SPARSE_LOOKUP);
+            mArrayLookup = newLookup(loader, ARRAY_LOOKUP);
+            for (int id = -1; id <= brCount; id++) {
+                if (!Objects.equals(mSparseLookup.apply(id), mArrayLookup.apply(id))) {
+                    throw new IllegalStateException("lookups disagree for " + id);
+                }
+            }
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDownTrial() {
+        mClasses.close();
+    }
+
+    @Setup(Level.Invocation)
+    public void setupInvocation() throws IOException {
+        mLoader = mClasses.newLoader();
+    }
+
+    @TearDown(Level.Invocation)
+    public void tearDownInvocation() throws IOException {
+        mLoader.close();
+    }
+
+    @Benchmark
+    public Class<?> sparseInit() throws ClassNotFoundException {
+        return Class.forName(PACKAGE + "." + SPARSE_LOOKUP, true, mLoader);
+    }
+
+    @Benchmark
+    public Class<?> arrayInit() throws ClassNotFoundException {
+        return Class.forName(PACKAGE + "." + ARRAY_LOOKUP, true, mLoader);
+    }
+
+    @Benchmark
+    public int sparseLookup() {
+        return lookupAll(mSparseLookup);
+    }
+
+    @Benchmark
+    public int arrayLookup() {
+        return lookupAll(mArrayLookup);
+    }
+
+    private int lookupAll(IntFunction<String> lookup) {
+        int result = 0;
+        for (int id = 0; id < brCount; id++) {
+            result += lookup.apply(id).length();
+        }
+        return result;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static IntFunction<String> newLookup(ClassLoader loader, String name)
+            throws ReflectiveOperationException {
+        return (IntFunction<String>) Class.forName(PACKAGE + "." + name, true, loader)
+                .getDeclaredConstructor().newInstance();
+    }
+
+    /**
+     * Mirrors the lookup generated before the arrays: a sparse array filled in static blocks of
+     * {@link #CHUNK_SIZE} entries.
+     */
+    private static TypeSpec createSparseLookup(List<Pair<String, Integer>> props) {
+        TypeName keysType = ParameterizedTypeName.get(ClassName.get(PACKAGE, SPARSE_ARRAY),
+                ClassName.get(String.class));
+        FieldSpec keys = FieldSpec.builder(keysType, "sKeys", Modifier.STATIC, Modifier.FINAL)
+                .initializer("new $T($L)", keysType, props.size())
+                .build();
+        TypeSpec.Builder builder = createLookupClass(SPARSE_LOOKUP)
+                .addField(keys)
+                .addMethod(createApply(CodeBlock.of("$N.get(id)", keys)));
+        CodeBlock.Builder staticBlock = CodeBlock.builder();
+        for (int start = 0; start < props.size(); start += CHUNK_SIZE) {
+            MethodSpec.Builder chunk = MethodSpec
+                    .methodBuilder("internalPopulateBRLookup" + start / CHUNK_SIZE)
+                    .addModifiers(Modifier.PRIVATE, Modifier.STATIC);
+            for (Pair<String, Integer> prop
+                    : props.subList(start, Math.min(start + CHUNK_SIZE, props.size()))) {
+                chunk.addStatement("$N.put($L, $S)", keys, prop.getSecond(), prop.getFirst());
+            }
+            MethodSpec method = chunk.build();
+            builder.addMethod(method);
+            staticBlock.addStatement("$N()", method);
+        }
+        return builder.addStaticBlock(staticBlock.build()).build();
+    }
+
+    private static TypeSpec createArrayLookup(List<Pair<String, Integer>> props) {
+        TypeSpec.Builder builder = createLookupClass(ARRAY_LOOKUP)
+                .addMethod(createApply(CodeBlock.of("$L(id)", BrLookupWriter.METHOD_NAME)));
+        BrLookupWriter.addLookup(builder, props, CHUNK_SIZE);
+        return builder.build();
+    }
+
+    private static TypeSpec.Builder createLookupClass(String name) {
+        return TypeSpec.classBuilder(name)
+                .addModifiers(Modifier.PUBLIC)
+                .addSuperinterface(ParameterizedTypeName.get(IntFunction.class, String.class));
+    }
+
+    private static MethodSpec createApply(CodeBlock lookup) {
+        return MethodSpec.methodBuilder("apply")
+                .addModifiers(Modifier.PUBLIC)
+                .returns(String.class)
+                .addParameter(int.class, "id")
+                .addStatement("return $L", lookup)
+                .build();
+    }
+}
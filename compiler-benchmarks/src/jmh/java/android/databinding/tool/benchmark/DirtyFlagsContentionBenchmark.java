@@ -0,0 +1,110 @@
+/*
+ * Copyright (C) 2021 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package android.databinding.tool.benchmark;
+
+import android.databinding.tool.BinderTestEnvironment;
+import android.databinding.tool.CompilerOptions;
+import android.databinding.tool.store.ResourceBundle;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+import kotlin.Unit;
+
+/**
+ * Compares the dirty flags of binders generated with and without
+ * {@code android.databinding.lockFreeDirtyFlags} while several threads set a variable and one
+ * thread executes the bindings. The binders are generated and compiled by the
+ * {@link BinderTestEnvironment} of the compiler tests and run against its fake views.
+ * <pre>
+ * ./gradlew :compiler-benchmarks:jmh -Pjmh.include=DirtyFlagsContentionBenchmark
+ * </pre>
+ */
+@State(Scope.Group)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class DirtyFlagsContentionBenchmark {
+    private static final String VALUE = "value";
+
+    @Param({"false", "true"})
+    public boolean lockFreeDirtyFlags;
+
+    private BinderTestEnvironment mEnv;
+
+    private MethodHandle mSetVariable;
+
+    private MethodHandle mExecutePendingBindings;
+
+    private int mVariableId;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        mEnv = BinderTestEnvironment.create(CompilerOptions.readFromOptions(
+                Collections.singletonMap(CompilerOptions.PARAM_LOCK_FREE_DIRTY_FLAGS,
+                        String.valueOf(lockFreeDirtyFlags))));
+        ResourceBundle.LayoutFileBundle layout = mEnv.layout("contention", builder -> {
+            builder.variable("text", "java.lang.String");
+            builder.view(BinderTestEnvironment.TEXT_VIEW, null,
+                    Collections.singletonMap("android:text", "text"));
+            return Unit.INSTANCE;
+        });
+        BinderTestEnvironment.LoadedBinders binders =
+                mEnv.load(mEnv.compile(mEnv.writeBinders(layout)));
+        Object binder = binders.bind("contention", binders.inflate("contention"));
+        MethodHandles.Lookup lookup = MethodHandles.publicLookup();
+        mSetVariable = lookup.findVirtual(binder.getClass(), "setVariable",
+                MethodType.methodType(boolean.class, int.class, Object.class)).bindTo(binder);
+        mExecutePendingBindings = lookup.findVirtual(binder.getClass(),
+                "executePendingBindings", MethodType.methodType(void.class)).bindTo(binder);
+        mVariableId = binders.variableId("text");
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        mEnv.close();
+    }
+
+    @Benchmark
+    @Group("contention")
+    @GroupThreads(3)
+    public boolean setVariable() throws Throwable {
+        return (boolean) mSetVariable.invokeExact(mVariableId, (Object) VALUE);
+    }
+
+    @Benchmark
+    @Group("contention")
+    @GroupThreads(1)
+    public void executePendingBindings() throws Throwable {
+        mExecutePendingBindings.invokeExact();
+    }
+}
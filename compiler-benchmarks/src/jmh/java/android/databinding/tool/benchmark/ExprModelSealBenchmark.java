@@ -0,0 +1,61 @@
+/*
+ * Copyright (C) 2021 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package android.databinding.tool.benchmark;
+
+import android.databinding.tool.LayoutBinder;
+import android.databinding.tool.expr.ExprModel;
+import android.databinding.tool.store.ResourceBundle;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.IOException;
+
+/**
+ * Measures {@link ExprModel#seal()} for a synthetic layout. The layout binder is rebuilt before
+ * every invocation since sealing is not repeatable.
+ */
+@State(Scope.Benchmark)
+public class ExprModelSealBenchmark {
+    @Param({"10", "100", "1000", "5000"})
+    public int bindingCount;
+
+    private ResourceBundle.LayoutFileBundle mBundle;
+
+    private ExprModel mModel;
+
+    @Setup(Level.Trial)
+    public void setupTrial() throws IOException {
+        BenchmarkEnvironment.init();
+        mBundle = SyntheticLayouts.create(bindingCount);
+    }
+
+    @Setup(Level.Invocation)
+    public void setupInvocation() {
+        mModel = new LayoutBinder(mBundle, true).getModel();
+    }
+
+    @Benchmark
+    public ExprModel seal() {
+        mModel.seal();
+        return mModel;
+    }
+}
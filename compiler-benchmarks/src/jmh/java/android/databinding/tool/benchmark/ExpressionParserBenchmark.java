@@ -0,0 +1,61 @@
+/*
+ * Copyright (C) 2021 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package android.databinding.tool.benchmark;
+
+import android.databinding.tool.ExpressionParser;
+import android.databinding.tool.expr.Expr;
+import android.databinding.tool.expr.ExprModel;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Measures {@link ExpressionParser#parse} for all expressions of a synthetic layout into a fresh
+ * {@link ExprModel}.
+ */
+@State(Scope.Benchmark)
+public class ExpressionParserBenchmark {
+    @Param({"10", "100", "1000", "5000"})
+    public int bindingCount;
+
+    private List<String> mExpressions;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        BenchmarkEnvironment.init();
+        mExpressions = SyntheticLayouts.expressions(bindingCount);
+    }
+
+    @Benchmark
+    public ExprModel parse(Blackhole blackhole) {
+        ExprModel model = new ExprModel("com.example.bench", true);
+        ExpressionParser parser = new ExpressionParser(model);
+        for (String expression : mExpressions) {
+            Expr expr = parser.parse(expression, null, null);
+            blackhole.consume(expr);
+        }
+        return model;
+    }
+}
@@ -0,0 +1,87 @@
+/*
+ * Copyright (C) 2021 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package android.databinding.tool.benchmark;
+
+import android.databinding.tool.MockLayoutBinder;
+import android.databinding.tool.expr.ExprModel;
+import android.databinding.tool.expr.FieldAccessExpr;
+import android.databinding.tool.expr.IdentifierExpr;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Measures {@link FieldAccessExpr} type resolution on classes with deep hierarchies and hundreds
+ * of inherited members, which is what bindings on View subclasses look like. Swing components
+ * stand in for views since they are available to the reflection backed analyzer.
+ */
+@State(Scope.Benchmark)
+public class FieldAccessResolveBenchmark {
+    private static final String[] TYPES = {
+            "javax.swing.JButton",
+            "javax.swing.JCheckBox",
+            "javax.swing.JTextArea",
+            "javax.swing.JTable",
+            "javax.swing.JTree"
+    };
+
+    private static final String[] PROPERTIES = {
+            "name", "enabled", "visible", "width", "height", "font", "background",
+            "foreground", "toolTipText", "parent", "opaque", "focusable", "x", "y",
+            "alignmentX", "alignmentY", "border", "insets", "layout", "preferredSize"
+    };
+
+    @Param({"10", "100"})
+    public int variableCount;
+
+    private List<FieldAccessExpr> mFieldAccesses;
+
+    @Setup(Level.Trial)
+    public void setupTrial() throws IOException {
+        BenchmarkEnvironment.init();
+    }
+
+    @Setup(Level.Invocation)
+    public void setupInvocation() {
+        MockLayoutBinder layoutBinder = new MockLayoutBinder();
+        ExprModel model = layoutBinder.getModel();
+        mFieldAccesses = new ArrayList<>();
+        for (int i = 0; i < variableCount; i++) {
+            IdentifierExpr variable = layoutBinder.addVariable("view" + i,
+                    TYPES[i % TYPES.length], null);
+            for (String property : PROPERTIES) {
+                mFieldAccesses.add(model.field(variable, property));
+            }
+        }
+    }
+
+    @Benchmark
+    public void resolveType(Blackhole blackhole) {
+        for (FieldAccessExpr fieldAccess : mFieldAccesses) {
+            blackhole.consume(fieldAccess.getResolvedType());
+        }
+    }
+}
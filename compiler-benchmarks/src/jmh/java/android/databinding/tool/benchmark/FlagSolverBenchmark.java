@@ -0,0 +1,72 @@
+/*
+ * Copyright (C) 2021 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package android.databinding.tool.benchmark;
+
+import android.databinding.tool.LayoutBinder;
+import android.databinding.tool.expr.ExprModel;
+import android.databinding.tool.store.ResourceBundle;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.IOException;
+
+/**
+ * Measures the flag computations of a synthetic layout: sealing the model, which computes the
+ * invalidation and should-read flags, and marking flags as read until every expression is read,
+ * which is what {@link android.databinding.tool.writer.LayoutBinderWriter} does while writing
+ * {@code executeBindings}.
+ * <p>
+ * Mostly useful for the allocations it reports, run it with:
+ * <pre>
+ * ./gradlew :compiler-benchmarks:jmh -Pjmh.include=FlagSolverBenchmark -Pjmh.profilers=gc
+ * </pre>
+ * and compare {@code gc.alloc.rate.norm}, the bytes allocated per invocation.
+ */
+@State(Scope.Benchmark)
+public class FlagSolverBenchmark {
+    @Param({"10", "100", "1000"})
+    public int bindingCount;
+
+    private ResourceBundle.LayoutFileBundle mBundle;
+
+    private ExprModel mModel;
+
+    @Setup(Level.Trial)
+    public void setupTrial() throws IOException {
+        BenchmarkEnvironment.init();
+        mBundle = SyntheticLayouts.create(bindingCount);
+    }
+
+    @Setup(Level.Invocation)
+    public void setupInvocation() {
+        mModel = new LayoutBinder(mBundle, true).getModel();
+    }
+
+    @Benchmark
+    public ExprModel sealAndMarkRead() {
+        mModel.seal();
+        //noinspection StatementWithEmptyBody
+        while (mModel.markBitsRead()) {
+        }
+        return mModel;
+    }
+}
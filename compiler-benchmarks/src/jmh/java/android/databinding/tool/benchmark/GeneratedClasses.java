@@ -0,0 +1,103 @@
+/*
+ * Copyright (C) 2021 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package android.databinding.tool.benchmark;
+
+import com.squareup.javapoet.JavaFile;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.tools.JavaCompiler;
+import javax.tools.ToolProvider;
+
+/**
+ * Compiles generated sources into a temporary directory so that benchmarks can load them, e.g. to
+ * measure class initialization in a fresh class loader.
+ */
+final class GeneratedClasses implements AutoCloseable {
+    private final File mDir;
+
+    private final File mSourceDir;
+
+    private final File mClassesDir;
+
+    private final List<String> mSources = new ArrayList<>();
+
+    GeneratedClasses() throws IOException {
+        mDir = Files.createTempDirectory("generated-classes").toFile();
+        mSourceDir = new File(mDir, "src");
+        mClassesDir = new File(mDir, "classes");
+        if (!mClassesDir.mkdirs()) {
+            throw new IOException("cannot create " + mClassesDir);
+        }
+    }
+
+    GeneratedClasses add(JavaFile javaFile) throws IOException {
+        javaFile.writeTo(mSourceDir);
+        mSources.add(new File(mSourceDir, javaFile.packageName.replace('.', '/') + "/"
+                + javaFile.typeSpec.name + ".java").getPath());
+        return this;
+    }
+
+    GeneratedClasses add(String qualifiedName, String source) throws IOException {
+        File file = new File(mSourceDir, qualifiedName.replace('.', '/') + ".java");
+        //noinspection ResultOfMethodCallIgnored
+        file.getParentFile().mkdirs();
+        Files.write(file.toPath(), source.getBytes(StandardCharsets.UTF_8));
+        mSources.add(file.getPath());
+        return this;
+    }
+
+    GeneratedClasses compile() {
+        JavaCompiler javac = ToolProvider.getSystemJavaCompiler();
+        List<String> args = new ArrayList<>();
+        args.add("-d");
+        args.add(mClassesDir.getPath());
+        args.addAll(mSources);
+        if (javac.run(null, null, null, args.toArray(new String[0])) != 0) {
+            throw new IllegalStateException("cannot compile " + mSources);
+        }
+        return this;
+    }
+
+    URLClassLoader newLoader() throws IOException {
+        return new URLClassLoader(new URL[]{mClassesDir.toURI().toURL()},
+                GeneratedClasses.class.getClassLoader());
+    }
+
+    @Override
+    public void close() {
+        deleteRecursively(mDir);
+    }
+
+    private static void deleteRecursively(File file) {
+        File[] children = file.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                deleteRecursively(child);
+            }
+        }
+        //noinspection ResultOfMethodCallIgnored
+        file.delete();
+    }
+}
@@ -0,0 +1,152 @@
+/*
+ * Copyright (C) 2021 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package android.databinding.tool.benchmark;
+
+import android.databinding.annotationprocessor.ProcessExpressions;
+import android.databinding.tool.util.BinaryIntermediateReader;
+import android.databinding.tool.util.GenerationalClassUtil;
+
+import org.apache.commons.io.FileUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.infra.Blackhole;
+
+import javax.xml.bind.JAXBException;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compares loading the layout info intermediates of dependencies in the binary format against
+ * the java serialization format written by older versions. The {@code readBinary} benchmarks
+ * compare reading the binary files into the heap, as the compiler does, against memory mapping
+ * them. Run with {@code -Pjmh.profilers=gc} to compare the allocated bytes per load as well.
+ */
+@State(Scope.Benchmark)
+public class IntermediateLoadBenchmark {
+    private static final int LAYOUTS_PER_PACKAGE = 20;
+
+    private static final int BINDINGS_PER_LAYOUT = 20;
+
+    @Param({"10", "100", "500"})
+    public int packageCount;
+
+    /**
+     * {@code keys} only reads the layout names, as done for V2 dependencies, {@code contents}
+     * reads every layout info xml.
+     */
+    @Param({"keys", "contents"})
+    public String access;
+
+    private File mJavaSerializedDir;
+
+    private File mBinaryDir;
+
+    @Setup(Level.Trial)
+    public void setupTrial() throws IOException, JAXBException {
+        BenchmarkEnvironment.init();
+        mJavaSerializedDir = Files.createTempDirectory("db-intermediates-java").toFile();
+        mBinaryDir = Files.createTempDirectory("db-intermediates-binary").toFile();
+        GenerationalClassUtil binaryWriter = new GenerationalClassUtil(mBinaryDir, mBinaryDir);
+        for (int i = 0; i < packageCount; i++) {
+            String pkg = "com.example.lib" + i;
+            ProcessExpressions.IntermediateV2 intermediate =
+                    new ProcessExpressions.IntermediateV2();
+            for (int j = 0; j < LAYOUTS_PER_PACKAGE; j++) {
+                String layoutName = "lib" + i + "_layout" + j;
+                intermediate.addEntry(layoutName + "-layout.xml", SyntheticLayouts.create(
+                        layoutName, BINDINGS_PER_LAYOUT,
+                        BenchmarkEnvironment.DEFAULT_ADAPTER_COUNT).toXML());
+            }
+            binaryWriter.write(pkg, GenerationalClassUtil.ExtensionFilter.LAYOUT, intermediate);
+            // what GenerationalClassUtil used to write
+            File legacyFile = new File(mJavaSerializedDir,
+                    pkg + GenerationalClassUtil.ExtensionFilter.LAYOUT.getExt());
+            try (OutputStream out = Files.newOutputStream(legacyFile.toPath());
+                    ObjectOutputStream objectOut = new ObjectOutputStream(out)) {
+                objectOut.writeObject(intermediate);
+            }
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDownTrial() {
+        FileUtils.deleteQuietly(mJavaSerializedDir);
+        FileUtils.deleteQuietly(mBinaryDir);
+    }
+
+    @Benchmark
+    public void loadJavaSerialized(Blackhole blackhole) {
+        load(mJavaSerializedDir, blackhole);
+    }
+
+    @Benchmark
+    public void loadBinary(Blackhole blackhole) {
+        load(mBinaryDir, blackhole);
+    }
+
+    @Benchmark
+    public void readBinaryHeap(Blackhole blackhole) throws IOException {
+        read(false, blackhole);
+    }
+
+    @Benchmark
+    public void readBinaryMapped(Blackhole blackhole) throws IOException {
+        read(true, blackhole);
+    }
+
+    private void read(boolean memoryMapped, Blackhole blackhole) throws IOException {
+        boolean readContents = "contents".equals(access);
+        File[] files = mBinaryDir.listFiles();
+        for (File file : files) {
+            BinaryIntermediateReader reader = BinaryIntermediateReader.open(file, memoryMapped);
+            for (int i = 0; i < reader.getSize(); i++) {
+                blackhole.consume(reader.key(i));
+                if (readContents) {
+                    blackhole.consume(reader.values(i));
+                }
+            }
+        }
+    }
+
+    private void load(File dir, Blackhole blackhole) {
+        List<ProcessExpressions.Intermediate> intermediates = new GenerationalClassUtil(dir, null)
+                .load(GenerationalClassUtil.ExtensionFilter.LAYOUT,
+                        ProcessExpressions.Intermediate.class);
+        boolean readContents = "contents".equals(access);
+        for (ProcessExpressions.Intermediate intermediate : intermediates) {
+            Map<String, String> layouts =
+                    ((ProcessExpressions.IntermediateV1) intermediate.upgrade()).getLayoutInfoMap();
+            for (Map.Entry<String, String> entry : layouts.entrySet()) {
+                blackhole.consume(entry.getKey());
+                if (readContents) {
+                    blackhole.consume(entry.getValue());
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,113 @@
+/*
+ * Copyright (C) 2021 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package android.databinding.tool.benchmark;
+
+import android.databinding.tool.LayoutBinder;
+import android.databinding.tool.store.ResourceBundle;
+import android.databinding.tool.writer.LayoutBinderWriter;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * Measures {@link LayoutBinderWriter#write(int)} for a sealed synthetic layout. A new binder is
+ * created before every invocation because the writer caches computed properties on the model.
+ * <p>
+ * {@link #stream()} renders the same code into a writer instead, the way it is written into the
+ * Filer. Compare the allocations of both with:
+ * <pre>
+ * ./gradlew :compiler-benchmarks:jmh -Pjmh.include=LayoutBinderWriterBenchmark -Pjmh.profilers=gc
+ * </pre>
+ */
+@State(Scope.Benchmark)
+public class LayoutBinderWriterBenchmark {
+    @Param({"10", "100", "500", "1000", "5000"})
+    public int bindingCount;
+
+    private ResourceBundle.LayoutFileBundle mBundle;
+
+    private LayoutBinder mLayoutBinder;
+
+    @Setup(Level.Trial)
+    public void setupTrial() throws IOException {
+        BenchmarkEnvironment.init();
+        mBundle = SyntheticLayouts.create(bindingCount);
+    }
+
+    @Setup(Level.Invocation)
+    public void setupInvocation() {
+        mLayoutBinder = new LayoutBinder(mBundle, true);
+        mLayoutBinder.sealModel();
+    }
+
+    @TearDown(Level.Invocation)
+    public void tearDownInvocation() {
+        BenchmarkEnvironment.clearLazyProps();
+    }
+
+    @Benchmark
+    public String write() {
+        return mLayoutBinder.writeViewBinder(21);
+    }
+
+    @Benchmark
+    public long stream() {
+        CountingWriter writer = new CountingWriter();
+        mLayoutBinder.createViewBinderCode(21).generate(writer);
+        return writer.mCount;
+    }
+
+    /**
+     * Drops everything written into it, only counting the characters so that the work cannot be
+     * optimized away.
+     */
+    private static class CountingWriter extends Writer {
+        long mCount;
+
+        @Override
+        public void write(char[] cbuf, int off, int len) {
+            mCount += len;
+        }
+
+        @Override
+        public void write(String str, int off, int len) {
+            mCount += len;
+        }
+
+        @Override
+        public Writer append(CharSequence csq) {
+            mCount += csq == null ? 4 : csq.length();
+            return this;
+        }
+
+        @Override
+        public void flush() {
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
@@ -0,0 +1,215 @@
+/*
+ * Copyright (C) 2021 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package android.databinding.tool.benchmark;
+
+import android.databinding.tool.writer.LayoutIdLookupWriter;
+
+import com.squareup.javapoet.CodeBlock;
+import com.squareup.javapoet.FieldSpec;
+import com.squareup.javapoet.JavaFile;
+import com.squareup.javapoet.MethodSpec;
+import com.squareup.javapoet.ParameterizedTypeName;
+import com.squareup.javapoet.TypeName;
+import com.squareup.javapoet.TypeSpec;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.IOException;
+import java.net.URLClassLoader;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.function.ToIntFunction;
+
+import javax.lang.model.element.Modifier;
+
+import kotlin.Pair;
+
+/**
+ * Compares the tag to layout id lookup of the generated {@code DataBinderMapperImpl}: the
+ * {@code HashMap} filled in a static block it used to generate and the {@code switch} generated by
+ * {@link LayoutIdLookupWriter}.
+ * <p>
+ * Both lookups are compiled for synthetic layouts when the trial starts, with int literals in place
+ * of the {@code R.layout} fields. The init benchmarks load and initialize the class in a new class
+ * loader, so they include class loading and verification on top of the static initializer. The
+ * lookup benchmarks resolve every tag once, in a random order.
+ * <pre>
+ * ./gradlew :compiler-benchmarks:jmh -Pjmh.include=LayoutIdLookupBenchmark
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class LayoutIdLookupBenchmark {
+    private static final String PACKAGE = "android.databinding.tool.benchmark.generated";
+    private static final String MAP_LOOKUP = "MapLayoutIdLookup";
+    private static final String SWITCH_LOOKUP = "SwitchLayoutIdLookup";
+    // same as the chunk size used by BindingMapperWriterV2
+    private static final int CHUNK_SIZE = 500;
+
+    @Param({"100", "2000"})
+    public int layoutCount;
+
+    private GeneratedClasses mClasses;
+
+    private String[] mTags;
+
+    private ToIntFunction<String> mMapLookup;
+
+    private ToIntFunction<String> mSwitchLookup;
+
+    private URLClassLoader mLoader;
+
+    @Setup(Level.Trial)
+    public void setupTrial() throws Exception {
+        List<Pair<String, String>> entries = new ArrayList<>();
+        List<String> tags = new ArrayList<>();
+        for (int i = 0; i < layoutCount; i++) {
+            String tag = "layout/synthetic_layout_" + i + "_0";
+            tags.add(tag);
+            entries.add(new Pair<>(tag, Integer.toString(0x7f0b0000 + i)));
+        }
+        Collections.shuffle(tags, new Random(0));
+        mTags = tags.toArray(new String[0]);
+
+        mClasses = new GeneratedClasses()
+                .add(JavaFile.builder(PACKAGE, createMapLookup(entries)).build())
+                .add(JavaFile.builder(PACKAGE, createSwitchLookup(entries)).build())
+                .compile();
+        try (URLClassLoader loader = mClasses.newLoader()) {
+            mMapLookup = newLookup(loader, MAP_LOOKUP);
+            mSwitchLookup = newLookup(loader, SWITCH_LOOKUP);
+            for (String tag : mTags) {
+                if (mMapLookup.applyAsInt(tag) != mSwitchLookup.applyAsInt(tag)) {
+                    throw new IllegalStateException("lookups disagree for " + tag);
+                }
+            }
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDownTrial() {
+        mClasses.close();
+    }
+
+    @Setup(Level.Invocation)
+    public void setupInvocation() throws IOException {
+        mLoader = mClasses.newLoader();
+    }
+
+    @TearDown(Level.Invocation)
+    public void tearDownInvocation() throws IOException {
+        mLoader.close();
+    }
+
+    @Benchmark
+    public Class<?> mapInit() throws ClassNotFoundException {
+        return Class.forName(PACKAGE + "." + MAP_LOOKUP, true, mLoader);
+    }
+
+    @Benchmark
+    public Class<?> switchInit() throws ClassNotFoundException {
+        return Class.forName(PACKAGE + "." + SWITCH_LOOKUP, true, mLoader);
+    }
+
+    @Benchmark
+    public int mapLookup() {
+        return lookupAll(mMapLookup);
+    }
+
+    @Benchmark
+    public int switchLookup() {
+        return lookupAll(mSwitchLookup);
+    }
+
+    private int lookupAll(ToIntFunction<String> lookup) {
+        int result = 0;
+        for (String tag : mTags) {
+            result += lookup.applyAsInt(tag);
+        }
+        return result;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static ToIntFunction<String> newLookup(ClassLoader loader, String name)
+            throws ReflectiveOperationException {
+        return (ToIntFunction<String>) Class.forName(PACKAGE + "." + name, true, loader)
+                .getDeclaredConstructor().newInstance();
+    }
+
+    /**
+     * Mirrors the lookup generated before the switch: a map filled in static blocks of
+     * {@link #CHUNK_SIZE} entries.
+     */
+    private static TypeSpec createMapLookup(List<Pair<String, String>> entries) {
+        TypeName mapType = ParameterizedTypeName.get(HashMap.class, String.class, Integer.class);
+        FieldSpec keys = FieldSpec.builder(mapType, "sKeys", Modifier.STATIC, Modifier.FINAL)
+                .initializer("new $T($L)", mapType, entries.size())
+                .build();
+        TypeSpec.Builder builder = createLookupClass(MAP_LOOKUP)
+                .addField(keys)
+                .addMethod(MethodSpec.methodBuilder("applyAsInt")
+                        .addModifiers(Modifier.PUBLIC)
+                        .returns(TypeName.INT)
+                        .addParameter(String.class, "tag")
+                        .addStatement("$T tmpVal = $N.get(tag)", Integer.class, keys)
+                        .addStatement("return tmpVal == null ? 0 : tmpVal")
+                        .build());
+        CodeBlock.Builder staticBlock = CodeBlock.builder();
+        for (int start = 0; start < entries.size(); start += CHUNK_SIZE) {
+            MethodSpec.Builder chunk = MethodSpec
+                    .methodBuilder("internalPopulateLayoutIdLookup" + start / CHUNK_SIZE)
+                    .addModifiers(Modifier.PRIVATE, Modifier.STATIC);
+            for (Pair<String, String> entry
+                    : entries.subList(start, Math.min(start + CHUNK_SIZE, entries.size()))) {
+                chunk.addStatement("$N.put($S, $L)", keys, entry.getFirst(), entry.getSecond());
+            }
+            MethodSpec method = chunk.build();
+            builder.addMethod(method);
+            staticBlock.addStatement("$N()", method);
+        }
+        return builder.addStaticBlock(staticBlock.build()).build();
+    }
+
+    private static TypeSpec createSwitchLookup(List<Pair<String, String>> entries) {
+        TypeSpec.Builder builder = createLookupClass(SWITCH_LOOKUP)
+                .addMethod(MethodSpec.methodBuilder("applyAsInt")
+                        .addModifiers(Modifier.PUBLIC)
+                        .returns(TypeName.INT)
+                        .addParameter(String.class, "tag")
+                        .addStatement("return $L(tag)", LayoutIdLookupWriter.METHOD_NAME)
+                        .build());
+        LayoutIdLookupWriter.addLookupMethods(builder, entries, CHUNK_SIZE);
+        return builder.build();
+    }
+
+    private static TypeSpec.Builder createLookupClass(String name) {
+        return TypeSpec.classBuilder(name)
+                .addModifiers(Modifier.PUBLIC)
+                .addSuperinterface(ParameterizedTypeName.get(ToIntFunction.class, String.class));
+    }
+}
@@ -0,0 +1,93 @@
+/*
+ * Copyright (C) 2021 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package android.databinding.tool.benchmark;
+
+import android.databinding.tool.Binding;
+import android.databinding.tool.BindingTarget;
+import android.databinding.tool.LayoutBinder;
+import android.databinding.tool.reflection.ImportBag;
+import android.databinding.tool.reflection.ModelClass;
+import android.databinding.tool.store.SetterStore;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Measures {@link SetterStore#getSetterCall} for every binding of a sealed synthetic layout.
+ * The lookups are collected once per trial so only the setter resolution itself is measured.
+ */
+@State(Scope.Benchmark)
+public class SetterStoreBenchmark {
+    @Param({"10", "100", "1000", "5000"})
+    public int bindingCount;
+
+    @Param({"100", "400", "2000"})
+    public int adapterCount;
+
+    private SetterStore mSetterStore;
+
+    private ImportBag mImports;
+
+    private final List<SetterLookup> mLookups = new ArrayList<>();
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        BenchmarkEnvironment.init(adapterCount);
+        mSetterStore = SetterStore.get();
+        LayoutBinder layoutBinder = new LayoutBinder(
+                SyntheticLayouts.create("bench_" + bindingCount, bindingCount, adapterCount),
+                true);
+        layoutBinder.sealModel();
+        mImports = layoutBinder.getModel().getImports();
+        mLookups.clear();
+        for (BindingTarget target : layoutBinder.getBindingTargets()) {
+            for (Binding binding : target.getBindings()) {
+                mLookups.add(new SetterLookup(binding.getName(), target.getResolvedType(),
+                        binding.getExpr().getResolvedType()));
+            }
+        }
+    }
+
+    @Benchmark
+    public void getSetterCall(Blackhole blackhole) {
+        for (SetterLookup lookup : mLookups) {
+            blackhole.consume(mSetterStore.getSetterCall(lookup.attribute, lookup.viewType,
+                    lookup.valueType, mImports));
+        }
+    }
+
+    private static class SetterLookup {
+        final String attribute;
+        final ModelClass viewType;
+        final ModelClass valueType;
+
+        SetterLookup(String attribute, ModelClass viewType, ModelClass valueType) {
+            this.attribute = attribute;
+            this.viewType = viewType;
+            this.valueType = valueType;
+        }
+    }
+}
@@ -0,0 +1,118 @@
+/*
+ * Copyright (C) 2021 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package android.databinding.tool.benchmark;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+/**
+ * Generates a synthetic binding adapter store for the benchmarks.
+ * <p>
+ * The store is written in the same JSON format the annotation processor uses for
+ * {@code -setter_store.json} intermediates so that it goes through the regular
+ * {@link android.databinding.tool.store.SetterStore#create} path. This class is also the declaring
+ * type of every synthetic adapter; the adapter methods themselves never need to exist since the
+ * compiler only resolves the declaring class.
+ */
+public final class SyntheticAdapters {
+    /**
+     * Prefix of the attributes used in layouts. The namespace is stripped by the SetterStore so
+     * the store itself only contains the {@code attr<n>} part.
+     */
+    public static final String ATTRIBUTE_PREFIX = "bench:attr";
+    private static final String STORE_ATTRIBUTE_PREFIX = "attr";
+
+    static final String[] VIEW_TYPES = {
+            "android.view.View",
+            "android.widget.TextView",
+            "android.widget.Button",
+            "android.widget.EditText",
+            "android.widget.ImageView",
+            "android.widget.LinearLayout",
+    };
+
+    static final String[] VALUE_TYPES = {
+            "java.lang.String",
+            "java.lang.CharSequence",
+            "int",
+            "boolean",
+            "java.lang.Object",
+    };
+
+    private SyntheticAdapters() {
+    }
+
+    /**
+     * Number of distinct attributes generated for the given adapter count. Each attribute
+     * receives an adapter for several view and value types, similar to what the framework and
+     * material adapters register.
+     */
+    public static int attributeCount(int adapterCount) {
+        return Math.max(1, adapterCount / 8);
+    }
+
+    /**
+     * Writes a store with {@code adapterCount} adapters into the given folder.
+     */
+    public static void write(File folder, int adapterCount) throws IOException {
+        folder.mkdirs();
+        File out = new File(folder, "benchmark-setter_store.json");
+        try (Writer writer = Files.newBufferedWriter(out.toPath(), StandardCharsets.UTF_8)) {
+            writer.write("{\"version\":5,\"adapterMethods\":{");
+            int attributeCount = attributeCount(adapterCount);
+            int perAttribute = Math.max(1, adapterCount / attributeCount);
+            for (int attr = 0; attr < attributeCount; attr++) {
+                if (attr > 0) {
+                    writer.write(',');
+                }
+                writer.write("\"" + STORE_ATTRIBUTE_PREFIX + attr + "\":[");
+                // catch-all so that every binding in the synthetic layouts resolves
+                writer.write("[{\"viewType\":\"android.view.View\","
+                        + "\"valueType\":\"java.lang.Object\"},");
+                writeMethod(writer, "setAttr" + attr);
+                writer.write(']');
+                for (int i = 1; i < perAttribute; i++) {
+                    writer.write(',');
+                    String viewType = VIEW_TYPES[(attr + i) % VIEW_TYPES.length];
+                    String valueType = VALUE_TYPES[i % VALUE_TYPES.length];
+                    writer.write("[{\"viewType\":\"" + viewType + "\",\"valueType\":\""
+                            + valueType + "\"},");
+                    writeMethod(writer, "setAttr" + attr + "_" + i);
+                    writer.write(']');
+                }
+                writer.write(']');
+            }
+            writer.write("},\"renamedMethods\":{},\"conversionMethods\":{");
+            // a few conversions so that adapter ranking has something to look up
+            writer.write("\"int\":{\"java.lang.String\":");
+            writeMethod(writer, "convertIntToString");
+            writer.write("},\"boolean\":{\"java.lang.CharSequence\":");
+            writeMethod(writer, "convertBooleanToCharSequence");
+            writer.write("}},\"untaggableTypes\":{},\"multiValueAdapters\":[],"
+                    + "\"inverseAdapters\":{},\"inverseMethods\":{},\"twoWayMethods\":[]}");
+        }
+    }
+
+    private static void writeMethod(Writer writer, String method) throws IOException {
+        writer.write("{\"type\":\"" + SyntheticAdapters.class.getCanonicalName()
+                + "\",\"method\":\"" + method + "\",\"requiresOldValue\":false,"
+                + "\"isStatic\":true,\"componentClass\":null}");
+    }
+}
@@ -0,0 +1,111 @@
+/*
+ * Copyright (C) 2021 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package android.databinding.tool.benchmark;
+
+import android.databinding.tool.store.Location;
+import android.databinding.tool.store.ResourceBundle;
+import android.databinding.tool.store.ResourceBundle.BindingTargetBundle;
+import android.databinding.tool.util.RelativizableFile;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Builds {@link ResourceBundle.LayoutFileBundle}s with a configurable number of bindings, similar
+ * to what the layout xml processor would produce for a large layout.
+ */
+public final class SyntheticLayouts {
+    public static final String VARIABLE = "vm";
+    private static final String MODULE_PACKAGE = "com.example.bench";
+
+    private SyntheticLayouts() {
+    }
+
+    /**
+     * Expression used for the binding at the given index. The expressions cycle through field
+     * access, null coalescing, ternaries, static method calls and bracket access so that the
+     * model has conditionals and shared dependencies like a real layout.
+     */
+    public static String expression(int index) {
+        switch (index % 6) {
+            case 0:
+                return VARIABLE + ".name";
+            case 1:
+                return VARIABLE + ".title ?? " + VARIABLE + ".name";
+            case 2:
+                return VARIABLE + ".enabled ? " + VARIABLE + ".name : " + VARIABLE + ".title";
+            case 3:
+                return "String.valueOf(" + VARIABLE + ".count + " + index + ")";
+            case 4:
+                return VARIABLE + ".child.name";
+            default:
+                return VARIABLE + ".items[" + (index % 3) + "]";
+        }
+    }
+
+    /**
+     * Attribute used for the binding at the given index. Every other binding goes through a
+     * synthetic binding adapter, the rest resolve to framework setters.
+     */
+    public static String attribute(int index, int adapterCount) {
+        if (index % 2 == 0) {
+            return "android:text";
+        }
+        return SyntheticAdapters.ATTRIBUTE_PREFIX
+                + (index % SyntheticAdapters.attributeCount(adapterCount));
+    }
+
+    /**
+     * Returns the expressions of a layout with {@code bindingCount} bindings.
+     */
+    public static List<String> expressions(int bindingCount) {
+        List<String> result = new ArrayList<>(bindingCount);
+        for (int i = 0; i < bindingCount; i++) {
+            result.add(expression(i));
+        }
+        return result;
+    }
+
+    public static ResourceBundle.LayoutFileBundle create(int bindingCount) {
+        return create("bench_" + bindingCount, bindingCount,
+                BenchmarkEnvironment.DEFAULT_ADAPTER_COUNT);
+    }
+
+    public static ResourceBundle.LayoutFileBundle create(String layoutName, int bindingCount,
+            int adapterCount) {
+        String fileName = layoutName + ".xml";
+        ResourceBundle.LayoutFileBundle bundle = new ResourceBundle.LayoutFileBundle(
+                RelativizableFile.fromAbsoluteFile(new File(fileName).getAbsoluteFile(), null),
+                fileName, "layout", MODULE_PACKAGE, false, true, "android.widget.LinearLayout",
+                null);
+        Location location = new Location(0, 0, 0, 0);
+        bundle.addVariable(VARIABLE, SyntheticViewModel.class.getCanonicalName(), location,
+                true);
+        bundle.createBindingTarget(null, "android.widget.LinearLayout", true,
+                "layout/" + layoutName + "_0", null, location);
+        for (int i = 0; i < bindingCount; i++) {
+            // give a quarter of the views an id so that view fields are generated as well
+            String id = i % 4 == 0 ? "@+id/view" + i : null;
+            BindingTargetBundle target = bundle.createBindingTarget(id,
+                    "android.widget.TextView", true, "binding_" + (i + 1), null, location);
+            target.addBinding(attribute(i, adapterCount), expression(i), false, location,
+                    location);
+        }
+        return bundle;
+    }
+}
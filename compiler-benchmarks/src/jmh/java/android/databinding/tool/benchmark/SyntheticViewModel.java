@@ -0,0 +1,50 @@
+/*
+ * Copyright (C) 2021 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package android.databinding.tool.benchmark;
+
+import java.util.List;
+
+/**
+ * Variable type used by the synthetic layouts. It is loaded by the reflection backed analyzer so
+ * it only needs the members referenced from the generated expressions.
+ */
+@SuppressWarnings("unused")
+public class SyntheticViewModel {
+    public String getName() {
+        return null;
+    }
+
+    public String getTitle() {
+        return null;
+    }
+
+    public int getCount() {
+        return 0;
+    }
+
+    public boolean isEnabled() {
+        return false;
+    }
+
+    public SyntheticViewModel getChild() {
+        return null;
+    }
+
+    public List<String> getItems() {
+        return null;
+    }
+}
@@ -18,8 +18,12 @@ package android.databinding.annotationprocessor;
 
 import android.databinding.tool.CompilerArguments;
 import android.databinding.tool.CompilerChef.BindableHolder;
+import android.databinding.tool.Context;
 import android.databinding.tool.LibTypes;
 import android.databinding.tool.reflection.ModelAnalyzer;
+import android.databinding.tool.util.BinaryIntermediateCodec;
+import android.databinding.tool.util.BinaryIntermediateReader;
+import android.databinding.tool.util.BinaryIntermediateWriter;
 import android.databinding.tool.util.GenerationalClassUtil;
 import android.databinding.tool.util.L;
 import android.databinding.tool.util.LoggedErrorException;
@@ -27,8 +31,12 @@ import android.databinding.tool.util.Preconditions;
 import android.databinding.tool.writer.BRWriter;
 import android.databinding.tool.writer.JavaFileWriter;
 import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import javax.annotation.processing.ProcessingEnvironment;
 import javax.annotation.processing.RoundEnvironment;
@@ -44,6 +52,28 @@ import javax.lang.model.util.Types;
 
 // binding app info and library info are necessary to trigger this.
 public class ProcessBindable extends ProcessDataBinding.ProcessingStep implements BindableHolder {
+    /**
+     * Writes {@link Intermediate}s in the binary format of {@link GenerationalClassUtil}. Each
+     * entry maps a class to its bindable properties.
+     */
+    public static final BinaryIntermediateCodec<Intermediate> BINARY_CODEC =
+            new BinaryIntermediateCodec<Intermediate>() {
+                @Override
+                public void encode(Intermediate item, BinaryIntermediateWriter writer) {
+                    for (Map.Entry<String, HashSet<String>> entry :
+                            item.toMutable().mProperties.entrySet()) {
+                        List<String> properties = new ArrayList<>(entry.getValue());
+                        Collections.sort(properties);
+                        writer.addEntry(entry.getKey(), properties);
+                    }
+                }
+
+                @Override
+                public Intermediate decode(BinaryIntermediateReader reader) {
+                    return new BinaryIntermediate(reader);
+                }
+            };
+
     private Intermediate mProperties;
     private HashMap<String, HashSet<String>> mLayoutVariables = new HashMap<>();
 
@@ -148,9 +178,7 @@ public class ProcessBindable extends ProcessDataBinding.ProcessingStep implement
                     getProperties(mProperties),
                     processingEnv);
             final JavaFileWriter writer = getWriter();
-            boolean useFinal = compilerArgs.isApp()
-                    || compilerArgs.isFeature()
-                    || compilerArgs.isTestVariant();
+            boolean useFinal = Context.hasFinalBrIds(compilerArgs);
             BRWriter brWriter = new BRWriter(useFinal);
             bindableBag.getToBeGenerated().forEach(brWithValues -> {
                 String out = brWriter.write(brWithValues);
@@ -258,7 +286,7 @@ public class ProcessBindable extends ProcessDataBinding.ProcessingStep implement
                 element.getReturnType().getKind() == TypeKind.BOOLEAN;
     }
 
-    interface Intermediate extends Serializable {
+    public interface Intermediate extends Serializable {
 
         void captureProperties(Set<String> properties);
 
@@ -267,9 +295,15 @@ public class ProcessBindable extends ProcessDataBinding.ProcessingStep implement
         boolean hasValues();
 
         String getPackage();
+
+        /**
+         * Returns an intermediate with the same properties that can be modified and encoded,
+         * which may be this one.
+         */
+        IntermediateV1 toMutable();
     }
 
-    static class IntermediateV1 implements Serializable, Intermediate {
+    public static class IntermediateV1 implements Serializable, Intermediate {
         private static final long serialVersionUID = 2L;
 
         private String mPackage;
@@ -305,6 +339,68 @@ public class ProcessBindable extends ProcessDataBinding.ProcessingStep implement
         public String getPackage() {
             return mPackage;
         }
+
+        @Override
+        public IntermediateV1 toMutable() {
+            return this;
+        }
+    }
+
+    /**
+     * An {@link Intermediate} loaded from the binary format. Properties are only decoded when they
+     * are captured, unless the intermediate is modified in which case it is copied into an
+     * {@link IntermediateV1} first.
+     */
+    private static class BinaryIntermediate implements Intermediate {
+        private final transient BinaryIntermediateReader mReader;
+        private transient IntermediateV1 mMutable;
+
+        BinaryIntermediate(BinaryIntermediateReader reader) {
+            mReader = reader;
+        }
+
+        @Override
+        public void captureProperties(Set<String> properties) {
+            if (mMutable != null) {
+                mMutable.captureProperties(properties);
+                return;
+            }
+            for (int i = 0; i < mReader.getSize(); i++) {
+                properties.addAll(mReader.values(i));
+            }
+        }
+
+        @Override
+        public void addProperty(String className, String propertyName) {
+            toMutable().addProperty(className, propertyName);
+        }
+
+        @Override
+        public boolean hasValues() {
+            if (mMutable != null) {
+                return mMutable.hasValues();
+            }
+            return mReader.getSize() > 0;
+        }
+
+        @Override
+        public String getPackage() {
+            return mReader.getPkg();
+        }
+
+        @Override
+        public IntermediateV1 toMutable() {
+            if (mMutable == null) {
+                mMutable = new IntermediateV1(mReader.getPkg());
+                for (int i = 0; i < mReader.getSize(); i++) {
+                    String className = mReader.key(i);
+                    for (String property : mReader.values(i)) {
+                        mMutable.addProperty(className, property);
+                    }
+                }
+            }
+            return mMutable;
+        }
     }
 
     static Set<String> getProperties(Intermediate intermediate) {
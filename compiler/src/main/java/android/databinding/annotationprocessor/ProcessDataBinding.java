@@ -18,6 +18,7 @@ package android.databinding.annotationprocessor;
 
 import android.databinding.tool.CompilerArguments;
 import android.databinding.tool.CompilerChef;
+import android.databinding.tool.CompilerOptions;
 import android.databinding.tool.Context;
 import android.databinding.tool.processing.Scope;
 import android.databinding.tool.processing.ScopedException;
@@ -80,6 +81,8 @@ public class ProcessDataBinding extends AbstractProcessor {
 
     private List<ProcessingStep> mProcessingSteps;
     private CompilerArguments mCompilerArgs;
+    // kept to persist the generated binders once processing finishes without errors
+    private CompilerChef mCompilerChef;
 
     @Override
     public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
@@ -121,6 +124,9 @@ public class ProcessDataBinding extends AbstractProcessor {
         }
         if (roundEnv.processingOver()) {
             Scope.assertNoError();
+            if (mCompilerChef != null) {
+                mCompilerChef.commitBinderCache();
+            }
         }
         return done;
     }
@@ -150,6 +156,7 @@ public class ProcessDataBinding extends AbstractProcessor {
                 Preconditions.checkNull(mChef, "Cannot set compiler chef twice");
                 chef.addBRVariables(processBindable);
                 mChef = chef;
+                mCompilerChef = chef;
                 considerWritingMapper();
             }
 
@@ -208,6 +215,7 @@ public class ProcessDataBinding extends AbstractProcessor {
     @Override
     public Set<String> getSupportedOptions() {
         Set<String> supportedOptions = new HashSet<>(CompilerArguments.ALL_PARAMS);
+        supportedOptions.addAll(CompilerOptions.ALL_PARAMS);
 
         // In addition to the regular supported options above, we also need to add an option to tell
         // Gradle that this is an aggregating annotation processor (if the incremental flag is
@@ -24,6 +24,9 @@ import android.databinding.tool.processing.ScopedException;
 import android.databinding.tool.reflection.ModelAnalyzer;
 import android.databinding.tool.store.GenClassInfoLog;
 import android.databinding.tool.store.ResourceBundle;
+import android.databinding.tool.util.BinaryIntermediateCodec;
+import android.databinding.tool.util.BinaryIntermediateReader;
+import android.databinding.tool.util.BinaryIntermediateWriter;
 import android.databinding.tool.util.GenerationalClassUtil;
 import android.databinding.tool.util.L;
 import android.databinding.tool.util.LoggedErrorException;
@@ -61,6 +64,30 @@ import javax.annotation.processing.RoundEnvironment;
 import javax.xml.bind.JAXBException;
 
 public class ProcessExpressions extends ProcessDataBinding.ProcessingStep {
+    /**
+     * Writes {@link Intermediate}s in the binary format of {@link GenerationalClassUtil}. Each
+     * entry maps a layout info file name to its contents. Loaded intermediates decode the contents
+     * of a layout only when it is read.
+     */
+    public static final BinaryIntermediateCodec<Intermediate> BINARY_CODEC =
+            new BinaryIntermediateCodec<Intermediate>() {
+                @Override
+                public void encode(Intermediate item, BinaryIntermediateWriter writer) {
+                    for (Map.Entry<String, String> entry :
+                            ((IntermediateV1) item).mLayoutInfoMap.entrySet()) {
+                        writer.addEntry(entry.getKey(),
+                                Collections.singletonList(entry.getValue()));
+                    }
+                }
+
+                @Override
+                public Intermediate decode(BinaryIntermediateReader reader) {
+                    IntermediateV2 intermediate = new IntermediateV2();
+                    intermediate.mLayoutInfoMap = reader.asStringMap();
+                    return intermediate;
+                }
+            };
+
     public ProcessExpressions() {
     }
 
@@ -329,6 +356,13 @@ public class ProcessExpressions extends ProcessDataBinding.ProcessingStep {
             mLayoutInfoMap.put(name, contents);
         }
 
+        /**
+         * Returns the layout info xml contents keyed by their file names.
+         */
+        public Map<String, String> getLayoutInfoMap() {
+            return mLayoutInfoMap;
+        }
+
         // keeping the method to match deserialized structure
         @SuppressWarnings("unused")
         public void removeOverridden(List<Intermediate> existing) {
@@ -19,9 +19,11 @@ import android.databinding.tool.processing.ScopedException;
 import android.databinding.tool.reflection.InjectedClass;
 import android.databinding.tool.reflection.ModelAnalyzer;
 import android.databinding.tool.reflection.MutableImportBag;
+import android.databinding.tool.store.BinderSourceCache;
 import android.databinding.tool.store.FeatureInfoList;
 import android.databinding.tool.store.GenClassInfoLog;
 import android.databinding.tool.store.ResourceBundle;
+import android.databinding.tool.store.SetterStore;
 import android.databinding.tool.util.L;
 import android.databinding.tool.writer.BindingMapperWriter;
 import android.databinding.tool.writer.BindingMapperWriterV2;
@@ -44,6 +46,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.SortedSet;
+import java.util.TreeMap;
 import java.util.TreeSet;
 import java.util.stream.Collectors;
 
@@ -115,7 +118,12 @@ public class CompilerChef {
     public void ensureDataBinder() {
         if (mDataBinder == null) {
             LibTypes libTypes = ModelAnalyzer.getInstance().libTypes;
-            mDataBinder = new DataBinder(mResourceBundle, mEnableV2, libTypes);
+            BinderSourceCache binderSourceCache = null;
+            if (mEnableV2) {
+                binderSourceCache = BinderSourceCache.create(
+                        Context.getCompilerOptions().getBinderCacheDir(), SetterStore.get());
+            }
+            mDataBinder = new DataBinder(mResourceBundle, mEnableV2, libTypes, binderSourceCache);
             mDataBinder.setFileWriter(mFileWriter);
         }
     }
@@ -202,7 +210,16 @@ public class CompilerChef {
                 generateMapper = true;
             }
             if (generateMapper) {
-                writeMapperForModule(compilerArgs, brValueLookup, availableDependencyModules);
+                if (Context.getCompilerOptions().getLazyDependencyMappers()) {
+                    // proxies do not collect dependencies, so list all of them here
+                    writeMapperForModule(compilerArgs, brValueLookup,
+                            availableDependencyModules,
+                            getDependenciesWithMappers(processingEnv, compilerArgs,
+                                    modulePackages));
+                } else {
+                    writeMapperForModule(compilerArgs, brValueLookup,
+                            availableDependencyModules, null);
+                }
             }
 
             // merged mapper is the one generated for the whole app that includes the mappers
@@ -246,6 +263,17 @@ public class CompilerChef {
             // used the value specified by the compiler
             return Sets.newTreeSet(explicitPkgs);
         }
+        return getDependenciesWithMappers(processingEnv, compilerArgs, modulePackages);
+    }
+
+    /**
+     * Returns the packages of all modules, besides this one, that have a mapper.
+     */
+    @NotNull
+    private SortedSet<String> getDependenciesWithMappers(
+            ProcessingEnvironment processingEnv,
+            CompilerArguments compilerArgs,
+            List<String> modulePackages) {
         return modulePackages.stream()
                 .filter(modulePackage -> {
                     if (modulePackage.equals(compilerArgs.getModulePackage())) {
@@ -324,11 +352,16 @@ public class CompilerChef {
 
     /**
      * Generates a mapper that knows only about the bindings in this module (excl dependencies).
+     * If lazyDependencyModules is set, those dependencies are returned as proxies that only create
+     * their mappers when one of their layouts is inflated. The mappers of
+     * availableDependencyModules are then only created for layouts that exist in more than one
+     * dependency, so that they resolve to the same binding as without proxies.
      */
     private void writeMapperForModule(
             CompilerArguments compilerArgs,
             BindableBag.BRMapping brValueLookup,
-            Set<String> availableDependencyModules) {
+            Set<String> availableDependencyModules,
+            @Nullable Set<String> lazyDependencyModules) {
         GenClassInfoLog infoLog;
         try {
             infoLog = ResourceBundle.loadClassInfoFromFolder(compilerArgs.getClassLogDir());
@@ -338,12 +371,20 @@ public class CompilerChef {
         }
         GenClassInfoLog infoLogInThisModule = infoLog
                 .createPackageInfoLog(compilerArgs.getModulePackage());
+        Map<String, GenClassInfoLog> lazyDependencyLogs = null;
+        if (lazyDependencyModules != null) {
+            lazyDependencyLogs = new TreeMap<>();
+            for (String dependency : lazyDependencyModules) {
+                lazyDependencyLogs.put(dependency, infoLog.createPackageInfoLog(dependency));
+            }
+        }
         LibTypes libTypes = ModelAnalyzer.getInstance().libTypes;
         BindingMapperWriterV2 v2 = new BindingMapperWriterV2(
                 infoLogInThisModule,
                 compilerArgs,
                 libTypes,
-                availableDependencyModules);
+                availableDependencyModules,
+                lazyDependencyLogs);
         TypeSpec spec = v2.write(brValueLookup);
         StringBuilder sb = new StringBuilder();
         try {
@@ -364,6 +405,11 @@ public class CompilerChef {
                 bindables.addVariable(variableName, layoutBinder.getClassName());
             }
         }
+        for (ResourceBundle.LayoutFileBundle bundle : mDataBinder.getCachedLayoutBundles()) {
+            for (ResourceBundle.VariableDeclaration variable : bundle.getVariables()) {
+                bindables.addVariable(variable.name, bundle.getBindingClassName());
+            }
+        }
     }
 
     public void sealModels() {
@@ -386,6 +432,16 @@ public class CompilerChef {
         mDataBinder.writeComponent();
     }
 
+    /**
+     * Persists the binders generated in this compilation. Called once processing finished without
+     * errors.
+     */
+    public void commitBinderCache() {
+        if (mDataBinder != null) {
+            mDataBinder.commitBinderCache();
+        }
+    }
+
     public Set<String> getClassesToBeStripped() {
         ensureDataBinder();
         return mDataBinder.getClassesToBeStripped();
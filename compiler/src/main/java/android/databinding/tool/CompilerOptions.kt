@@ -0,0 +1,160 @@
+/*
+ * Copyright (C) 2021 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package android.databinding.tool
+
+import java.io.File
+
+/**
+ * Opt-in code generation options that are read directly from the annotation processor options.
+ *
+ * Unlike [CompilerArguments], these are not passed by the Android Gradle Plugin and have to be
+ * provided manually, e.g. via `javaCompileOptions.annotationProcessorOptions.arguments`.
+ */
+data class CompilerOptions(
+        /**
+         * Directory used to cache generated binder sources and the parsed SDK api versions across
+         * builds, null to disable the cache. See [android.databinding.tool.store.BinderSourceCache].
+         */
+        val binderCacheDir: File? = null,
+        /**
+         * Maximum number of class lookups kept by the
+         * [android.databinding.tool.reflection.ClassFinderCache], 0 to keep all of them. Useful to
+         * bound memory when the compiler runs in a long-lived daemon.
+         */
+        val classCacheSize: Int = 0,
+        /**
+         * Generates bindings whose dirty flags are volatile and updated with compare and swap
+         * instead of synchronizing on the binding. Avoids monitor contention when properties are
+         * changed from background threads. Flags set while `executeBindings` runs may be split
+         * across two passes when a layout has more than one flag word, which is fine since every
+         * change requests another rebind.
+         */
+        val lockFreeDirtyFlags: Boolean = false,
+        /**
+         * When set, `executeBindings` skips a setter if the values it would apply are equal to
+         * the ones it last applied, which avoids relayouts when the bound values did not change.
+         * Primitives are always compared with `==`, references as configured. Setters still run
+         * after `invalidateAll`, and always run for two-way attributes and their events. null
+         * to always call the setters.
+         *
+         * The check only sees the values the binding applied, not the state of the view. If
+         * app code or the user changes a view attribute that is only bound one way, the binding
+         * does not set it back until the bound value changes.
+         */
+        val skipUnchangedSetters: ValueEquality? = null,
+        /**
+         * Estimated bytecode size in bytes above which the setters of `executeBindings` are moved
+         * into helper methods, 0 to never split it. Large methods are not compiled by the JIT,
+         * e.g. HotSpot skips methods over 8000 bytes. Layouts whose reads alone do not fit fail
+         * to compile.
+         */
+        val executeBindingsBudget: Int = 0,
+        /**
+         * Assigns the flags of an observable and of the fields read from it next to each other so
+         * that a change updates fewer words of the dirty flags.
+         */
+        val packFlags: Boolean = false,
+        /**
+         * Makes the mapper of a module return proxies for its dependencies that create their
+         * mappers only when one of their layouts is inflated, instead of creating every mapper
+         * when the app starts. See [android.databinding.tool.writer.LazyDependencyMapperWriter].
+         */
+        val lazyDependencyMappers: Boolean = false,
+        /**
+         * Makes bindings remember the child indices of their views when the first instance is
+         * inflated, so that later instances, e.g. in list items, reach their views directly
+         * instead of walking the whole view tree. Layouts with includes or merge are not affected.
+         */
+        val cacheBindingPaths: Boolean = false
+) {
+    /**
+     * How [skipUnchangedSetters] compares references.
+     */
+    enum class ValueEquality {
+        /** Compares references with `==`. */
+        IDENTITY,
+        /** Compares references with `equals`. */
+        EQUALS
+    }
+
+
+    companion object {
+        const val PARAM_BINDER_CACHE_DIR = "android.databinding.binderCacheDir"
+        const val PARAM_CLASS_CACHE_SIZE = "android.databinding.classCacheSize"
+        const val PARAM_LOCK_FREE_DIRTY_FLAGS = "android.databinding.lockFreeDirtyFlags"
+        const val PARAM_SKIP_UNCHANGED_SETTERS = "android.databinding.skipUnchangedSetters"
+        const val PARAM_EXECUTE_BINDINGS_BUDGET = "android.databinding.executeBindingsBudget"
+        const val PARAM_PACK_FLAGS = "android.databinding.packFlags"
+        const val PARAM_LAZY_DEPENDENCY_MAPPERS = "android.databinding.lazyDependencyMappers"
+        const val PARAM_CACHE_BINDING_PATHS = "android.databinding.cacheBindingPaths"
+
+        @JvmField
+        val ALL_PARAMS = setOf(PARAM_BINDER_CACHE_DIR, PARAM_CLASS_CACHE_SIZE,
+                PARAM_LOCK_FREE_DIRTY_FLAGS, PARAM_SKIP_UNCHANGED_SETTERS,
+                PARAM_EXECUTE_BINDINGS_BUDGET, PARAM_PACK_FLAGS, PARAM_LAZY_DEPENDENCY_MAPPERS,
+                PARAM_CACHE_BINDING_PATHS)
+
+        @JvmField
+        val DEFAULT = CompilerOptions()
+
+        @JvmStatic
+        fun readFromOptions(options: Map<String, String>): CompilerOptions {
+            return CompilerOptions(
+                    binderCacheDir = options[PARAM_BINDER_CACHE_DIR]
+                            ?.takeIf { it.isNotBlank() }
+                            ?.let { File(it.trim()) },
+                    classCacheSize = parseSize(PARAM_CLASS_CACHE_SIZE,
+                            options[PARAM_CLASS_CACHE_SIZE]),
+                    lockFreeDirtyFlags = options[PARAM_LOCK_FREE_DIRTY_FLAGS]
+                            ?.trim()?.toBoolean() ?: false,
+                    skipUnchangedSetters = parseValueEquality(
+                            options[PARAM_SKIP_UNCHANGED_SETTERS]),
+                    executeBindingsBudget = parseSize(PARAM_EXECUTE_BINDINGS_BUDGET,
+                            options[PARAM_EXECUTE_BINDINGS_BUDGET]),
+                    packFlags = options[PARAM_PACK_FLAGS]?.trim()?.toBoolean() ?: false,
+                    lazyDependencyMappers = options[PARAM_LAZY_DEPENDENCY_MAPPERS]
+                            ?.trim()?.toBoolean() ?: false,
+                    cacheBindingPaths = options[PARAM_CACHE_BINDING_PATHS]
+                            ?.trim()?.toBoolean() ?: false
+            )
+        }
+
+        /**
+         * Parses `identity` or `equals`, `none` (or nothing) disables skipping setters.
+         */
+        private fun parseValueEquality(value: String?): ValueEquality? {
+            if (value == null || value.isBlank() || value.trim() == "none") {
+                return null
+            }
+            return when (value.trim()) {
+                "identity" -> ValueEquality.IDENTITY
+                "equals" -> ValueEquality.EQUALS
+                else -> throw IllegalArgumentException(
+                        "$PARAM_SKIP_UNCHANGED_SETTERS must be none, identity or equals: $value")
+            }
+        }
+
+        private fun parseSize(name: String, value: String?): Int {
+            if (value == null || value.isBlank()) {
+                return 0
+            }
+            val size = value.trim().toInt()
+            require(size >= 0) { "$name cannot be negative: $value" }
+            return size
+        }
+    }
+}
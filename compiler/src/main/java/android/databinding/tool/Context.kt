@@ -43,17 +43,27 @@ object Context {
     fun init(processingEnvironment: ProcessingEnvironment,
              args: CompilerArguments) {
         L.setClient(logger)
+        compilerOptions = CompilerOptions.readFromOptions(processingEnvironment.options)
+        finalBrIds = hasFinalBrIds(args)
         val hasAndroidXBinding = discoverAndroidX(processingEnvironment)
         libTypes = LibTypes(hasAndroidXBinding)
         generationalClassUtil = GenerationalClassUtil.create(args)
         modelAnalyzer = AnnotationAnalyzer(processingEnvironment, libTypes)
         typeUtil = modelAnalyzer!!.createTypeUtil()
         setterStore = SetterStore.create(modelAnalyzer, generationalClassUtil)
-        sdkUtil = SdkUtil.create(args.sdkDir, args.minApi)
+        sdkUtil = SdkUtil.create(args.sdkDir, args.minApi, compilerOptions.binderCacheDir)
         resources =
                 parseRTxtFiles(args.localR, args.dependenciesRFiles, args.mergedDependenciesRFile)
     }
 
+    /**
+     * BR ids are only generated as compile time constants in the final artifact, libraries get
+     * their ids re-assigned when the app is compiled.
+     */
+    @JvmStatic
+    fun hasFinalBrIds(args: CompilerArguments) =
+            args.isApp || args.isFeature || args.isTestVariant
+
     private fun discoverAndroidX(processingEnvironment: ProcessingEnvironment): Boolean {
         val hasSupportBinding = processingEnvironment
                 .elementUtils
@@ -70,9 +80,14 @@ object Context {
     }
 
     @JvmStatic
-    fun initForTests(modelAnayzer: ModelAnalyzer, sdkUtil: SdkUtil) {
+    @JvmOverloads
+    fun initForTests(modelAnayzer: ModelAnalyzer, sdkUtil: SdkUtil,
+                     setterStore: SetterStore? = null,
+                     compilerOptions: CompilerOptions = CompilerOptions.DEFAULT) {
         this.modelAnalyzer = modelAnayzer
         this.sdkUtil = sdkUtil
+        this.setterStore = setterStore
+        this.compilerOptions = compilerOptions
         typeUtil = modelAnalyzer!!.createTypeUtil()
     }
 
@@ -100,6 +115,15 @@ object Context {
     var libTypes: LibTypes? = null
         private set
 
+    @JvmStatic
+    var compilerOptions: CompilerOptions = CompilerOptions.DEFAULT
+        private set
+
+    // True if the BR ids of this module are constants and can be used as switch labels.
+    @JvmStatic
+    var finalBrIds: Boolean = false
+        private set
+
     // Ordered list of resources defined in each package. Order matters as the closest to the
     // current module should be chosen. Use when non-transitive R classes are enabled, and therefore
     // each resource needs to be referenced through a class in a module it was defined in.
@@ -109,6 +133,8 @@ object Context {
 
     @JvmStatic
     fun fullClear(processingEnvironment: ProcessingEnvironment) {
+        setterStore?.logResolutionStats()
+        (modelAnalyzer as? AnnotationAnalyzer)?.logStats()
         logger.flushMessages(processingEnvironment)
         modelAnalyzer = null
         setterStore = null
@@ -116,6 +142,8 @@ object Context {
         typeUtil = null
         sdkUtil = null
         libTypes = null
+        compilerOptions = CompilerOptions.DEFAULT
+        finalBrIds = false
         resources = EMPTY_RESOURCES
         L.setClient(null)
         cleanLazyProps()
@@ -19,6 +19,7 @@ package android.databinding.tool;
 import android.databinding.tool.processing.ErrorMessages;
 import android.databinding.tool.processing.Scope;
 import android.databinding.tool.processing.ScopedException;
+import android.databinding.tool.store.BinderSourceCache;
 import android.databinding.tool.store.ResourceBundle;
 import android.databinding.tool.util.L;
 import android.databinding.tool.util.Preconditions;
@@ -26,6 +27,9 @@ import android.databinding.tool.util.StringUtils;
 import android.databinding.tool.writer.CallbackWrapperWriter;
 import android.databinding.tool.writer.ComponentWriter;
 import android.databinding.tool.writer.JavaFileWriter;
+import android.databinding.tool.writer.KCode;
+import android.databinding.tool.writer.StreamingJavaFileWriter;
+import com.android.annotations.Nullable;
 
 import java.util.ArrayList;
 import java.util.HashMap;
@@ -46,19 +50,51 @@ public class DataBinder {
     Set<String> mClassesToBeStripped = new HashSet<String>();
     private final boolean mEnableV2;
     private final LibTypes mLibTypes;
+    @Nullable
+    private final BinderSourceCache mBinderSourceCache;
+    // cache keys of the layouts that missed the cache
+    private final Map<LayoutBinder, String> mBinderCacheKeys = new HashMap<>();
+    // layouts that hit the cache, they never get a LayoutBinder
+    private final List<CachedBinder> mCachedBinders = new ArrayList<>();
+    // binders to be added to the cache once the compilation is known to be successful
+    private final Map<String, String> mPendingCacheEntries = new HashMap<>();
 
     public DataBinder(ResourceBundle resourceBundle, boolean enableV2, LibTypes libTypes) {
+        this(resourceBundle, enableV2, libTypes, null);
+    }
+
+    /**
+     * @param binderSourceCache If not null, V2 layouts whose binder is in the cache are not parsed
+     *                          and their cached source is written instead.
+     */
+    public DataBinder(ResourceBundle resourceBundle, boolean enableV2, LibTypes libTypes,
+            @Nullable BinderSourceCache binderSourceCache) {
         L.d("reading resource bundle into data binder.enable V2: %s, layout cnt:%d",
             enableV2, resourceBundle.getLayoutFileBundlesInSource().size());
         mLibTypes = libTypes;
         mEnableV2 = enableV2;
+        mBinderSourceCache = enableV2 ? binderSourceCache : null;
         mComponentClass = mLibTypes.getBindingPackage() + ".DataBindingComponent";
         if (mEnableV2) {
             for(ResourceBundle.LayoutFileBundle bundle :
                     resourceBundle.getLayoutFileBundlesInSource()) {
                 try {
+                    String cacheKey = null;
+                    if (mBinderSourceCache != null) {
+                        cacheKey = mBinderSourceCache.keyFor(bundle);
+                        String cached = cacheKey == null ? null : mBinderSourceCache.get(cacheKey);
+                        if (cached != null) {
+                            L.d("using cached binder for %s", bundle.getBindingClassName());
+                            mCachedBinders.add(new CachedBinder(bundle, cached));
+                            continue;
+                        }
+                    }
                     L.d("adding layout binder %s", bundle.getBindingClassName());
-                    mLayoutBinders.add(new LayoutBinder(bundle, true));
+                    LayoutBinder layoutBinder = new LayoutBinder(bundle, true);
+                    mLayoutBinders.add(layoutBinder);
+                    if (cacheKey != null) {
+                        mBinderCacheKeys.put(layoutBinder, cacheKey);
+                    }
                     L.d("added %s", bundle.getBindingClassName());
                 } catch (ScopedException ex) {
                     L.d("FAILED TO ADD layout binder %s", bundle.getBindingClassName());
@@ -83,6 +119,18 @@ public class DataBinder {
         return mLayoutBinders;
     }
 
+    /**
+     * Returns the layouts whose binders are served from the {@link BinderSourceCache}. These are
+     * not included in {@link #getLayoutBinders()}.
+     */
+    public List<ResourceBundle.LayoutFileBundle> getCachedLayoutBundles() {
+        List<ResourceBundle.LayoutFileBundle> bundles = new ArrayList<>(mCachedBinders.size());
+        for (CachedBinder cachedBinder : mCachedBinders) {
+            bundles.add(cachedBinder.bundle);
+        }
+        return bundles;
+    }
+
     public void sealModels() {
         for (LayoutBinder layoutBinder : mLayoutBinders) {
             layoutBinder.sealModel();
@@ -130,6 +178,7 @@ public class DataBinder {
 
     public void writeBinders(int minSdk) {
         writeCallbackWrappers(minSdk);
+        writeCachedBinders();
         for (LayoutBinder layoutBinder : mLayoutBinders) {
             try {
                 Scope.enter(layoutBinder);
@@ -140,7 +189,17 @@ public class DataBinder {
                     // if v2 is enable, do not record it as we don't want it to be stripped
                     mClassesToBeStripped.add(canonicalName);
                 }
-                mFileWriter.writeToFile(canonicalName, layoutBinder.writeViewBinder(minSdk));
+                if (mFileWriter instanceof StreamingJavaFileWriter
+                        && !needsBinderCacheEntry(layoutBinder)) {
+                    // nothing keeps the source, render it straight into the file
+                    KCode code = layoutBinder.createViewBinderCode(minSdk);
+                    ((StreamingJavaFileWriter) mFileWriter).writeToFile(canonicalName,
+                            code::generate);
+                } else {
+                    String code = layoutBinder.writeViewBinder(minSdk);
+                    mFileWriter.writeToFile(canonicalName, code);
+                    addToBinderCache(layoutBinder, code);
+                }
             } catch (ScopedException ex) {
                 Scope.defer(ex);
             } catch (Throwable t) {
@@ -153,6 +212,54 @@ public class DataBinder {
         }
     }
 
+    private void writeCachedBinders() {
+        for (CachedBinder cachedBinder : mCachedBinders) {
+            ResourceBundle.LayoutFileBundle bundle = cachedBinder.bundle;
+            String canonicalName = bundle.getBindingClassPackage() + "."
+                    + bundle.createImplClassNameWithConfig();
+            L.d("writing cached data binder %s", canonicalName);
+            mFileWriter.writeToFile(canonicalName, cachedBinder.source);
+        }
+    }
+
+    private boolean needsBinderCacheEntry(LayoutBinder layoutBinder) {
+        // callback wrapper names are picked across all layouts so these binders cannot be reused
+        // on their own
+        return mBinderCacheKeys.get(layoutBinder) != null
+                && layoutBinder.getModel().getCallbackWrappers().isEmpty();
+    }
+
+    private void addToBinderCache(LayoutBinder layoutBinder, String code) {
+        if (needsBinderCacheEntry(layoutBinder)) {
+            mPendingCacheEntries.put(mBinderCacheKeys.get(layoutBinder), code);
+        }
+    }
+
+    /**
+     * Stores the binders written in this compilation in the {@link BinderSourceCache}. Must only
+     * be called once the compilation finished without errors, otherwise a later build could reuse
+     * a binder without reporting its errors.
+     */
+    public void commitBinderCache() {
+        if (mBinderSourceCache == null) {
+            return;
+        }
+        for (Map.Entry<String, String> entry : mPendingCacheEntries.entrySet()) {
+            mBinderSourceCache.put(entry.getKey(), entry.getValue());
+        }
+        mPendingCacheEntries.clear();
+    }
+
+    private static class CachedBinder {
+        final ResourceBundle.LayoutFileBundle bundle;
+        final String source;
+
+        CachedBinder(ResourceBundle.LayoutFileBundle bundle, String source) {
+            this.bundle = bundle;
+            this.source = source;
+        }
+    }
+
     private void writeCallbackWrappers(int minSdk) {
         Map<String, CallbackWrapper> uniqueWrappers = new HashMap<String, CallbackWrapper>();
         Set<String> classNames = new HashSet<String>();
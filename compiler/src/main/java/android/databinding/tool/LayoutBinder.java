@@ -28,6 +28,7 @@ import android.databinding.tool.store.ResourceBundle;
 import android.databinding.tool.store.ResourceBundle.BindingTargetBundle;
 import android.databinding.tool.util.L;
 import android.databinding.tool.util.Preconditions;
+import android.databinding.tool.writer.KCode;
 import android.databinding.tool.writer.LayoutBinderWriter;
 import android.databinding.tool.writer.LayoutBinderWriterKt;
 
@@ -257,6 +258,17 @@ public class LayoutBinder implements FileScopeProvider {
         return mWriter.write(minSdk);
     }
 
+    /**
+     * Same as {@link #writeViewBinder(int)} but returns the code before it is rendered into a
+     * String so it can be written straight into the generated file.
+     */
+    public KCode createViewBinderCode(int minSdk) {
+        ensureWriter();
+        Preconditions.checkNotNull(getPackage(), "package cannot be null");
+        Preconditions.checkNotNull(getClassName(), "base class name cannot be null");
+        return mWriter.createCode(minSdk);
+    }
+
     public String getPackage() {
         return mBundle.getBindingClassPackage();
     }
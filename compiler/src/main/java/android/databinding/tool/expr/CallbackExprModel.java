@@ -97,6 +97,7 @@ public class CallbackExprModel extends ExprModel {
              // this is not a method variable reference. register it in the main model
             final IdentifierExpr identifier = mOriginal.identifier(name);
             mExprMap.put(identifier.getUniqueKey(), identifier);
+            onModified();
             identifier.markAsUsedInCallback();
             return identifier;
         }
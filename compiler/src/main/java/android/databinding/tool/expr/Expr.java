@@ -98,6 +98,9 @@ abstract public class Expr implements VersionProvider, LocationScopeProvider {
 
     BitSet mReadSoFar = new BitSet();// i've read this variable for these flags
 
+    // the model's modification count when updateExpr last ran on this expression
+    private int mUpdatedAtModification = -1;
+
     /**
      * calculated on initialization, assuming all conditionals are true
      */
@@ -145,6 +148,15 @@ abstract public class Expr implements VersionProvider, LocationScopeProvider {
         mId = id;
     }
 
+    /**
+     * Moves the expression to a different flag while the model is sealed, before any flags are
+     * computed from the ids.
+     */
+    void reassignId(int id) {
+        Preconditions.check(mId != NO_ID, "%s does not have an id to reassign", this);
+        mId = id;
+    }
+
     public void addLocation(Location location) {
         mLocations.add(location);
     }
@@ -247,6 +259,14 @@ abstract public class Expr implements VersionProvider, LocationScopeProvider {
 
     protected void resetResolvedType() {
         mResolvedType = null;
+        if (mModel != null) {
+            // expressions depending on this one may resolve differently now
+            mModel.onModified();
+        }
+    }
+
+    boolean hasResolvedType() {
+        return mResolvedType != null;
     }
 
     public BitSet getShouldReadFlags() {
@@ -268,9 +288,30 @@ abstract public class Expr implements VersionProvider, LocationScopeProvider {
         mModel = model;
     }
 
+    /**
+     * Returns true if every flag in {@code flags} is also set in {@code covered}. Unlike cloning
+     * and calling {@link BitSet#andNot(BitSet)}, this does not allocate.
+     */
+    static boolean containsAll(BitSet covered, BitSet flags) {
+        for (int i = flags.nextSetBit(0); i != -1; i = flags.nextSetBit(i + 1)) {
+            if (!covered.get(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Creates an empty set large enough to hold every flag of the model so that it never needs to
+     * grow while flags are added.
+     */
+    private BitSet newFlagSet() {
+        return new BitSet(mModel.getTotalFlagCount());
+    }
+
     private BitSet resolveShouldReadWithConditionals() {
         // ensure we have invalid flags
-        BitSet bitSet = new BitSet();
+        BitSet bitSet = newFlagSet();
         // if i'm invalid, that DOES NOT mean i should be read :/.
         if (isBindingExpression()) {
             bitSet.or(getInvalidFlags());
@@ -289,10 +330,10 @@ abstract public class Expr implements VersionProvider, LocationScopeProvider {
 
     private BitSet resolveShouldReadFlags() {
         // ensure we have invalid flags
-        BitSet bitSet = new BitSet();
         if (isRead()) {
-            return bitSet;
+            return new BitSet();
         }
+        BitSet bitSet = newFlagSet();
         if (isBindingExpression()) {
             bitSet.or(getInvalidFlags());
         }
@@ -599,11 +640,7 @@ abstract public class Expr implements VersionProvider, LocationScopeProvider {
         if (mRead) {
             return false;
         }
-        // TODO avoid clone, we can calculate this iteratively
-        BitSet clone = (BitSet) mShouldReadWithConditionals.clone();
-
-        clone.andNot(mReadSoFar);
-        mRead = clone.isEmpty();
+        mRead = containsAll(mReadSoFar, mShouldReadWithConditionals);
 
         if (!mRead && !mReadSoFar.isEmpty()) {
             // check if remaining dependencies can be satisfied w/ existing values
@@ -613,7 +650,11 @@ abstract public class Expr implements VersionProvider, LocationScopeProvider {
             // to add them to the list since we'll already be calculated due to our non-conditional
             // flags
             boolean allCovered = true;
-            for (int i = clone.nextSetBit(0); i != -1; i = clone.nextSetBit(i + 1)) {
+            final BitSet shouldRead = mShouldReadWithConditionals;
+            for (int i = shouldRead.nextSetBit(0); i != -1; i = shouldRead.nextSetBit(i + 1)) {
+                if (mReadSoFar.get(i)) {
+                    continue;
+                }
                 final Expr expr = mModel.findFlagExpression(i);
                 if (expr == null) {
                     continue;
@@ -622,15 +663,11 @@ abstract public class Expr implements VersionProvider, LocationScopeProvider {
                     allCovered = false;
                     break;
                 }
-                final BitSet readForConditional = (BitSet) expr
-                        .getShouldReadFlagsWithConditionals().clone();
-
                 // FIXME: this does not do full traversal so misses some cases
-                // to calculate that conditional, i should've read /readForConditional/ flags
+                // to calculate that conditional, i should've read its should read flags
                 // if my read-so-far bits cover that; that means i would've already
                 // read myself
-                readForConditional.andNot(mReadSoFar);
-                if (!readForConditional.isEmpty()) {
+                if (!containsAll(mReadSoFar, expr.getShouldReadFlagsWithConditionals())) {
                     allCovered = false;
                     break;
                 }
@@ -648,7 +685,7 @@ abstract public class Expr implements VersionProvider, LocationScopeProvider {
     private BitSet findConditionalFlags() {
         Preconditions.check(isConditional(), "should not call this on a non-conditional expr");
         if (mConditionalFlags == null) {
-            mConditionalFlags = new BitSet();
+            mConditionalFlags = newFlagSet();
             resolveConditionalFlags(mConditionalFlags);
         }
         return mConditionalFlags;
@@ -768,8 +805,23 @@ abstract public class Expr implements VersionProvider, LocationScopeProvider {
             }
         }
         for (Expr child : mChildren) {
-            child.updateExpr(modelAnalyzer);
+            child.updateExprIfModelChanged(modelAnalyzer);
+        }
+    }
+
+    /**
+     * Calls {@link #updateExpr(ModelAnalyzer)} unless it already ran on this expression since the
+     * last modification of the model, in which case it would not change anything.
+     * <p>
+     * Expressions shared by multiple binding expressions are only visited once this way.
+     */
+    final void updateExprIfModelChanged(ModelAnalyzer modelAnalyzer) {
+        final int modification = mModel.getModificationCount();
+        if (mUpdatedAtModification == modification && !mModel.isFullScanForced()) {
+            return;
         }
+        mUpdatedAtModification = modification;
+        updateExpr(modelAnalyzer);
     }
 
     protected static String join(List<?> vals) {
@@ -969,9 +1021,7 @@ abstract public class Expr implements VersionProvider, LocationScopeProvider {
                 return readSoFar.get(mConditionFlag)
                         || mParents.get(0).areAllPathsSatisfied(readSoFar);
             } else {
-                final BitSet myBitsClone = (BitSet) mBitSet.clone();
-                myBitsClone.andNot(readSoFar);
-                if (!myBitsClone.isEmpty()) {
+                if (!containsAll(readSoFar, mBitSet)) {
                     // read so far does not cover all of my invalidation. The only way I could be
                     // covered is that I only have 1 conditional dependent which is covered by this.
                     if (mParents.size() == 1 && mParents.get(0).mConditionFlag != -1) {
@@ -18,6 +18,7 @@ package android.databinding.tool.expr;
 
 import android.databinding.tool.BindingTarget;
 import android.databinding.tool.CallbackWrapper;
+import android.databinding.tool.Context;
 import android.databinding.tool.InverseBinding;
 import android.databinding.tool.processing.ErrorMessages;
 import android.databinding.tool.reflection.ImportBag;
@@ -31,16 +32,20 @@ import android.databinding.tool.util.Preconditions;
 import android.databinding.tool.writer.ExprModelExt;
 import android.databinding.tool.writer.FlagSet;
 
+import com.android.annotations.VisibleForTesting;
 import org.antlr.v4.runtime.ParserRuleContext;
 import org.jetbrains.annotations.Nullable;
 
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.BitSet;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Collectors;
 
@@ -77,12 +82,32 @@ public class ExprModel {
      */
     private String[] mFlagMapping;
 
+    /**
+     * The expression each flag belongs to, null for the invalidate any flag. Conditional
+     * expressions own both of their requirement flags.
+     */
+    private Expr[] mFlagExpressions;
+
     private int mFlagBucketCount;// how many buckets we use to identify flags
 
     private List<Expr> mObservables;
 
     private boolean mSealed = false;
 
+    // incremented whenever expressions are registered, removed or have their types reset
+    private int mModificationCount = 0;
+
+    // true after pruneDone checked every expression once
+    private boolean mCheckedAllForDone = false;
+
+    // visits every expression in each pass, the way sealing worked before it only revisited
+    // changed expressions
+    private boolean mFullScans = false;
+
+    // bucket updates needed to set the flags of every observable, before and after packing
+    private int mBucketTouchesBeforePacking = -1;
+    private int mBucketTouchesAfterPacking = -1;
+
     private MutableImportBag mImports = new MutableImportBag();
 
     private ParserRuleContext mCurrentParserContext;
@@ -134,13 +159,17 @@ public class ExprModel {
                             + "calling expression model");
             // tell the expr that it is being swapped so that if it was added to some other expr
             // as a parent, those can swap their references
-            expr.onSwappedWith(existing);
+            if (!expr.getChildren().isEmpty()) {
+                expr.onSwappedWith(existing);
+                onModified();
+            }
             if (location != null) {
                 existing.addLocation(location);
             }
             return existing;
         }
         mExprMap.put(expr.getUniqueKey(), expr);
+        onModified();
         expr.setModel(this);
         if (location != null) {
             expr.addLocation(location);
@@ -404,6 +433,38 @@ public class ExprModel {
         Preconditions.check(!mSealed, "Can't modify the expression list after sealing the model.");
         mBindingExpressions.remove(expr);
         mExprMap.remove(expr.getUniqueKey());
+        onModified();
+    }
+
+    int getModificationCount() {
+        return mModificationCount;
+    }
+
+    /**
+     * Makes sealing and {@link #markBitsRead()} visit every expression in each pass instead of
+     * only the ones that changed, so tests can check that both assign the same flags.
+     */
+    @VisibleForTesting
+    void forceFullScans() {
+        mFullScans = true;
+    }
+
+    boolean isFullScanForced() {
+        return mFullScans;
+    }
+
+    @VisibleForTesting
+    int getBucketTouchesBeforePacking() {
+        return mBucketTouchesBeforePacking;
+    }
+
+    @VisibleForTesting
+    int getBucketTouchesAfterPacking() {
+        return mBucketTouchesAfterPacking;
+    }
+
+    void onModified() {
+        mModificationCount++;
     }
 
     public List<Expr> getObservables() {
@@ -424,10 +485,12 @@ public class ExprModel {
         int counter = 0;
         final Iterable<Expr> observables = filterObservables();
         List<String> flagMapping = new ArrayList<String>();
+        List<Expr> flagExpressions = new ArrayList<Expr>();
         mObservables = new ArrayList<Expr>();
         for (Expr expr : observables) {
             // observables gets initial ids
             flagMapping.add(expr.getUniqueKey());
+            flagExpressions.add(expr);
             expr.setId(counter++);
             mObservables.add(expr);
             notifiableExpressions.add(expr);
@@ -438,6 +501,7 @@ public class ExprModel {
         final Iterable<Expr> nonObservableIds = filterNonObservableIds(modelAnalyzer);
         for (Expr expr : nonObservableIds) {
             flagMapping.add(expr.getUniqueKey());
+            flagExpressions.add(expr);
             expr.setId(counter++);
             notifiableExpressions.add(expr);
             L.d("non-observable %s", expr.toString());
@@ -457,6 +521,7 @@ public class ExprModel {
                     if (fae.getGetter() != null && fae.isDynamic()
                             && fae.getGetter().canBeInvalidated()) {
                         flagMapping.add(parent.getUniqueKey());
+                        flagExpressions.add(parent);
                         parent.setId(counter++);
                         notifiableExpressions.add(parent);
                         L.d("notifiable field %s : %s for %s : %s", parent.toString(),
@@ -474,11 +539,16 @@ public class ExprModel {
                 FieldAccessExpr fieldAccessExpr = (FieldAccessExpr) expr;
                 if (fieldAccessExpr.getTarget() instanceof ViewFieldExpr) {
                     flagMapping.add(fieldAccessExpr.getUniqueKey());
+                    flagExpressions.add(fieldAccessExpr);
                     fieldAccessExpr.setId(counter++);
                 }
             }
         }
 
+        if (Context.getCompilerOptions().getPackFlags()) {
+            packInvalidationFlags(flagMapping, flagExpressions);
+        }
+
         // non-dynamic binding expressions receive some ids so that they can be invalidated
         L.d("list of binding expressions");
         for (int i = 0; i < mBindingExpressions.size(); i++) {
@@ -497,11 +567,8 @@ public class ExprModel {
         }
         mInvalidateAnyFlagIndex = counter ++;
         flagMapping.add("INVALIDATE ANY");
+        flagExpressions.add(null);
         mInvalidateableFieldLimit = counter;
-        BitSet invalidateableFlags = new BitSet();
-        for (int i = 0; i < mInvalidateableFieldLimit; i++) {
-            invalidateableFlags.set(i, true);
-        }
 
         // make sure all dependencies are resolved to avoid future race conditions
         for (Expr expr : mExprMap.values()) {
@@ -510,13 +577,11 @@ public class ExprModel {
                 expr.setRequirementId(counter);
                 flagMapping.add(expr.getUniqueKey() + FALSE_KEY_SUFFIX);
                 flagMapping.add(expr.getUniqueKey() + TRUE_KEY_SUFFIX);
+                flagExpressions.add(expr);
+                flagExpressions.add(expr);
                 counter += 2;
             }
         }
-        BitSet conditionalFlags = new BitSet();
-        for (int i = mInvalidateableFieldLimit; i < counter; i++) {
-            conditionalFlags.set(i, true);
-        }
         mRequirementIdCount = (counter - mInvalidateableFieldLimit) / 2;
 
         // everybody gets an id
@@ -529,6 +594,7 @@ public class ExprModel {
 
         mFlagMapping = new String[flagMapping.size()];
         flagMapping.toArray(mFlagMapping);
+        mFlagExpressions = flagExpressions.toArray(new Expr[0]);
 
         mFlagBucketCount = 1 + (getTotalFlagCount() / FlagSet.sBucketSize);
         mInvalidateAnyFlags = new BitSet();
@@ -546,11 +612,77 @@ public class ExprModel {
         mSealed = true;
     }
 
+    /**
+     * Reassigns the invalidation flags so that the flags set together when an observable changes,
+     * i.e. the observable and the fields read from it, are next to each other and ideally in the
+     * same bucket of the dirty flags.
+     * <p>
+     * Observables keep their ids since the generated binder uses them as local field ids to
+     * register its listeners, so only the flags after them are reordered, starting right after
+     * the last observable.
+     */
+    private void packInvalidationFlags(List<String> flagMapping, List<Expr> flagExpressions) {
+        final int observableCount = mObservables.size();
+        Set<Expr> observables = new HashSet<Expr>(mObservables);
+        Set<Expr> clustered = new HashSet<Expr>();
+        // the flags set when each observable changes, used to measure the packing
+        List<List<Expr>> clusters = new ArrayList<List<Expr>>();
+        // the part of each cluster that can be moved
+        List<List<Expr>> movable = new ArrayList<List<Expr>>();
+        for (Expr observable : mObservables) {
+            List<Expr> members = new ArrayList<Expr>();
+            for (Expr parent : observable.getParents()) {
+                if (parent.hasId() && !observables.contains(parent) && clustered.add(parent)) {
+                    members.add(parent);
+                }
+            }
+            if (observable instanceof FieldAccessExpr) {
+                for (Expr dependent : ((FieldAccessExpr) observable).getBindableDependents()) {
+                    if (dependent.hasId() && !observables.contains(dependent)
+                            && clustered.add(dependent)) {
+                        members.add(dependent);
+                    }
+                }
+            }
+            if (!members.isEmpty()) {
+                List<Expr> cluster = new ArrayList<Expr>(members);
+                cluster.add(observable);
+                clusters.add(cluster);
+                movable.add(members);
+            }
+        }
+        List<Expr> singles = new ArrayList<Expr>();
+        for (Expr expr : flagExpressions.subList(observableCount, flagExpressions.size())) {
+            if (!clustered.contains(expr)) {
+                singles.add(expr);
+            }
+        }
+        mBucketTouchesBeforePacking = FlagPacker.countBucketTouches(clusters, Expr::getId,
+                FlagSet.sBucketSize);
+        List<Expr> packed = FlagPacker.pack(movable, singles, FlagSet.sBucketSize,
+                observableCount);
+        Preconditions.check(packed.size() == flagExpressions.size() - observableCount,
+                "Packing changed the number of flags");
+        flagMapping.subList(observableCount, flagMapping.size()).clear();
+        flagExpressions.subList(observableCount, flagExpressions.size()).clear();
+        for (int i = 0; i < packed.size(); i++) {
+            Expr expr = packed.get(i);
+            expr.reassignId(observableCount + i);
+            flagMapping.add(expr.getUniqueKey());
+            flagExpressions.add(expr);
+        }
+        mBucketTouchesAfterPacking = FlagPacker.countBucketTouches(clusters, Expr::getId,
+                FlagSet.sBucketSize);
+        L.d("packed %d flags in %d clusters, bucket updates: %d -> %d", packed.size(),
+                clusters.size(), mBucketTouchesBeforePacking, mBucketTouchesAfterPacking);
+    }
+
     /**
      * Run updateExpr on each binding expression until no new expressions are added.
      * <p>
      * Some expressions (e.g. field access) may replace themselves and add/remove new dependencies
-     * so we need to make sure each expression's update is called at least once.
+     * so we need to make sure each expression's update is called at least once. Expressions that
+     * were already updated since the last modification of the model are skipped.
      */
     private void updateExpressions(ModelAnalyzer modelAnalyzer) {
         int startSize = -1;
@@ -558,7 +690,11 @@ public class ExprModel {
             startSize = mExprMap.size();
             ArrayList<Expr> exprs = new ArrayList<Expr>(mBindingExpressions);
             for (Expr expr : exprs) {
-                expr.updateExpr(modelAnalyzer);
+                if (mFullScans) {
+                    expr.updateExpr(modelAnalyzer);
+                } else {
+                    expr.updateExprIfModelChanged(modelAnalyzer);
+                }
             }
         }
         injectSafeUnboxing(modelAnalyzer);
@@ -616,14 +752,23 @@ public class ExprModel {
 
     /**
      * Calls getResolvedType() on all expressions until no more changes are made.
+     * <p>
+     * Resolved types are cached so after the first pass, only the expressions that were added or
+     * had their types reset are visited again.
      */
     private void resolveTypes() {
         int numExpressions;
         do {
             numExpressions = mExprMap.size();
-            mExprMap.values().stream()
-                    .collect(Collectors.toList())
-                    .forEach(expr -> expr.getResolvedType());
+            List<Expr> unresolved = new ArrayList<Expr>();
+            for (Expr expr : mExprMap.values()) {
+                if (mFullScans || !expr.hasResolvedType()) {
+                    unresolved.add(expr);
+                }
+            }
+            for (Expr expr : unresolved) {
+                expr.getResolvedType();
+            }
         } while (mExprMap.size() != numExpressions);
     }
 
@@ -651,12 +796,26 @@ public class ExprModel {
         return pruneDone(markedSomeFlagsRead);
     }
 
+    /**
+     * Marks the expressions that are done as read.
+     * <p>
+     * Whether an expression is done only depends on its own read flags, so after every expression
+     * is checked once, only the ones that just had some flags marked as read need to be checked
+     * again. These are in the same order as the expression map.
+     */
     private boolean pruneDone(List<Expr> markedSomeFlagsAsRead) {
-        boolean marked = true;
+        final Collection<Expr> candidates;
+        if (mCheckedAllForDone && !mFullScans) {
+            candidates = new ArrayList<Expr>(markedSomeFlagsAsRead);
+        } else {
+            candidates = mExprMap.values();
+            mCheckedAllForDone = true;
+        }
         List<Expr> markedAsReadList = new ArrayList<Expr>();
+        boolean marked = true;
         while (marked) {
             marked = false;
-            for (Expr expr : mExprMap.values()) {
+            for (Expr expr : candidates) {
                 if (expr.isRead()) {
                     continue;
                 }
@@ -667,6 +826,8 @@ public class ExprModel {
                     markedSomeFlagsAsRead.remove(expr);
                 }
             }
+            // full scans repeat the pass until nothing is marked, like the fixed point before
+            marked &= mFullScans;
         }
         boolean elevated = false;
         for (Expr markedAsRead : markedAsReadList) {
@@ -730,25 +891,13 @@ public class ExprModel {
         if (mInvalidateAnyFlags.get(flag)) {
             return null;
         }
-        final String key = mFlagMapping[flag];
-        if (mExprMap.containsKey(key)) {
-            return mExprMap.get(key);
-        }
-        int falseIndex = key.indexOf(FALSE_KEY_SUFFIX);
-        if (falseIndex > -1) {
-            final String trimmed = key.substring(0, falseIndex);
-            return mExprMap.get(trimmed);
-        }
-        int trueIndex = key.indexOf(TRUE_KEY_SUFFIX);
-        if (trueIndex > -1) {
-            final String trimmed = key.substring(0, trueIndex);
-            return mExprMap.get(trimmed);
+        if (flag >= 0 && flag < mFlagExpressions.length && mFlagExpressions[flag] != null) {
+            return mFlagExpressions[flag];
         }
         // log everything we call
         StringBuilder error = new StringBuilder();
         error.append("cannot find flag:").append(flag).append("\n");
         error.append("invalidate any flag:").append(mInvalidateAnyFlags).append("\n");
-        error.append("key:").append(key).append("\n");
         error.append("flag mapping:").append(Arrays.toString(mFlagMapping));
         L.e(error.toString());
         return null;
@@ -0,0 +1,78 @@
+/*
+ * Copyright (C) 2021 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package android.databinding.tool.expr;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.function.ToIntFunction;
+
+/**
+ * Orders flags so that flags which are set together end up in the same bucket of the dirty flags.
+ * <p>
+ * Clusters are kept contiguous. When a cluster would straddle two buckets, single flags are moved
+ * in front of it to fill the current bucket, so the packing never needs more buckets than the
+ * flags take.
+ */
+final class FlagPacker {
+    private FlagPacker() {
+    }
+
+    static <T> List<T> pack(List<List<T>> clusters, List<T> singles, int bucketSize) {
+        return pack(clusters, singles, bucketSize, 0);
+    }
+
+    /**
+     * @param start The flag of the first item of the result, used to align clusters to buckets
+     *              when the result is placed after flags that are not packed.
+     */
+    static <T> List<T> pack(List<List<T>> clusters, List<T> singles, int bucketSize, int start) {
+        List<T> result = new ArrayList<T>();
+        ArrayDeque<T> fillers = new ArrayDeque<T>(singles);
+        for (List<T> cluster : clusters) {
+            int offset = (start + result.size()) % bucketSize;
+            int left = bucketSize - offset;
+            if (offset != 0 && cluster.size() > left && cluster.size() <= bucketSize
+                    && fillers.size() >= left) {
+                for (int i = 0; i < left; i++) {
+                    result.add(fillers.poll());
+                }
+            }
+            result.addAll(cluster);
+        }
+        result.addAll(fillers);
+        return result;
+    }
+
+    /**
+     * Returns how many buckets have to be updated in total to set the flags of every cluster.
+     */
+    static <T> int countBucketTouches(List<List<T>> clusters, ToIntFunction<T> flag,
+            int bucketSize) {
+        int touches = 0;
+        BitSet buckets = new BitSet();
+        for (List<T> cluster : clusters) {
+            buckets.clear();
+            for (T item : cluster) {
+                buckets.set(flag.applyAsInt(item) / bucketSize);
+            }
+            touches += buckets.cardinality();
+        }
+        return touches;
+    }
+}
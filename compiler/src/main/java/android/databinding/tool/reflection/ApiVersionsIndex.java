@@ -0,0 +1,361 @@
+/*
+ * Copyright (C) 2021 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package android.databinding.tool.reflection;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+/**
+ * Compact lookup of the API level each method in {@code api-versions.xml} was added in.
+ * <p>
+ * Class names are interned into ids and methods are kept in an open addressing table keyed by
+ * their class id and descriptor, so a lookup does not need to build a key string.
+ * <p>
+ * The index can be written to and read back from a binary file. The hash tables are stored as is
+ * so reading an index back does not need to rebuild them.
+ */
+final class ApiVersionsIndex {
+    private static final int MAGIC = 0x44424156; // DBAV
+    private static final int FORMAT_VERSION = 1;
+
+    private static final String CLASS_TAG = "class";
+    private static final String METHOD_TAG = "method";
+
+    private final String[] mClassNames;
+    // class id + 1 for every slot, 0 for empty slots
+    private final int[] mClassSlots;
+    private final String[] mMethodNames;
+    private final int[] mMethodClasses;
+    private final int[] mMethodSince;
+    // method id + 1 for every slot, 0 for empty slots
+    private final int[] mMethodSlots;
+
+    private ApiVersionsIndex(String[] classNames, int[] classSlots, String[] methodNames,
+            int[] methodClasses, int[] methodSince, int[] methodSlots) {
+        mClassNames = classNames;
+        mClassSlots = classSlots;
+        mMethodNames = methodNames;
+        mMethodClasses = methodClasses;
+        mMethodSince = methodSince;
+        mMethodSlots = methodSlots;
+    }
+
+    int getClassCount() {
+        return mClassNames.length;
+    }
+
+    int getMethodCount() {
+        return mMethodNames.length;
+    }
+
+    /**
+     * Returns the API level the given method was added in, or 0 if it is not in the index.
+     */
+    int getSince(String classDesc, String methodDesc) {
+        int classId = findClassId(mClassNames, mClassSlots, classDesc);
+        if (classId < 0) {
+            return 0;
+        }
+        int methodId = findMethodId(mMethodNames, mMethodClasses, mMethodSlots, classId,
+                methodDesc);
+        return methodId < 0 ? 0 : mMethodSince[methodId];
+    }
+
+    /**
+     * Reads the index from the given {@code api-versions.xml} contents in a single pass.
+     */
+    static ApiVersionsIndex parse(InputStream xml) throws XMLStreamException {
+        XMLInputFactory factory = XMLInputFactory.newInstance();
+        factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+        XMLStreamReader reader = factory.createXMLStreamReader(xml);
+        Builder builder = new Builder();
+        try {
+            int depth = 0;
+            int classId = -1;
+            int classSince = 1;
+            while (reader.hasNext()) {
+                int event = reader.next();
+                if (event == XMLStreamConstants.START_ELEMENT) {
+                    depth++;
+                    String tag = reader.getLocalName();
+                    if (depth == 2 && CLASS_TAG.equals(tag)) {
+                        classId = builder.addClass(reader.getAttributeValue(null, "name"));
+                        classSince = parseSince(reader.getAttributeValue(null, "since"));
+                    } else if (depth == 3 && classId >= 0 && METHOD_TAG.equals(tag)) {
+                        int since = Math.max(classSince,
+                                parseSince(reader.getAttributeValue(null, "since")));
+                        builder.addMethod(classId, reader.getAttributeValue(null, "name"), since);
+                    }
+                } else if (event == XMLStreamConstants.END_ELEMENT) {
+                    if (depth == 2) {
+                        classId = -1;
+                    }
+                    depth--;
+                }
+            }
+        } finally {
+            reader.close();
+        }
+        return builder.build();
+    }
+
+    /**
+     * Reads back an index written by {@link #write(File)}.
+     */
+    static ApiVersionsIndex read(File file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0,
+                    channel.size());
+            if (buffer.getInt() != MAGIC || buffer.getInt() != FORMAT_VERSION) {
+                throw new IOException("unexpected api versions index format in " + file);
+            }
+            String[] classNames = readStrings(buffer);
+            int[] classSlots = readInts(buffer);
+            String[] methodNames = readStrings(buffer);
+            int[] methodClasses = readInts(buffer);
+            int[] methodSince = readInts(buffer);
+            int[] methodSlots = readInts(buffer);
+            if (methodClasses.length != methodNames.length
+                    || methodSince.length != methodNames.length
+                    || !isValidTable(classSlots, classNames.length)
+                    || !isValidTable(methodSlots, methodNames.length)) {
+                throw new IOException("corrupt api versions index " + file);
+            }
+            return new ApiVersionsIndex(classNames, classSlots, methodNames, methodClasses,
+                    methodSince, methodSlots);
+        } catch (RuntimeException e) {
+            // buffer underflows and bad sizes of truncated files
+            throw new IOException("corrupt api versions index " + file, e);
+        }
+    }
+
+    void write(File file) throws IOException {
+        try (DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(Files.newOutputStream(file.toPath())))) {
+            out.writeInt(MAGIC);
+            out.writeInt(FORMAT_VERSION);
+            writeStrings(out, mClassNames);
+            writeInts(out, mClassSlots);
+            writeStrings(out, mMethodNames);
+            writeInts(out, mMethodClasses);
+            writeInts(out, mMethodSince);
+            writeInts(out, mMethodSlots);
+        }
+    }
+
+    /**
+     * Checks that a table read from disk has free slots and only points to existing ids, so that
+     * lookups always terminate.
+     */
+    private static boolean isValidTable(int[] slots, int count) {
+        if (Integer.bitCount(slots.length) != 1 || slots.length <= count) {
+            return false;
+        }
+        for (int slot : slots) {
+            if (slot < 0 || slot > count) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int parseSince(String value) {
+        if (value != null && !value.isEmpty()) {
+            try {
+                return Integer.parseInt(value);
+            } catch (NumberFormatException ignored) {
+            }
+        }
+        return 1;
+    }
+
+    private static int findClassId(String[] classNames, int[] slots, String name) {
+        int mask = slots.length - 1;
+        for (int i = mix(name.hashCode()) & mask; ; i = (i + 1) & mask) {
+            int id = slots[i] - 1;
+            if (id < 0 || name.equals(classNames[id])) {
+                return id;
+            }
+        }
+    }
+
+    private static int findMethodId(String[] methodNames, int[] methodClasses, int[] slots,
+            int classId, String name) {
+        int mask = slots.length - 1;
+        for (int i = methodHash(classId, name) & mask; ; i = (i + 1) & mask) {
+            int id = slots[i] - 1;
+            if (id < 0 || (methodClasses[id] == classId && name.equals(methodNames[id]))) {
+                return id;
+            }
+        }
+    }
+
+    private static int methodHash(int classId, String name) {
+        return mix(classId * 31 + name.hashCode());
+    }
+
+    private static int mix(int hash) {
+        return hash ^ (hash >>> 16);
+    }
+
+    /**
+     * Returns a power of two table size that keeps the load factor at most 0.5.
+     */
+    private static int tableSize(int count) {
+        return Integer.highestOneBit(Math.max(count, 1) * 2 - 1) << 1;
+    }
+
+    private static String[] readStrings(ByteBuffer buffer) {
+        String[] result = new String[buffer.getInt()];
+        byte[] bytes = new byte[0];
+        for (int i = 0; i < result.length; i++) {
+            int length = buffer.getInt();
+            if (bytes.length < length) {
+                bytes = new byte[length];
+            }
+            buffer.get(bytes, 0, length);
+            result[i] = new String(bytes, 0, length, StandardCharsets.UTF_8);
+        }
+        return result;
+    }
+
+    private static int[] readInts(ByteBuffer buffer) {
+        int[] result = new int[buffer.getInt()];
+        buffer.asIntBuffer().get(result);
+        buffer.position(buffer.position() + result.length * 4);
+        return result;
+    }
+
+    private static void writeStrings(DataOutputStream out, String[] strings) throws IOException {
+        out.writeInt(strings.length);
+        for (String string : strings) {
+            byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+            out.writeInt(bytes.length);
+            out.write(bytes);
+        }
+    }
+
+    private static void writeInts(DataOutputStream out, int[] ints) throws IOException {
+        out.writeInt(ints.length);
+        for (int value : ints) {
+            out.writeInt(value);
+        }
+    }
+
+    private static class Builder {
+        private final Map<String, Integer> mClassIds = new HashMap<>();
+        private final List<String> mClassNames = new ArrayList<>();
+        private final List<String> mMethodNames = new ArrayList<>();
+        private final List<Integer> mMethodClasses = new ArrayList<>();
+        private final List<Integer> mMethodSince = new ArrayList<>();
+
+        int addClass(String name) {
+            if (name == null) {
+                return -1;
+            }
+            Integer id = mClassIds.get(name);
+            if (id == null) {
+                id = mClassNames.size();
+                mClassIds.put(name, id);
+                mClassNames.add(name);
+            }
+            return id;
+        }
+
+        void addMethod(int classId, String name, int since) {
+            if (name == null) {
+                return;
+            }
+            mMethodNames.add(name);
+            mMethodClasses.add(classId);
+            mMethodSince.add(since);
+        }
+
+        ApiVersionsIndex build() {
+            String[] classNames = mClassNames.toArray(new String[0]);
+            int[] classSlots = new int[tableSize(classNames.length)];
+            int classMask = classSlots.length - 1;
+            for (int id = 0; id < classNames.length; id++) {
+                int i = mix(classNames[id].hashCode()) & classMask;
+                while (classSlots[i] != 0) {
+                    i = (i + 1) & classMask;
+                }
+                classSlots[i] = id + 1;
+            }
+
+            int count = mMethodNames.size();
+            String[] methodNames = new String[count];
+            int[] methodClasses = new int[count];
+            int[] methodSince = new int[count];
+            int[] methodSlots = new int[tableSize(count)];
+            int methodMask = methodSlots.length - 1;
+            int size = 0;
+            for (int m = 0; m < count; m++) {
+                String name = mMethodNames.get(m);
+                int classId = mMethodClasses.get(m);
+                int existing = findMethodId(methodNames, methodClasses, methodSlots, classId,
+                        name);
+                if (existing >= 0) {
+                    // a repeated method overrides the previous entry
+                    methodSince[existing] = mMethodSince.get(m);
+                    continue;
+                }
+                methodNames[size] = name;
+                methodClasses[size] = classId;
+                methodSince[size] = mMethodSince.get(m);
+                int i = methodHash(classId, name) & methodMask;
+                while (methodSlots[i] != 0) {
+                    i = (i + 1) & methodMask;
+                }
+                methodSlots[i] = size + 1;
+                size++;
+            }
+            if (size != count) {
+                String[] trimmedNames = new String[size];
+                System.arraycopy(methodNames, 0, trimmedNames, 0, size);
+                methodNames = trimmedNames;
+                int[] trimmedClasses = new int[size];
+                System.arraycopy(methodClasses, 0, trimmedClasses, 0, size);
+                methodClasses = trimmedClasses;
+                int[] trimmedSince = new int[size];
+                System.arraycopy(methodSince, 0, trimmedSince, 0, size);
+                methodSince = trimmedSince;
+            }
+            return new ApiVersionsIndex(classNames, classSlots, methodNames, methodClasses,
+                    methodSince, methodSlots);
+        }
+    }
+}
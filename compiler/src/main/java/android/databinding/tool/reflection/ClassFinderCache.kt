@@ -17,53 +17,97 @@
 package android.databinding.tool.reflection
 
 import android.databinding.tool.util.L
+import java.util.Optional
 
 /**
  * A cache object that can index classes based on when it is found and its imports.
+ *
+ * Classes that cannot be found are cached as well since the same unresolvable names are probed
+ * over and over (e.g. `java.lang.` prefixed simple names).
+ *
+ * @param maxSize If positive, the cache keeps at most this many lookups and drops the least
+ *                recently used ones first. Otherwise the cache is unbounded.
  */
-class ClassFinderCache(
-        private val doFind : ((className : String, imports : ImportBag?) -> ModelClass?)
+class ClassFinderCache @JvmOverloads constructor(
+        private val doFind : ((className : String, imports : ImportBag?) -> ModelClass?),
+        private val maxSize : Int = UNBOUNDED
 ) {
-    private val cache = mutableMapOf<CacheKey, ModelClass>()
-    private val importCache = mutableMapOf<ImportBag, ImmutableImportBag>()
+    private val cache = createMap<CacheKey, Optional<ModelClass>>()
+    // interns the immutable copies of import bags that are used in cache keys
+    private val importCache = createMap<ImmutableImportBag, ImmutableImportBag>()
     private var hit = 0
     private var miss = 0
     private var missForNull = 0
+    private var hitForNull = 0
+    private var evictions = 0
+
     fun find(className : String, imports: ImportBag?) : ModelClass? {
-        val immutableImports = if(imports == null) {
-            null
-        } else {
-            importCache.getOrPut(imports) {
-                imports.toImmutable()
+        // looking up with a mutable bag is fine since its hash is only used for this call
+        val existing = cache[CacheKey(className = className, imports = imports)]
+        if (existing != null) {
+            hit++
+            if (!existing.isPresent) {
+                hitForNull++
             }
+            return existing.orElse(null)
         }
-        val key = CacheKey(className = className, imports = immutableImports)
-        val existing = cache[key]
-        if (existing == null) {
-            miss ++
-            val found = doFind(className, imports)
-            if (found == null) {
-                missForNull ++
-            } else {
-                cache[key] = found
-                return found
+        miss ++
+        val found = doFind(className, imports)
+        if (found == null) {
+            missForNull ++
+        }
+        val key = CacheKey(className = className, imports = imports?.let { intern(it) })
+        cache[key] = Optional.ofNullable(found)
+        return found
+    }
+
+    /**
+     * Drops the cached lookups for the given class name, e.g. after a class with that name is
+     * injected and should no longer be reported as missing.
+     */
+    fun invalidate(className: String) {
+        cache.keys.removeIf { it.className == className }
+    }
+
+    private fun intern(imports: ImportBag): ImmutableImportBag {
+        val immutable = imports.toImmutable()
+        return importCache.getOrPut(immutable) { immutable }
+    }
+
+    private fun <K, V> createMap(): MutableMap<K, V> {
+        if (maxSize <= 0) {
+            return mutableMapOf()
+        }
+        return object : LinkedHashMap<K, V>(16, 0.75f, true) {
+            override fun removeEldestEntry(eldest: MutableMap.MutableEntry<K, V>?): Boolean {
+                if (size <= maxSize) {
+                    return false
+                }
+                evictions++
+                return true
             }
-            return found
-        } else {
-            hit++
-            return existing
         }
     }
 
     fun logStats() {
         val ratio = (miss * 1f) / (miss + hit)
         val nonNullMiss = miss - missForNull
-        val nonNullRatio = (nonNullMiss * 1f) / (nonNullMiss + hit)
-        L.w("class finder cache: miss: $miss, hit: $hit, ratio : $ratio, ratio w/o nulls: $nonNullRatio")
+        val nonNullHit = hit - hitForNull
+        val nonNullRatio = (nonNullMiss * 1f) / (nonNullMiss + nonNullHit)
+        L.d("class finder cache: miss: $miss, hit: $hit, ratio : $ratio, " +
+                "ratio w/o nulls: $nonNullRatio, null hits: $hitForNull, evictions: $evictions")
     }
 
+    /**
+     * Key of a lookup. [imports] is always an [ImmutableImportBag] for the keys that are stored
+     * in the cache so that their hash cannot change.
+     */
     private data class CacheKey(
             val className: String,
-            val imports: ImmutableImportBag?
+            val imports: ImportBag?
     )
-}
\ No newline at end of file
+
+    companion object {
+        const val UNBOUNDED = 0
+    }
+}
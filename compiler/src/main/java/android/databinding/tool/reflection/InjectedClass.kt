@@ -31,6 +31,7 @@ import java.util.*
 class InjectedClass(private val mClassName: String, private val mSuperClass: String) : ModelClass() {
     private val mMethods = ArrayList<InjectedMethod>()
     private val mFields = ArrayList<InjectedField>()
+    private var mModCount = 0
 
     override val isArray = false
 
@@ -92,6 +93,9 @@ class InjectedClass(private val mClassName: String, private val mSuperClass: Str
             return superclass.allMethods + mMethods
         }
 
+    override val membersVersion: Int
+        get() = mModCount + superclass.membersVersion
+
     override val typeName: TypeName by lazy(LazyThreadSafetyMode.NONE) {
         val instance = ModelAnalyzer.getInstance()
         mClassName.toTypeName(instance.libTypes)
@@ -111,10 +115,12 @@ class InjectedClass(private val mClassName: String, private val mSuperClass: Str
 
     private fun addField(field: InjectedField) {
         mFields.add(field)
+        mModCount++
     }
 
     fun addMethod(method: InjectedMethod) {
         mMethods.add(method)
+        mModCount++
     }
 
     override fun toJavaCode() = mClassName
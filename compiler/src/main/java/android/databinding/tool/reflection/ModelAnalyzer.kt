@@ -139,13 +139,13 @@ abstract class ModelAnalyzer protected constructor(@JvmField val libTypes: LibTy
 
     fun getDefaultValue(className: String) = DEFAULT_VALUES[className] ?: "null"
 
-    val classFinderCache = ClassFinderCache { className, imports ->
+    val classFinderCache = ClassFinderCache({ className, imports ->
         if (mInjectedClasses.containsKey(className)) {
             mInjectedClasses[className]
         } else {
             findClassInternal(className, imports)
         }
-    }
+    }, Context.compilerOptions.classCacheSize)
 
     private val dataBindingKtxClass by lazy {
         findClass(libTypes.dataBindingKtx, null)
@@ -172,6 +172,8 @@ abstract class ModelAnalyzer protected constructor(@JvmField val libTypes: LibTy
 
     fun injectClass(injectedClass: InjectedClass): ModelClass {
         mInjectedClasses[injectedClass.canonicalName] = injectedClass
+        // the name might have been looked up and cached as missing before
+        classFinderCache.invalidate(injectedClass.canonicalName)
         return injectedClass
     }
 
@@ -330,6 +330,29 @@ abstract class ModelClass {
      */
     abstract val allMethods: List<ModelMethod>
 
+    /**
+     * Changes whenever members are added to this class or one of its superclasses after it is
+     * created, which only happens for [InjectedClass].
+     */
+    internal open val membersVersion: Int
+        get() = 0
+
+    private var cachedMemberIndex: MemberIndex? = null
+
+    private fun memberIndex(): MemberIndex {
+        val version = membersVersion
+        cachedMemberIndex?.let {
+            if (it.version == version) {
+                return it
+            }
+        }
+        return MemberIndex(version).also { cachedMemberIndex = it }
+    }
+
+    private fun methodsNamed(name: String): List<ModelMethod> {
+        return memberIndex().methodsByName[name] ?: emptyList()
+    }
+
     // implementation only so that PSI model doesn't break
     open val typeName: TypeName
         get() = toJavaCode().toTypeName(false)
@@ -411,7 +434,7 @@ abstract class ModelClass {
      */
     private fun getMethods(name: String, args: List<ModelClass>, staticOnly: Boolean,
                            allowProtected: Boolean, unwrapObservableFields: Boolean): List<ModelMethod> {
-        return allMethods.filter { method ->
+        return methodsNamed(name).filter { method ->
             (method.isPublic || (allowProtected && method.isProtected))
                     && (!staticOnly || method.isStatic)
                     && name == method.name
@@ -427,7 +450,7 @@ abstract class ModelClass {
      * @return An array containing all public methods with the given name and number of parameters.
      */
     fun getMethods(name: String, numParameters: Int): List<ModelMethod> {
-        return allMethods.filter { method ->
+        return methodsNamed(name).filter { method ->
             method.isPublic &&
                     !method.isStatic &&
                     name == method.name &&
@@ -496,6 +519,17 @@ abstract class ModelClass {
             return Callable(Type.FIELD, name, null,
                     ModelAnalyzer.getInstance().loadPrimitive("int"), 0, 0, null, null)
         }
+        val gettersOrFields = memberIndex().gettersOrFields
+        val key = name to staticOnly
+        gettersOrFields[key]?.let {
+            return it.orElse(null)
+        }
+        return doFindGetterOrField(name, staticOnly).also {
+            gettersOrFields.putIfAbsent(key, Optional.ofNullable(it))
+        }
+    }
+
+    private fun doFindGetterOrField(name: String, staticOnly: Boolean): Callable? {
         val capitalized = StringUtils.capitalize(name)
         val methodNames = arrayOf("get" + capitalized!!, "is$capitalized", name)
         for (methodName in methodNames) {
@@ -565,6 +599,16 @@ abstract class ModelClass {
     }
 
     fun findInstanceGetter(name: String): ModelMethod? {
+        val instanceGetters = memberIndex().instanceGetters
+        instanceGetters[name]?.let {
+            return it.orElse(null)
+        }
+        return doFindInstanceGetter(name).also {
+            instanceGetters.putIfAbsent(name, Optional.ofNullable(it))
+        }
+    }
+
+    private fun doFindInstanceGetter(name: String): ModelMethod? {
         val capitalized = StringUtils.capitalize(name)
         val methodNames = arrayOf("get" + capitalized!!, "is$capitalized", name)
         for (methodName in methodNames) {
@@ -580,10 +624,9 @@ abstract class ModelClass {
     }
 
     private fun getField(name: String, allowPrivate: Boolean, isStatic: Boolean): ModelField? {
-        val fields = allFields
+        val fields = memberIndex().fieldsByName[name] ?: return null
         for (field in fields) {
-            val nameMatch = name == field.name || name == stripFieldName(field.name)
-            if (nameMatch && field.isStatic == isStatic &&
+            if (field.isStatic == isStatic &&
                     (allowPrivate || field.isPublic)) {
                 return field
             }
@@ -619,13 +662,41 @@ abstract class ModelClass {
      * listener methods during Expr.resolveListeners.
      */
     fun findMethods(name: String, staticOnly: Boolean): List<ModelMethod> {
-        return allMethods.filter { method ->
+        return methodsNamed(name).filter { method ->
             method.isPublic &&
                     method.name == name &&
                     (!staticOnly || method.isStatic)
         }
     }
 
+    /**
+     * Lookup tables for the members of this class. Methods are indexed by name and fields by
+     * both their name and their name without the `m` or `_` prefix, in declaration order.
+     */
+    private inner class MemberIndex(val version: Int) {
+        val methodsByName: Map<String, List<ModelMethod>>
+                by lazy(LazyThreadSafetyMode.NONE) {
+            allMethods.groupBy { it.name }
+        }
+
+        val fieldsByName: Map<String, List<ModelField>>
+                by lazy(LazyThreadSafetyMode.NONE) {
+            val index = HashMap<String, MutableList<ModelField>>()
+            allFields.forEach { field ->
+                index.getOrPut(field.name) { ArrayList() }.add(field)
+                val stripped = stripFieldName(field.name)
+                if (stripped != field.name) {
+                    index.getOrPut(stripped) { ArrayList() }.add(field)
+                }
+            }
+            index
+        }
+
+        val gettersOrFields = HashMap<Pair<String, Boolean>, Optional<Callable>>()
+
+        val instanceGetters = HashMap<String, Optional<ModelMethod>>()
+    }
+
     override fun equals(other: Any?): Boolean {
         if (other is ModelClass) {
             val thisTypeName = typeName
@@ -13,28 +13,22 @@
 
 package android.databinding.tool.reflection;
 
-import org.apache.commons.io.FileUtils;
-import org.apache.commons.io.IOUtils;
-import org.w3c.dom.Document;
-import org.w3c.dom.Node;
-import org.w3c.dom.NodeList;
-
 import android.databinding.tool.Context;
 import android.databinding.tool.util.L;
 import android.databinding.tool.util.Preconditions;
 
 import com.android.annotations.VisibleForTesting;
+import com.google.common.hash.Hashing;
+import com.google.common.io.ByteSource;
+import com.google.common.io.Files;
+import com.google.common.io.Resources;
 
 import java.io.File;
+import java.io.IOException;
 import java.io.InputStream;
-import java.util.HashMap;
-import java.util.Map;
+import java.nio.file.StandardCopyOption;
 
-import javax.xml.parsers.DocumentBuilder;
-import javax.xml.parsers.DocumentBuilderFactory;
-import javax.xml.xpath.XPath;
-import javax.xml.xpath.XPathExpressionException;
-import javax.xml.xpath.XPathFactory;
+import javax.xml.stream.XMLStreamException;
 
 /**
  * Class that is used for SDK related stuff.
@@ -53,8 +47,17 @@ public class SdkUtil {
     }
 
     public static SdkUtil create(File sdkPath, int minSdk) {
+        return create(sdkPath, minSdk, null);
+    }
+
+    /**
+     * @param indexCacheDir Directory to keep the parsed api descriptions in across builds, or
+     *                      null to parse them every time.
+     */
+    public static SdkUtil create(File sdkPath, int minSdk, File indexCacheDir) {
         ApiChecker checker = new ApiChecker(new File(sdkPath.getAbsolutePath()
-                                                     + "/platform-tools/api/api-versions.xml"));
+                                                     + "/platform-tools/api/api-versions.xml"),
+                indexCacheDir);
         return new SdkUtil(checker, minSdk);
     }
 
@@ -102,97 +105,113 @@ public class SdkUtil {
 
     public static class ApiChecker {
 
-        private Map<String, Integer> mFullLookup;
+        private static final String INDEX_PREFIX = "api-versions-";
+
+        private static final String INDEX_EXT = ".idx";
 
-        private Document mDoc;
+        private ApiVersionsIndex mIndex;
 
-        private XPath mXPath;
+        private ByteSource mSource;
+
+        private String mFingerprint;
 
         public ApiChecker(File apiFile) {
-            InputStream inputStream = null;
+            this(apiFile, null);
+        }
+
+        /**
+         * @param indexCacheDir If not null, the parsed api descriptions are stored in this
+         *                      directory, keyed by the hash of the api file, and read back from
+         *                      there instead of parsing the api file again.
+         */
+        public ApiChecker(File apiFile, File indexCacheDir) {
             try {
+                ByteSource source;
                 if (apiFile == null || !apiFile.exists()) {
                     // Use getResource().openStream() instead of getResourceAsStream() to avoid
                     // concurrency issue (see http://issuetracker.google.com/137929327 for details)
-                    inputStream = getClass().getClassLoader().getResource("api-versions.xml").openStream();
+                    source = Resources.asByteSource(
+                            getClass().getClassLoader().getResource("api-versions.xml"));
                 } else {
-                    inputStream = FileUtils.openInputStream(apiFile);
+                    source = Files.asByteSource(apiFile);
                 }
-                DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
-                DocumentBuilder builder = factory.newDocumentBuilder();
-                mDoc = builder.parse(inputStream);
-                XPathFactory xPathFactory = XPathFactory.newInstance();
-                mXPath = xPathFactory.newXPath();
-                buildFullLookup();
+                mSource = source;
+                mIndex = loadIndex(source, indexCacheDir);
             } catch (Throwable t) {
                 L.e(t, "cannot load api descriptions from %s", apiFile);
-            } finally {
-                IOUtils.closeQuietly(inputStream);
             }
         }
 
-        private void buildFullLookup() throws XPathExpressionException {
-            NodeList allClasses = mDoc.getChildNodes().item(0).getChildNodes();
-            mFullLookup = new HashMap<String, Integer>(allClasses.getLength() * 4);
-            for (int j = 0; j < allClasses.getLength(); j++) {
-                Node node = allClasses.item(j);
-                if (node.getNodeType() != Node.ELEMENT_NODE || !"class"
-                        .equals(node.getNodeName())) {
-                    continue;
+        private static ApiVersionsIndex loadIndex(ByteSource source, File indexCacheDir)
+                throws IOException, XMLStreamException {
+            if (indexCacheDir == null) {
+                return parse(source);
+            }
+            String hash = source.hash(Hashing.sha256()).toString();
+            File indexFile = new File(indexCacheDir, INDEX_PREFIX + hash + INDEX_EXT);
+            if (indexFile.isFile()) {
+                try {
+                    return ApiVersionsIndex.read(indexFile);
+                } catch (IOException e) {
+                    L.d(e, "cannot read api versions index %s", indexFile);
+                }
+            }
+            ApiVersionsIndex index = parse(source);
+            File tmp = null;
+            try {
+                indexCacheDir.mkdirs();
+                tmp = File.createTempFile(INDEX_PREFIX, ".tmp", indexCacheDir);
+                index.write(tmp);
+                java.nio.file.Files.move(tmp.toPath(), indexFile.toPath(),
+                        StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (IOException e) {
+                L.d(e, "cannot write api versions index %s", indexFile);
+                if (tmp != null) {
+                    tmp.delete();
                 }
-                //L.d("checking node %s", node.getAttributes().getNamedItem("name").getNodeValue());
-                int classSince = getSince(node);
-                String classDesc = node.getAttributes().getNamedItem("name").getNodeValue();
-
-                final NodeList childNodes = node.getChildNodes();
-                for (int i = 0; i < childNodes.getLength(); i++) {
-                    Node child = childNodes.item(i);
-                    if (child.getNodeType() != Node.ELEMENT_NODE || !"method"
-                            .equals(child.getNodeName())) {
-                        continue;
+            }
+            return index;
+        }
+
+        private static ApiVersionsIndex parse(ByteSource source)
+                throws IOException, XMLStreamException {
+            try (InputStream inputStream = source.openBufferedStream()) {
+                return ApiVersionsIndex.parse(inputStream);
+            }
+        }
+
+        /**
+         * Returns the hash of the api descriptions, or an empty string if they cannot be read.
+         */
+        public String getFingerprint() {
+            if (mFingerprint == null) {
+                mFingerprint = "";
+                if (mSource != null) {
+                    try {
+                        mFingerprint = mSource.hash(Hashing.sha256()).toString();
+                    } catch (IOException e) {
+                        L.d(e, "cannot hash api descriptions");
                     }
-                    int methodSince = getSince(child);
-                    int since = Math.max(classSince, methodSince);
-                    String methodDesc = child.getAttributes().getNamedItem("name")
-                            .getNodeValue();
-                    String key = cacheKey(classDesc, methodDesc);
-                    mFullLookup.put(key, since);
                 }
             }
+            return mFingerprint;
         }
 
         /**
          * Returns 0 if we cannot find the API level for the method.
          */
         public int getMinApi(String classDesc, String methodOrFieldDesc) {
-            if (mDoc == null || mXPath == null) {
+            if (mIndex == null) {
                 return 1;
             }
             if (classDesc == null || classDesc.isEmpty()) {
                 return 1;
             }
-            final String key = cacheKey(classDesc, methodOrFieldDesc);
-            Integer since = mFullLookup.get(key);
-            return since == null ? 0 : since;
-        }
-
-        private static String cacheKey(String classDesc, String methodOrFieldDesc) {
-            return classDesc + "~" + methodOrFieldDesc;
-        }
-
-        private static int getSince(Node node) {
-            final Node since = node.getAttributes().getNamedItem("since");
-            if (since != null) {
-                final String nodeValue = since.getNodeValue();
-                if (nodeValue != null && !nodeValue.isEmpty()) {
-                    try {
-                        return Integer.parseInt(nodeValue);
-                    } catch (Throwable t) {
-                    }
-                }
+            if (methodOrFieldDesc == null) {
+                // only methods are indexed
+                return 0;
             }
-
-            return 1;
+            return mIndex.getSince(classDesc, methodOrFieldDesc);
         }
     }
 }
@@ -51,6 +51,8 @@ public class AnnotationAnalyzer extends ModelAnalyzer {
 
     public final ProcessingEnvironment mProcessingEnv;
 
+    private final AssignabilityCache mAssignabilityCache = new AssignabilityCache();
+
     public AnnotationAnalyzer(ProcessingEnvironment processingEnvironment, LibTypes libTypes) {
         super(libTypes);
         mProcessingEnv = processingEnvironment;
@@ -214,6 +216,15 @@ public class AnnotationAnalyzer extends ModelAnalyzer {
         return mProcessingEnv.getElementUtils();
     }
 
+    AssignabilityCache getAssignabilityCache() {
+        return mAssignabilityCache;
+    }
+
+    public void logStats() {
+        getClassFinderCache().logStats();
+        mAssignabilityCache.logStats();
+    }
+
     public ProcessingEnvironment getProcessingEnv() {
         return mProcessingEnv;
     }
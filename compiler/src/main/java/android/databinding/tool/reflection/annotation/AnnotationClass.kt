@@ -245,7 +245,18 @@ class AnnotationClass(
             return true
         }
         val thatAnnotationClass = other as? AnnotationClass ?: return false
-        if (typeUtils.isAssignable(thatAnnotationClass.typeMirror, this.typeMirror)) {
+        val assignabilityCache = AnnotationAnalyzer.get().assignabilityCache
+        return assignabilityCache.isAssignable(this, thatAnnotationClass) {
+            computeIsAssignableFrom(thatAnnotationClass, assignabilityCache)
+        }
+    }
+
+    private fun computeIsAssignableFrom(
+            other: AnnotationClass,
+            assignabilityCache: AssignabilityCache
+    ): Boolean {
+        assignabilityCache.onTypesCall()
+        if (typeUtils.isAssignable(other.typeMirror, this.typeMirror)) {
             return true
         }
         // If this is incomplete, java typeUtils won't be able to detect assignments like
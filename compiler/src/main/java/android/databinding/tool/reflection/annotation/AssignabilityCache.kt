@@ -0,0 +1,81 @@
+/*
+ * Copyright (C) 2021 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package android.databinding.tool.reflection.annotation
+
+import android.databinding.tool.util.L
+
+/**
+ * Remembers the result of [AnnotationClass.isAssignableFrom] for the lifetime of an
+ * [AnnotationAnalyzer].
+ *
+ * Pairs are keyed by the java code of both types so that the separate [AnnotationClass]
+ * instances created for the same type, e.g. by [AnnotationClass.erasure], share results. Pairs
+ * involving type variables or wildcards are not cached since their java code does not identify
+ * the type.
+ *
+ * Every entry records how many [javax.lang.model.util.Types.isAssignable] calls it took to
+ * compute, including nested checks on type arguments, so that the calls saved by each hit can be
+ * reported.
+ */
+internal class AssignabilityCache {
+    private class Entry(val assignable: Boolean, val typesCalls: Int)
+
+    private val cache = HashMap<Pair<String, String>, Entry>()
+    private var typesCalls = 0
+
+    var hitCount = 0
+        private set
+
+    var missCount = 0
+        private set
+
+    var savedTypesCallCount = 0L
+        private set
+
+    fun isAssignable(
+            to: AnnotationClass,
+            from: AnnotationClass,
+            compute: () -> Boolean
+    ): Boolean {
+        if (to.isIncomplete || from.isIncomplete) {
+            return compute()
+        }
+        val key = to.toString() to from.toString()
+        cache[key]?.let {
+            hitCount++
+            savedTypesCallCount += it.typesCalls
+            return it.assignable
+        }
+        missCount++
+        val before = typesCalls
+        val assignable = compute()
+        cache.putIfAbsent(key, Entry(assignable, typesCalls - before))
+        return assignable
+    }
+
+    /**
+     * Must be called for every call to [javax.lang.model.util.Types.isAssignable] made while
+     * computing a result.
+     */
+    fun onTypesCall() {
+        typesCalls++
+    }
+
+    fun logStats() {
+        L.d("assignability cache: miss: %d, hit: %d, saved Types calls: %d",
+                missCount, hitCount, savedTypesCallCount)
+    }
+}
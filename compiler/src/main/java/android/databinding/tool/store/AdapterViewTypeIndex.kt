@@ -0,0 +1,93 @@
+/*
+ * Copyright (C) 2021 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package android.databinding.tool.store
+
+import android.databinding.tool.reflection.ImportBag
+import android.databinding.tool.reflection.ModelAnalyzer
+import android.databinding.tool.reflection.ModelClass
+import android.databinding.tool.store.SetterStore.AccessorKey
+
+/**
+ * Index of the adapters of a single attribute by their view type.
+ *
+ * The view type of every adapter is resolved once when the index is created. Adapters that take
+ * a class are then looked up by walking the superclass chain of the target view instead of
+ * checking every adapter of the attribute. Adapters that take an interface, or whose view type
+ * cannot be resolved, are always returned so the caller reports them as before.
+ *
+ * Candidates are returned in the iteration order of the store since the caller breaks ties
+ * between equally good adapters by that order.
+ */
+internal class AdapterViewTypeIndex<D>(
+        adapters: Map<AccessorKey, D>,
+        analyzer: ModelAnalyzer
+) {
+    class Candidate<D>(
+            @JvmField val key: AccessorKey,
+            @JvmField val description: D,
+            /**
+             * The erased view type of the adapter or null if it could not be resolved.
+             */
+            @JvmField val viewType: ModelClass?)
+
+    private val candidates: List<Candidate<D>>
+    private val byViewType = HashMap<String, MutableList<Int>>()
+    private val alwaysChecked = ArrayList<Int>()
+    private val candidatesByTarget = HashMap<String, List<Candidate<D>>>()
+
+    init {
+        candidates = adapters.entries.mapIndexed { index, (key, description) ->
+            val viewType = try {
+                analyzer.findClass(key.viewType, ImportBag.EMPTY)?.erasure()
+            } catch (e: Exception) {
+                null
+            }
+            if (viewType == null || viewType.isInterface) {
+                alwaysChecked.add(index)
+            } else {
+                byViewType.getOrPut(viewType.canonicalName) { ArrayList() }.add(index)
+            }
+            Candidate(key, description, viewType)
+        }
+    }
+
+    /**
+     * Returns the adapters that may apply to the given erased view type.
+     */
+    fun candidatesFor(viewType: ModelClass): List<Candidate<D>> {
+        if (candidates.isEmpty()) {
+            return emptyList()
+        }
+        return candidatesByTarget.getOrPut(viewType.canonicalName) {
+            val indices = ArrayList<Int>(alwaysChecked)
+            var type: ModelClass? = viewType
+            while (type != null) {
+                byViewType[type.erasure().canonicalName]?.let { indices.addAll(it) }
+                type = type.superclass
+            }
+            if (viewType.isInterface) {
+                // interfaces don't have a superclass but are still assignable to Object
+                byViewType[OBJECT]?.let { indices.addAll(it) }
+            }
+            indices.sort()
+            indices.map { candidates[it] }
+        }
+    }
+
+    companion object {
+        private const val OBJECT = "java.lang.Object"
+    }
+}
@@ -0,0 +1,307 @@
+/*
+ * Copyright (C) 2021 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package android.databinding.tool.store
+
+import android.databinding.tool.Context
+import android.databinding.tool.reflection.ModelAnalyzer
+import android.databinding.tool.reflection.ModelClass
+import android.databinding.tool.reflection.MutableImportBag
+import android.databinding.tool.reflection.SdkUtil
+import android.databinding.tool.util.L
+import com.google.common.hash.Hasher
+import com.google.common.hash.Hashing
+import java.io.File
+import java.io.IOException
+import java.nio.file.Files
+import java.nio.file.StandardCopyOption
+import java.util.ArrayDeque
+
+/**
+ * Persistent cache of generated `*BindingImpl` sources.
+ *
+ * Entries are content addressed: the key of a layout is a hash of its layout info xml, the
+ * binding adapters (including the ones from dependencies), the resource symbol tables, the api
+ * descriptions of the SDK, the compiler version and the shape of every type the layout can reach
+ * through its variables, imports, views and the fully qualified names in its expressions. A hit
+ * means the binder would be generated exactly the same way, so the cached source can be written
+ * without parsing the layout at all.
+ *
+ * Platform and library types are part of the key like any other type so that changing the
+ * compile SDK or a dependency version invalidates the entries that use them. The shape of each
+ * type is only computed once per compilation and shared by all layouts.
+ *
+ * Entries are written to a temporary file and renamed so that concurrent builds sharing a cache
+ * never read a partial entry.
+ */
+class BinderSourceCache(
+        private val cacheDir: File,
+        private val environmentKey: String
+) {
+    private val shapes = HashMap<String, TypeShape>()
+
+    /**
+     * Computes the cache key for the given layout or returns null if one cannot be computed, in
+     * which case the layout should just be generated.
+     */
+    fun keyFor(bundle: ResourceBundle.LayoutFileBundle): String? {
+        return try {
+            val hasher = Hashing.sha256().newHasher()
+            hasher.putString(environmentKey, Charsets.UTF_8)
+            hasher.putString(bundle.toXML(), Charsets.UTF_8)
+            TypeFingerprint(hasher, shapes).addLayout(bundle)
+            hasher.hash().toString()
+        } catch (t: Throwable) {
+            L.d(t, "cannot compute binder cache key for %s", bundle.fileName)
+            null
+        }
+    }
+
+    fun get(key: String): String? {
+        val file = entryFile(key)
+        if (!file.isFile) {
+            return null
+        }
+        return try {
+            file.readText(Charsets.UTF_8)
+        } catch (e: IOException) {
+            L.d(e, "cannot read binder cache entry %s", file)
+            null
+        }
+    }
+
+    fun put(key: String, source: String) {
+        var tmp: File? = null
+        try {
+            cacheDir.mkdirs()
+            tmp = File.createTempFile(key, ".tmp", cacheDir)
+            tmp.writeText(source, Charsets.UTF_8)
+            Files.move(tmp.toPath(), entryFile(key).toPath(),
+                    StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE)
+        } catch (e: IOException) {
+            L.d(e, "cannot write binder cache entry %s", key)
+            tmp?.delete()
+        }
+    }
+
+    private fun entryFile(key: String) = File(cacheDir, "$key$ENTRY_EXT")
+
+    /**
+     * The hash of the members of a single type and the types its members refer to.
+     */
+    private class TypeShape(val hash: String, val references: List<ModelClass>)
+
+    /**
+     * Hashes the shape of the given types and every type reachable from them through super
+     * types, type arguments, method return and parameter types and field types.
+     */
+    private class TypeFingerprint(
+            private val hasher: Hasher,
+            private val shapes: MutableMap<String, TypeShape>
+    ) {
+        private val visited = HashSet<String>()
+        private val pending = ArrayDeque<ModelClass>()
+
+        fun addLayout(bundle: ResourceBundle.LayoutFileBundle) {
+            val analyzer = ModelAnalyzer.getInstance()
+            val imports = MutableImportBag()
+            bundle.imports.forEach {
+                imports.put(it.name, it.type)
+            }
+            bundle.imports.forEach {
+                add(analyzer.findClass(it.type, imports), it.type)
+            }
+            bundle.variables.forEach {
+                add(analyzer.findClass(it.type, imports), it.type)
+            }
+            bundle.bindingTargetBundles.forEach { target ->
+                add(analyzer.findClass(target.fullClassName, imports), target.fullClassName)
+                target.interfaceType?.let { type ->
+                    add(analyzer.findClass(type, imports), type)
+                }
+                target.bindingBundleList.forEach {
+                    addQualifiedNames(it.expr)
+                }
+            }
+            while (pending.isNotEmpty()) {
+                val type = pending.removeFirst()
+                val shape = shapes.getOrPut(type.canonicalName) { computeShape(type) }
+                hasher.putString(shape.hash, Charsets.UTF_8)
+                shape.references.forEach { enqueue(it) }
+            }
+        }
+
+        /**
+         * Expressions can refer to classes by their fully qualified name without importing them
+         * so every dotted name that resolves to a class is part of the key as well.
+         */
+        private fun addQualifiedNames(expr: String?) {
+            if (expr == null) {
+                return
+            }
+            val analyzer = ModelAnalyzer.getInstance()
+            QUALIFIED_NAME.findAll(expr).forEach { match ->
+                val parts = match.value.split('.')
+                for (end in 2..parts.size) {
+                    val name = parts.subList(0, end).joinToString(".")
+                    val type = analyzer.findClass(name, null) ?: continue
+                    hasher.putString(name, Charsets.UTF_8)
+                    add(type)
+                }
+            }
+        }
+
+        private fun add(type: ModelClass?, name: String) {
+            if (type == null) {
+                // unresolved types generate errors, hash the name so it is still part of the key
+                hasher.putString("?$name", Charsets.UTF_8)
+                return
+            }
+            add(type)
+        }
+
+        private fun add(type: ModelClass) {
+            hasher.putString(type.toJavaCode(), Charsets.UTF_8)
+            referencedTypes(type).forEach { enqueue(it) }
+        }
+
+        private fun enqueue(type: ModelClass) {
+            if (visited.add(type.canonicalName)) {
+                pending.add(type)
+            }
+        }
+
+        private fun computeShape(type: ModelClass): TypeShape {
+            val shapeHasher = Hashing.sha256().newHasher()
+            val references = ArrayList<ModelClass>()
+            fun putType(member: ModelClass?) {
+                if (member == null) {
+                    shapeHasher.putString("null", Charsets.UTF_8)
+                    return
+                }
+                shapeHasher.putString(member.toJavaCode(), Charsets.UTF_8)
+                references.addAll(referencedTypes(member))
+            }
+            shapeHasher.putString(type.canonicalName, Charsets.UTF_8)
+            shapeHasher.putBoolean(type.isInterface)
+            shapeHasher.putBoolean(type.isObservable)
+            putType(type.superclass)
+            type.allMethods
+                    .filter { it.isPublic || it.isProtected }
+                    .sortedWith(compareBy({ it.name }, { it.jniDescription }))
+                    .forEach { method ->
+                        shapeHasher.putString(method.name, Charsets.UTF_8)
+                        shapeHasher.putString(method.jniDescription, Charsets.UTF_8)
+                        shapeHasher.putBoolean(method.isStatic)
+                        shapeHasher.putBoolean(method.isAbstract)
+                        shapeHasher.putBoolean(method.isVarArgs)
+                        shapeHasher.putBoolean(method.isBindable)
+                        method.bindableAnnotation?.dependencies?.forEach {
+                            shapeHasher.putString(it, Charsets.UTF_8)
+                        }
+                        putType(method.returnType)
+                        method.parameterTypes.forEach { putType(it) }
+                    }
+            type.allFields
+                    .filter { it.isPublic }
+                    .sortedBy { it.name }
+                    .forEach { field ->
+                        shapeHasher.putString(field.name, Charsets.UTF_8)
+                        shapeHasher.putBoolean(field.isStatic)
+                        shapeHasher.putBoolean(field.isFinal)
+                        shapeHasher.putBoolean(field.isBindable)
+                        putType(field.fieldType)
+                    }
+            return TypeShape(shapeHasher.hash().toString(), references)
+        }
+
+        /**
+         * Returns the erasures of the declared types that appear in the given type.
+         */
+        private fun referencedTypes(type: ModelClass): List<ModelClass> {
+            val result = ArrayList<ModelClass>()
+            val queue = ArrayDeque<ModelClass>()
+            queue.add(type)
+            while (queue.isNotEmpty()) {
+                val next = queue.removeFirst()
+                next.typeArguments?.let { queue.addAll(it) }
+                next.componentType?.let { queue.add(it) }
+                if (!next.isPrimitive && !next.isArray && !next.isTypeVar && !next.isWildcard &&
+                        !next.isVoid) {
+                    result.add(next.erasure())
+                }
+            }
+            return result
+        }
+    }
+
+    companion object {
+        /**
+         * Bump when the cache key or the generated code changes in a way that is not captured by
+         * the compiler version (e.g. local builds of the compiler).
+         */
+        private const val CACHE_VERSION = 1
+
+        private const val ENTRY_EXT = ".java.txt"
+
+        private val QUALIFIED_NAME = Regex("""[A-Za-z_$][\w$]*(\.[A-Za-z_$][\w$]*)+""")
+
+        /**
+         * Creates the cache for the current compilation or returns null if caching is disabled.
+         * Must be called after the [SetterStore] is loaded.
+         */
+        @JvmStatic
+        fun create(cacheDir: File?, setterStore: SetterStore): BinderSourceCache? {
+            if (cacheDir == null) {
+                return null
+            }
+            val hasher = Hashing.sha256().newHasher()
+            hasher.putInt(CACHE_VERSION)
+            hasher.putString(compilerVersion(), Charsets.UTF_8)
+            hasher.putInt(SdkUtil.get().minSdk)
+            hasher.putString(SdkUtil.get().apiChecker.fingerprint, Charsets.UTF_8)
+            hasher.putBoolean(ModelAnalyzer.getInstance().libTypes.useAndroidX)
+            hasher.putBoolean(Context.compilerOptions.lockFreeDirtyFlags)
+            hasher.putString("${Context.compilerOptions.skipUnchangedSetters}", Charsets.UTF_8)
+            hasher.putInt(Context.compilerOptions.executeBindingsBudget)
+            hasher.putBoolean(Context.compilerOptions.packFlags)
+            hasher.putBoolean(Context.finalBrIds)
+            hasher.putBoolean(Context.compilerOptions.cacheBindingPaths)
+            hasher.putString(setterStore.fingerprint, Charsets.UTF_8)
+            Context.resources.symbolTables?.forEach { table ->
+                hasher.putString(table.rPackage, Charsets.UTF_8)
+                table.resources.entries().forEach {
+                    hasher.putString(it.key, Charsets.UTF_8)
+                    hasher.putString(it.value, Charsets.UTF_8)
+                }
+            }
+            return BinderSourceCache(cacheDir, hasher.hash().toString())
+        }
+
+        /**
+         * The version of the compiler, falling back to the identity of its jar for local builds.
+         */
+        private fun compilerVersion(): String {
+            val klass = BinderSourceCache::class.java
+            val version = klass.`package`?.implementationVersion
+            val location = klass.protectionDomain?.codeSource?.location?.path?.let { File(it) }
+            return if (location != null && location.isFile) {
+                "$version:${location.length()}:${location.lastModified()}"
+            } else {
+                "$version"
+            }
+        }
+    }
+}
@@ -15,6 +15,7 @@
  */
 package android.databinding.tool.store
 
+import android.databinding.tool.reflection.ModelAnalyzer
 import android.databinding.tool.store.SetterStore.AccessorKey
 import android.databinding.tool.store.SetterStore.Intermediate
 import android.databinding.tool.store.SetterStore.InverseDescription
@@ -23,6 +24,8 @@ import android.databinding.tool.store.SetterStore.MethodDescription
 import android.databinding.tool.store.SetterStore.MultiAttributeSetter
 import android.databinding.tool.store.SetterStore.MultiValueAdapterKey
 import android.databinding.tool.util.L
+import com.google.common.hash.Hashing
+import com.google.gson.GsonBuilder
 import com.google.gson.annotations.SerializedName
 import java.io.IOException
 import java.io.ObjectInputStream
@@ -78,6 +81,16 @@ internal class BindingAdapterStore : Intermediate {
      */
     @field:Transient
     private var currentModuleStore: BindingAdapterStore? = null
+
+    /**
+     * Adapters by view type for every attribute looked up so far. Cleared when adapters change.
+     */
+    @field:Transient
+    private val adapterIndices = HashMap<String, AdapterViewTypeIndex<MethodDescription>>()
+    @field:Transient
+    private val inverseAdapterIndices = HashMap<String, AdapterViewTypeIndex<InverseDescription>>()
+    @field:Transient
+    private var conversionIndex: ConversionIndex? = null
     private val useAndroidX: Boolean
 
     constructor(
@@ -166,6 +179,18 @@ internal class BindingAdapterStore : Intermediate {
         twoWayMethods.putAll(other.twoWayMethods.filterOutAndroidSupportFromMapByKeys())
     }
 
+    /**
+     * Returns a hash of every adapter in this store, including the ones merged from dependencies.
+     * All collections are sorted so the result is stable across builds.
+     */
+    fun fingerprint(): String {
+        val json = GsonBuilder()
+                .enableComplexMapKeySerialization()
+                .create()
+                .toJson(this)
+        return Hashing.sha256().hashString(json, Charsets.UTF_8).toString()
+    }
+
     /**
      * Returns all event attributes from inverse descriptions (from inverse adapters and inverse
      * methods)
@@ -247,6 +272,7 @@ internal class BindingAdapterStore : Intermediate {
                     }
                 }
                 .put(key, desc)
+        adapterIndices.remove(attribute)
         currentModuleStore?.addBindingAdapter(attribute, key, desc)
     }
 
@@ -265,6 +291,7 @@ internal class BindingAdapterStore : Intermediate {
                     }
                 }
                 .put(key, desc)
+        inverseAdapterIndices.remove(attribute)
         currentModuleStore?.addInverseBindingAdapter(attribute, key, desc)
     }
 
@@ -292,6 +319,7 @@ internal class BindingAdapterStore : Intermediate {
         conversionMethods
                 .getOrPut(fromType) { TreeMap() }
                 .put(toType, methodDescription)
+        conversionIndex = null
         currentModuleStore?.addConversionMethod(fromType, toType, methodDescription)
     }
 
@@ -313,6 +341,7 @@ internal class BindingAdapterStore : Intermediate {
             }
             removeFromMap(adapters, removedAccessorKeys)
         }
+        adapterIndices.clear()
 
         val removedRenamed = ArrayList<String>()
         for (renamed in renamedMethods.values) {
@@ -334,6 +363,7 @@ internal class BindingAdapterStore : Intermediate {
             }
             removeFromMap(convertTos, removedConversions)
         }
+        conversionIndex = null
 
         val removedUntaggable = ArrayList<String>()
         for (typeName in untaggableTypes.keys) {
@@ -397,41 +427,35 @@ internal class BindingAdapterStore : Intermediate {
     }
 
     /**
-     * Runs the given function on all conversion methods that has the given attribute.
-     * If the function returns a non-null value, returns that value.
+     * Returns the conversion methods with their types resolved.
      */
-    fun findFirstConversionMethod(
-            func: (String, Map<String, MethodDescription>) -> MethodDescription?
-    ): MethodDescription? {
-        conversionMethods.forEach {
-            func(it.key, it.value)?.let {
-                return it
-            }
+    fun getConversionIndex(analyzer: ModelAnalyzer): ConversionIndex {
+        return conversionIndex ?: ConversionIndex(conversionMethods, analyzer).also {
+            conversionIndex = it
         }
-        return null
     }
 
     /**
-     * Runs the given function on all adapter methods that has the given attribute.
+     * Returns the adapters of the given attribute indexed by their view type.
      */
-    fun forEachAdapterMethod(
+    fun getAdapterIndex(
             attribute: String,
-            func: (AccessorKey, MethodDescription) -> Unit?
-    ) {
-        adapterMethods[attribute]?.forEach {
-            func(it.key, it.value)
+            analyzer: ModelAnalyzer
+    ): AdapterViewTypeIndex<MethodDescription> {
+        return adapterIndices.getOrPut(attribute) {
+            AdapterViewTypeIndex(adapterMethods[attribute] ?: emptyMap(), analyzer)
         }
     }
 
     /**
-     * Runs the given function on all inverse adapters that has the given attribute.
+     * Returns the inverse adapters of the given attribute indexed by their view type.
      */
-    fun forEachInverseAdapterMethod(
+    fun getInverseAdapterIndex(
             attribute: String,
-            func: (AccessorKey, InverseDescription) -> Unit?
-    ) {
-        inverseAdapters[attribute]?.forEach {
-            func(it.key, it.value)
+            analyzer: ModelAnalyzer
+    ): AdapterViewTypeIndex<InverseDescription> {
+        return inverseAdapterIndices.getOrPut(attribute) {
+            AdapterViewTypeIndex(inverseAdapters[attribute] ?: emptyMap(), analyzer)
         }
     }
 
@@ -0,0 +1,109 @@
+/*
+ * Copyright (C) 2021 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package android.databinding.tool.store
+
+import android.databinding.tool.reflection.ImportBag
+import android.databinding.tool.reflection.ModelAnalyzer
+import android.databinding.tool.reflection.ModelClass
+import android.databinding.tool.reflection.ModelMethod
+import android.databinding.tool.store.SetterStore.MethodDescription
+import android.databinding.tool.util.L
+import com.squareup.javapoet.TypeName
+import java.util.Optional
+
+/**
+ * The `@BindingConversion` methods of a [BindingAdapterStore] with their from and to types
+ * resolved.
+ *
+ * Conversions are resolved once when the index is created and the result of every lookup,
+ * including misses, is remembered since the same pairs are checked over and over while ranking
+ * adapters.
+ */
+internal class ConversionIndex(
+        conversionMethods: Map<String, Map<String, MethodDescription>>,
+        analyzer: ModelAnalyzer
+) {
+    private class Conversion(
+            val from: ModelClass,
+            val to: List<Pair<ModelClass, MethodDescription>>)
+
+    private val conversions: List<Conversion>
+    private val lookups = HashMap<Pair<TypeName, TypeName>, Optional<MethodDescription>>()
+
+    init {
+        conversions = conversionMethods.mapNotNull { (fromClassName, toMethods) ->
+            val from = resolve(analyzer, fromClassName) ?: return@mapNotNull null
+            val to = toMethods.mapNotNull { (toClassName, method) ->
+                resolve(analyzer, toClassName)?.let { it to method }
+            }
+            Conversion(from, to)
+        }
+    }
+
+    /**
+     * Returns the first conversion method that accepts [from] and returns something assignable
+     * to [to] or null if there isn't one.
+     */
+    fun find(from: ModelClass, to: ModelClass): MethodDescription? {
+        val key = from.typeName to to.typeName
+        lookups[key]?.let {
+            return it.orElse(null)
+        }
+        val found = doFind(from, to)
+        lookups.putIfAbsent(key, Optional.ofNullable(found))
+        return found
+    }
+
+    private fun doFind(from: ModelClass, to: ModelClass): MethodDescription? {
+        conversions.forEach { conversion ->
+            try {
+                if (canUseForConversion(from, conversion.from)) {
+                    conversion.to.forEach { (convertTo, method) ->
+                        try {
+                            if (canUseForConversion(convertTo, to)) {
+                                return method
+                            }
+                        } catch (e: Exception) {
+                            L.d(e, "Unknown class: %s", convertTo)
+                        }
+                    }
+                }
+            } catch (e: Exception) {
+                L.d(e, "Unknown class: %s", conversion.from)
+            }
+        }
+        return null
+    }
+
+    companion object {
+        private fun resolve(analyzer: ModelAnalyzer, className: String): ModelClass? {
+            return try {
+                analyzer.findClass(className, ImportBag.EMPTY)
+            } catch (e: Exception) {
+                L.d(e, "Unknown class: %s", className)
+                null
+            }
+        }
+
+        private fun canUseForConversion(from: ModelClass, to: ModelClass): Boolean {
+            val incomplete = from.isIncomplete || to.isIncomplete
+            val fromType = if (incomplete) from.erasure() else from
+            val toType = if (incomplete) to.erasure() else to
+            return fromType == toType || ModelMethod.isBoxingConversion(fromType, toType) ||
+                    toType.isAssignableFrom(fromType)
+        }
+    }
+}
@@ -0,0 +1,103 @@
+/*
+ * Copyright (C) 2021 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package android.databinding.tool.store
+
+import android.databinding.tool.processing.ScopedException
+import android.databinding.tool.reflection.ImmutableImportBag
+import android.databinding.tool.reflection.ImportBag
+import android.databinding.tool.reflection.ModelClass
+import android.databinding.tool.util.L
+import com.squareup.javapoet.TypeName
+
+/**
+ * Memoizes the setters and getters resolved by [SetterStore].
+ *
+ * The same attribute is usually bound on the same view type with the same value type in many
+ * layouts, so results are keyed on the attributes, the type names of the view and the values and
+ * the imports of the layout. Cached values are shared so they must not be modified after they are
+ * resolved.
+ *
+ * Failed resolutions are cached too. The error of a failure is reported again on every lookup
+ * so that each binding that uses it gets an error at its own location.
+ *
+ * Values are not computed inside the map since resolving a getter resolves its event setter
+ * through the same store.
+ */
+internal class ResolutionCache<V : Any>(private val name: String) {
+    private val cache = HashMap<CacheKey, Resolution<V>>()
+    private val importCache = HashMap<ImportBag, ImmutableImportBag>()
+
+    var hitCount = 0
+        private set
+
+    var missCount = 0
+        private set
+
+    fun get(
+            attributes: List<String>,
+            viewType: ModelClass,
+            valueTypes: List<ModelClass?>,
+            imports: ImportBag?,
+            resolve: () -> V?
+    ): V? {
+        val key = CacheKey(
+                attributes = attributes,
+                viewType = viewType.typeName,
+                valueTypes = valueTypes.map { it?.typeName },
+                imports = imports?.let { importCache.getOrPut(it) { it.toImmutable() } })
+        cache[key]?.let {
+            hitCount++
+            return it.replay()
+        }
+        missCount++
+        val resolved = try {
+            resolve()
+        } catch (e: ScopedException) {
+            cache.putIfAbsent(key, Resolution(null, e.bareMessage))
+            throw e
+        }
+        cache.putIfAbsent(key, Resolution(resolved, null))
+        return resolved
+    }
+
+    fun clear() {
+        cache.clear()
+    }
+
+    fun logStats() {
+        L.d("%s resolution cache: miss: %d, hit: %d", name, missCount, hitCount)
+    }
+
+    /**
+     * The result of a resolution or the message of the error it failed with.
+     */
+    private class Resolution<V : Any>(private val value: V?, private val error: String?) {
+        fun replay(): V? {
+            if (error != null) {
+                // throws if there is a scope so the error is reported at the current binding
+                L.e("%s", error)
+            }
+            return value
+        }
+    }
+
+    private data class CacheKey(
+            val attributes: List<String>,
+            val viewType: TypeName,
+            val valueTypes: List<TypeName?>,
+            val imports: ImmutableImportBag?
+    )
+}
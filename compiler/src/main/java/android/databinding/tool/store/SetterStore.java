@@ -60,6 +60,11 @@ public class SetterStore {
     private final ModelAnalyzer mClassAnalyzer;
     private HashMap<String, List<String>> mInstanceAdapters;
     private final Set<String> mInverseEventAttributes;
+    private final ResolutionCache<SetterCall> mSetterCache = new ResolutionCache<>("setter");
+    private final ResolutionCache<BindingGetterCall> mGetterCache =
+            new ResolutionCache<>("getter");
+    private final ResolutionCache<List<MultiAttributeSetter>> mMultiAttributeSetterCache =
+            new ResolutionCache<>("multi attribute setter");
 
     private Comparator<MultiAttributeSetter> COMPARE_MULTI_ATTRIBUTE_SETTERS =
             new Comparator<MultiAttributeSetter>() {
@@ -186,6 +191,7 @@ public class SetterStore {
         MethodDescription methodDescription = new MethodDescription(
                 declaredOn.getQualifiedName().toString(), method);
         mStore.addRenamedMethod(attribute, declaringClass, methodDescription);
+        clearResolutionCaches();
     }
 
     public void addInverseBindingMethod(String attribute, String event, String declaringClass,
@@ -195,6 +201,7 @@ public class SetterStore {
         InverseDescription methodDescription = new InverseDescription(
                 declaredOn.getQualifiedName().toString(), method, event);
         mStore.addInverseBindingMethod(attribute, declaringClass, methodDescription);
+        clearResolutionCaches();
     }
 
     public void addInverseMethod(ProcessingEnvironment processingEnvironment,
@@ -202,6 +209,7 @@ public class SetterStore {
         InverseMethodDescription from = new InverseMethodDescription(processingEnvironment, method);
         InverseMethodDescription to = new InverseMethodDescription(processingEnvironment, inverse);
         mStore.addInverseMethod(from, to);
+        clearResolutionCaches();
     }
 
     public void addBindingAdapter(ProcessingEnvironment processingEnv, String attribute,
@@ -220,6 +228,7 @@ public class SetterStore {
         MethodDescription desc = new MethodDescription(bindingMethod, 1, takesComponent);
 
         mStore.addBindingAdapter(attribute, key, desc);
+        clearResolutionCaches();
     }
 
     public void addInverseAdapter(ProcessingEnvironment processingEnv, String attribute,
@@ -238,6 +247,7 @@ public class SetterStore {
         AccessorKey key = new AccessorKey(view, value);
         InverseDescription desc = new InverseDescription(bindingMethod, event, takesComponent);
         mStore.addInverseBindingAdapter(attribute, key, desc);
+        clearResolutionCaches();
     }
 
     private static TypeMirror eraseType(ProcessingEnvironment processingEnv,
@@ -308,6 +318,7 @@ public class SetterStore {
         MethodDescription methodDescription = new MethodDescription(bindingMethod,
                 attributes.length, takesComponent);
         mStore.addMultiValueAdapter(key, methodDescription);
+        clearResolutionCaches();
     }
 
     private static void testRepeatedAttributes(MultiValueAdapterKey key, ExecutableElement method) {
@@ -337,6 +348,7 @@ public class SetterStore {
         L.d("STORE addUntaggableTypes %s %s", Arrays.toString(typeNames), declaredOn);
         String declaredType = declaredOn.getQualifiedName().toString();
         mStore.addUntaggableType(typeNames, declaredType);
+        clearResolutionCaches();
     }
 
     private static String getQualifiedName(TypeMirror type) {
@@ -377,10 +389,31 @@ public class SetterStore {
         String toType = getQualifiedName(conversionMethod.getReturnType());
         MethodDescription methodDescription = new MethodDescription(conversionMethod, 1, false);
         mStore.addConversionMethod(fromType, toType, methodDescription);
+        clearResolutionCaches();
     }
 
     public void clear(Set<String> classes) {
         mStore.clear(classes);
+        clearResolutionCaches();
+    }
+
+    private void clearResolutionCaches() {
+        mSetterCache.clear();
+        mGetterCache.clear();
+        mMultiAttributeSetterCache.clear();
+    }
+
+    public void logResolutionStats() {
+        mSetterCache.logStats();
+        mGetterCache.logStats();
+        mMultiAttributeSetterCache.logStats();
+    }
+
+    /**
+     * Returns a hash of all binding adapters, conversions and renamed methods known to this store.
+     */
+    public String getFingerprint() {
+        return mStore.fingerprint();
     }
 
     public void write(String projectPackage)
@@ -410,7 +443,6 @@ public class SetterStore {
     public List<MultiAttributeSetter> getMultiAttributeSetterCalls(String[] attributes,
             ModelClass viewType, ModelClass[] valueType) {
         attributes = stripAttributes(attributes);
-        final ArrayList<MultiAttributeSetter> calls = new ArrayList<MultiAttributeSetter>();
         if (viewType != null && viewType.isGeneric()) {
             List<ModelClass> viewGenerics = viewType.getTypeArguments();
             for (int i = 0; i < valueType.length; i++) {
@@ -418,6 +450,21 @@ public class SetterStore {
             }
             viewType = viewType.erasure();
         }
+        if (viewType == null) {
+            return resolveMultiAttributeSetterCalls(attributes, null, valueType);
+        }
+        final String[] finalAttributes = attributes;
+        final ModelClass finalViewType = viewType;
+        List<MultiAttributeSetter> calls = mMultiAttributeSetterCache.get(
+                Arrays.asList(attributes.clone()), viewType, Arrays.asList(valueType), null,
+                () -> resolveMultiAttributeSetterCalls(finalAttributes, finalViewType,
+                        valueType));
+        return new ArrayList<>(calls);
+    }
+
+    private List<MultiAttributeSetter> resolveMultiAttributeSetterCalls(String[] attributes,
+            ModelClass viewType, ModelClass[] valueType) {
+        final ArrayList<MultiAttributeSetter> calls = new ArrayList<MultiAttributeSetter>();
         ArrayList<MultiAttributeSetter> matching = getMatchingMultiAttributeSetters(attributes,
                 viewType, valueType);
         Collections.sort(matching, COMPARE_MULTI_ATTRIBUTE_SETTERS);
@@ -551,11 +598,24 @@ public class SetterStore {
         }
     }
 
+    /**
+     * Finds the setter for the given attribute. The result is shared between callers and must
+     * not be modified.
+     */
     public SetterCall getSetterCall(String attribute, ModelClass viewType,
                                     ModelClass valueType, ImportBag imports) {
         if (viewType == null) {
             return null;
         }
+        final String strippedAttribute = stripNamespace(attribute);
+        final ModelClass erasedViewType = viewType.erasure();
+        return mSetterCache.get(Collections.singletonList(strippedAttribute), erasedViewType,
+                Collections.singletonList(valueType), imports,
+                () -> resolveSetterCall(strippedAttribute, erasedViewType, valueType, imports));
+    }
+
+    private SetterCall resolveSetterCall(String attribute, ModelClass viewType,
+            ModelClass valueType, ImportBag imports) {
         @SuppressWarnings("WeakerAccess")
         class BestSetter {
             @Nullable
@@ -566,8 +626,6 @@ public class SetterStore {
             SetterCall setterCall = null;
         }
 
-        viewType = viewType.erasure();
-        attribute = stripNamespace(attribute);
         final BestSetter bestSetter = new BestSetter();
         ModelMethod bestSetterMethod = getBestSetter(viewType, valueType, attribute, imports);
         if (bestSetterMethod != null) {
@@ -576,12 +634,14 @@ public class SetterStore {
             bestSetter.setterCall = new ModelMethodSetter(bestSetterMethod);
         }
 
-        ModelClass finalViewType = viewType;
-        mStore.forEachAdapterMethod(attribute, (key, adapter) -> {
+        for (AdapterViewTypeIndex.Candidate<MethodDescription> candidate :
+                mStore.getAdapterIndex(attribute, mClassAnalyzer).candidatesFor(viewType)) {
+            AccessorKey key = candidate.key;
+            MethodDescription adapter = candidate.description;
             try {
-                ModelClass adapterViewType =
-                        mClassAnalyzer.findClass(key.viewType, imports).erasure();
-                if (adapterViewType != null && adapterViewType.isAssignableFrom(finalViewType)) {
+                ModelClass adapterViewType = candidate.viewType != null ? candidate.viewType
+                        : mClassAnalyzer.findClass(key.viewType, imports).erasure();
+                if (adapterViewType != null && adapterViewType.isAssignableFrom(viewType)) {
                     try {
                         L.d("setter parameter type is %s", key.valueType);
                         final ModelClass adapterValueType = eraseType(mClassAnalyzer
@@ -598,7 +658,7 @@ public class SetterStore {
                                 // classpath hence we should ignore it.
                                 L.d("ignoring adapter %s because it is not in the" +
                                         " compile classpath.", adapter.type);
-                                return null;
+                                continue;
                             }
                             bestSetter.viewType = adapterViewType;
                             bestSetter.valueType = adapterValueType;
@@ -611,8 +671,7 @@ public class SetterStore {
             } catch (Exception e) {
                 L.e(e, "Unknown class: %s", key.viewType);
             }
-            return null;
-        });
+        }
 
         if (bestSetter.setterCall != null) {
             if (valueType.isObject() && bestSetter.valueType.isNullable()) {
@@ -638,6 +697,10 @@ public class SetterStore {
         return bestSetter.setterCall;
     }
 
+    /**
+     * Finds the getter for the given two-way attribute. The result is shared between callers
+     * and must not be modified.
+     */
     public BindingGetterCall getGetterCall(String attribute, ModelClass viewType,
             ModelClass valueType, ImportBag imports) {
         if (viewType == null) {
@@ -645,17 +708,25 @@ public class SetterStore {
         } else if (viewType.isViewDataBinding()) {
             return new ViewDataBindingGetterCall(viewType, attribute);
         }
+        final String strippedAttribute = stripNamespace(attribute);
+        final ModelClass erasedViewType = viewType.erasure();
+        return mGetterCache.get(Collections.singletonList(strippedAttribute), erasedViewType,
+                Collections.singletonList(valueType), imports,
+                () -> resolveGetterCall(strippedAttribute, erasedViewType, valueType, imports));
+    }
 
-        attribute = stripNamespace(attribute);
-        viewType = viewType.erasure();
-
+    private BindingGetterCall resolveGetterCall(String attribute, ModelClass viewType,
+            ModelClass valueType, ImportBag imports) {
         InverseMethod bestMethod = getBestGetter(viewType, valueType, attribute, imports);
-        ModelClass finalViewType = viewType;
-        mStore.forEachInverseAdapterMethod(attribute, (key, inverseDescription) -> {
+        for (AdapterViewTypeIndex.Candidate<InverseDescription> candidate :
+                mStore.getInverseAdapterIndex(attribute, mClassAnalyzer)
+                        .candidatesFor(viewType)) {
+            AccessorKey key = candidate.key;
+            InverseDescription inverseDescription = candidate.description;
             try {
-                ModelClass adapterViewType = mClassAnalyzer
-                        .findClass(key.viewType, imports).erasure();
-                if (adapterViewType != null && adapterViewType.isAssignableFrom(finalViewType)) {
+                ModelClass adapterViewType = candidate.viewType != null ? candidate.viewType
+                        : mClassAnalyzer.findClass(key.viewType, imports).erasure();
+                if (adapterViewType != null && adapterViewType.isAssignableFrom(viewType)) {
                     try {
                         L.d("getter return type is %s", key.valueType);
                         final ModelClass adapterValueType = eraseType(mClassAnalyzer
@@ -673,16 +744,16 @@ public class SetterStore {
                                     modelAnalyzer.libTypes.getInverseBindingListener(),
                                     ImportBag.EMPTY);
                             BindingSetterCall eventCall = getSetterCall(
-                                    inverseDescription.event, finalViewType, listenerType, imports);
+                                    inverseDescription.event, viewType, listenerType, imports);
                             if (eventCall == null) {
                                 List<MultiAttributeSetter> setters =
                                         getMultiAttributeSetterCalls(
                                                 new String[]{inverseDescription.event},
-                                                finalViewType, new ModelClass[] {listenerType});
+                                                viewType, new ModelClass[] {listenerType});
                                 if (setters.size() != 1) {
                                     L.e("Could not find event '%s' on View type '%s'",
                                             inverseDescription.event,
-                                            finalViewType.getCanonicalName());
+                                            viewType.getCanonicalName());
                                 } else {
                                     bestMethod.call = new AdapterGetter(inverseDescription,
                                             setters.get(0), key.valueType);
@@ -700,8 +771,7 @@ public class SetterStore {
             } catch (Exception e) {
                 L.e(e, "Unknown class: %s", key.viewType);
             }
-            return null;
-        });
+        }
         return bestMethod.call;
     }
 
@@ -1020,41 +1090,11 @@ public class SetterStore {
             if (to.isObject()) {
                 return null;
             }
-            return mStore.findFirstConversionMethod((fromClassName, conversion) -> {
-                try {
-                    ModelClass convertFrom = mClassAnalyzer.findClass(fromClassName, imports);
-                    if (convertFrom != null && canUseForConversion(from, convertFrom)) {
-                        for (String toClassName : conversion.keySet()) {
-                            try {
-                                ModelClass convertTo = mClassAnalyzer
-                                        .findClass(toClassName, imports);
-                                if (convertTo != null
-                                        && canUseForConversion(convertTo, to)) {
-                                    return conversion.get(toClassName);
-                                }
-                            } catch (Exception e) {
-                                L.d(e, "Unknown class: %s", toClassName);
-                            }
-                        }
-                    }
-                } catch (Exception e) {
-                    L.d(e, "Unknown class: %s", fromClassName);
-                }
-                return null;
-            });
+            return mStore.getConversionIndex(mClassAnalyzer).find(from, to);
         }
         return null;
     }
 
-    private boolean canUseForConversion(ModelClass from, ModelClass to) {
-        if (from.isIncomplete() || to.isIncomplete()) {
-            from = from.erasure();
-            to = to.erasure();
-        }
-        return from.equals(to) || ModelMethod.isBoxingConversion(from, to) ||
-                to.isAssignableFrom(from);
-    }
-
     private static String createAdapterCall(MethodDescription adapter,
             String componentExpression, String viewExpression, String... args) {
         StringBuilder sb = new StringBuilder();
@@ -1701,7 +1741,7 @@ public class SetterStore {
         public SetterCall() {
         }
 
-        public void setConverter(MethodDescription converter) {
+        void setConverter(MethodDescription converter) {
             mConverter = converter;
         }
 
@@ -1732,7 +1772,7 @@ public class SetterStore {
         @Override
         abstract public int getMinApi();
 
-        public void setCast(ModelClass castTo) {
+        void setCast(ModelClass castTo) {
             mCastString = "(" + castTo.toJavaCode() + ") ";
         }
     }
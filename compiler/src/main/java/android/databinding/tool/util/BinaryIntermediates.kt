@@ -0,0 +1,256 @@
+/*
+ * Copyright (C) 2021 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package android.databinding.tool.util
+
+import java.io.BufferedOutputStream
+import java.io.DataOutputStream
+import java.io.File
+import java.io.IOException
+import java.io.OutputStream
+import java.nio.ByteBuffer
+import java.nio.channels.FileChannel
+import java.nio.file.StandardOpenOption
+
+/**
+ * Compact binary format for the intermediate files passed between modules (see
+ * [GenerationalClassUtil]).
+ *
+ * Every file holds the package of the module and a list of entries, each mapping a key to a list
+ * of strings. All strings are interned in a single table so that class and property names that
+ * repeat across entries are stored once.
+ *
+ * ```
+ * file    := MAGIC version:int kind:utf package:utf strings index values
+ * strings := count:int offsets:int[count + 1] utf8-bytes
+ * index   := count:int (key:string-id valuesOffset:int)[count]
+ * values  := (count:int string-id[count])[index count]
+ * ```
+ *
+ * All ints are big endian. Java serialization streams start with 0xACED so the two formats can be
+ * told apart by the first bytes of the file.
+ */
+object BinaryIntermediates {
+    internal const val MAGIC = 0x44424958 // "DBIX"
+    internal const val VERSION = 1
+}
+
+/**
+ * Converts an intermediate object to and from the binary format.
+ */
+interface BinaryIntermediateCodec<T : Any> {
+    fun encode(item: T, writer: BinaryIntermediateWriter)
+
+    /**
+     * Creates the intermediate object. Implementations are encouraged to keep the reader and
+     * decode entries on demand.
+     */
+    fun decode(reader: BinaryIntermediateReader): T
+}
+
+class BinaryIntermediateWriter(private val kind: String, private val pkg: String) {
+    private val stringIds = LinkedHashMap<String, Int>()
+    private val entries = sortedMapOf<String, List<String>>()
+
+    fun addEntry(key: String, values: List<String>) {
+        entries[key] = values
+    }
+
+    fun writeTo(out: OutputStream) {
+        val index = entries.map { (key, values) ->
+            intern(key) to values.map { intern(it) }
+        }
+        val data = DataOutputStream(BufferedOutputStream(out))
+        data.writeInt(BinaryIntermediates.MAGIC)
+        data.writeInt(BinaryIntermediates.VERSION)
+        data.writeUTF(kind)
+        data.writeUTF(pkg)
+
+        val encoded = stringIds.keys.map { it.toByteArray(Charsets.UTF_8) }
+        data.writeInt(encoded.size)
+        var offset = 0
+        data.writeInt(offset)
+        encoded.forEach {
+            offset += it.size
+            data.writeInt(offset)
+        }
+        encoded.forEach { data.write(it) }
+
+        data.writeInt(index.size)
+        var valuesOffset = 0
+        index.forEach { (keyId, valueIds) ->
+            data.writeInt(keyId)
+            data.writeInt(valuesOffset)
+            valuesOffset += 4 * (1 + valueIds.size)
+        }
+        index.forEach { (_, valueIds) ->
+            data.writeInt(valueIds.size)
+            valueIds.forEach { data.writeInt(it) }
+        }
+        data.flush()
+    }
+
+    private fun intern(value: String) = stringIds.getOrPut(value) { stringIds.size }
+}
+
+/**
+ * Reads a file written by [BinaryIntermediateWriter]. The file is loaded into a heap buffer but
+ * only the header and the index are parsed upfront, strings are decoded the first time they are
+ * accessed.
+ */
+class BinaryIntermediateReader private constructor(private val buffer: ByteBuffer) {
+    val kind: String
+    val pkg: String
+    private val stringCount: Int
+    private val stringOffsetsStart: Int
+    private val stringBytesStart: Int
+    private val keyIds: IntArray
+    private val valueOffsets: IntArray
+    private val valuesStart: Int
+    private val strings: Array<String?>
+
+    init {
+        val input = buffer.duplicate()
+        input.int // magic, checked in open
+        val version = input.int
+        if (version != BinaryIntermediates.VERSION) {
+            throw IOException("unsupported binary intermediate version $version")
+        }
+        kind = readUtf(input)
+        pkg = readUtf(input)
+        stringCount = input.int
+        stringOffsetsStart = input.position()
+        stringBytesStart = stringOffsetsStart + 4 * (stringCount + 1)
+        input.position(stringBytesStart + buffer.getInt(stringOffsetsStart + 4 * stringCount))
+        val entryCount = input.int
+        keyIds = IntArray(entryCount)
+        valueOffsets = IntArray(entryCount)
+        for (i in 0 until entryCount) {
+            keyIds[i] = input.int
+            valueOffsets[i] = input.int
+        }
+        valuesStart = input.position()
+        strings = arrayOfNulls(stringCount)
+    }
+
+    val size: Int
+        get() = keyIds.size
+
+    val keys: List<String> by lazy(LazyThreadSafetyMode.NONE) {
+        keyIds.map { string(it) }
+    }
+
+    private val keyIndex by lazy(LazyThreadSafetyMode.NONE) {
+        keys.withIndex().associate { it.value to it.index }
+    }
+
+    fun key(index: Int) = string(keyIds[index])
+
+    fun values(index: Int): List<String> {
+        val start = valuesStart + valueOffsets[index]
+        val count = buffer.getInt(start)
+        return (0 until count).map { string(buffer.getInt(start + 4 * (it + 1))) }
+    }
+
+    fun values(key: String): List<String>? = keyIndex[key]?.let { values(it) }
+
+    /**
+     * Returns a read only view of entries that have a single value. Values are decoded when
+     * they are accessed.
+     */
+    fun asStringMap(): Map<String, String> = object : AbstractMap<String, String>() {
+        override val entries: Set<Map.Entry<String, String>> by lazy(LazyThreadSafetyMode.NONE) {
+            (0 until size).mapTo(LinkedHashSet()) { LazyEntry(it) }
+        }
+
+        override val size: Int
+            get() = this@BinaryIntermediateReader.size
+
+        override fun containsKey(key: String) = keyIndex.containsKey(key)
+
+        override fun get(key: String) = this@BinaryIntermediateReader.values(key)?.single()
+    }
+
+    private inner class LazyEntry(private val index: Int) : Map.Entry<String, String> {
+        override val key: String
+            get() = this@BinaryIntermediateReader.key(index)
+        override val value: String
+            get() = this@BinaryIntermediateReader.values(index).single()
+    }
+
+    private fun string(id: Int): String {
+        strings[id]?.let { return it }
+        val start = buffer.getInt(stringOffsetsStart + 4 * id)
+        val end = buffer.getInt(stringOffsetsStart + 4 * (id + 1))
+        val bytes = ByteArray(end - start)
+        val input = buffer.duplicate()
+        input.position(stringBytesStart + start)
+        input.get(bytes)
+        return String(bytes, Charsets.UTF_8).also { strings[id] = it }
+    }
+
+    private fun readUtf(input: ByteBuffer): String {
+        val length = input.short.toInt() and 0xFFFF
+        val bytes = ByteArray(length)
+        input.get(bytes)
+        // writeUTF uses modified UTF-8 which only differs for \u0000 and supplementary characters
+        // and neither shows up in kinds or package names
+        return String(bytes, Charsets.UTF_8)
+    }
+
+    companion object {
+        /**
+         * Reads the given file or returns null if it is not in the binary format, e.g. it was
+         * written by an older version of data binding with java serialization.
+         *
+         * The file is read into the heap by default instead of being memory mapped since mapped
+         * buffers are only released when they are garbage collected, which keeps the files locked
+         * on Windows and can exhaust the address space of long running daemons. Mapping is only
+         * kept so that IntermediateLoadBenchmark can compare the load times of both.
+         */
+        @JvmStatic
+        @JvmOverloads
+        fun open(file: File, memoryMapped: Boolean = false): BinaryIntermediateReader? {
+            FileChannel.open(file.toPath(), StandardOpenOption.READ).use { channel ->
+                val size = channel.size()
+                if (size < 4) {
+                    return null
+                }
+                val magic = ByteBuffer.allocate(4)
+                readFully(channel, magic)
+                if (magic.getInt(0) != BinaryIntermediates.MAGIC) {
+                    return null
+                }
+                if (memoryMapped) {
+                    return BinaryIntermediateReader(
+                            channel.map(FileChannel.MapMode.READ_ONLY, 0, size))
+                }
+                val buffer = ByteBuffer.allocate(size.toInt())
+                buffer.put(magic.array())
+                readFully(channel, buffer)
+                buffer.flip()
+                return BinaryIntermediateReader(buffer)
+            }
+        }
+
+        private fun readFully(channel: FileChannel, buffer: ByteBuffer) {
+            while (buffer.hasRemaining()) {
+                if (channel.read(buffer) < 0) {
+                    throw IOException("unexpected end of binary intermediate")
+                }
+            }
+        }
+    }
+}
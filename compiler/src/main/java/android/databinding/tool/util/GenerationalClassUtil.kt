@@ -15,6 +15,7 @@
  */
 package android.databinding.tool.util
 
+import android.databinding.annotationprocessor.ProcessBindable
 import android.databinding.annotationprocessor.ProcessExpressions
 import android.databinding.tool.CompilerArguments
 import android.databinding.tool.Context
@@ -67,7 +68,7 @@ class GenerationalClassUtil constructor(
             if (ext.isJson) {
                 it.bufferedReader(Charsets.UTF_8).use { reader -> GSON.fromJson(reader, klass) }
             } else {
-                deserializeObject(it)
+                readIntermediate(ext, it, klass)
             }
         }.toList()
     }
@@ -84,10 +85,18 @@ class GenerationalClassUtil constructor(
                     "incremental out directory should be" + " set to aar output directory.")
             outputDir!!.mkdirs()
             val outFile = File(outputDir, "$pkg${ext.ext}")
+            val codec = binaryCodec(ext)
             if (ext.isJson) {
                 outFile.bufferedWriter(Charsets.UTF_8).use {
                     GSON.toJson(item, it)
                 }
+            } else if (codec != null) {
+                val writer = BinaryIntermediateWriter(ext.ext, pkg)
+                @Suppress("UNCHECKED_CAST")
+                (codec as BinaryIntermediateCodec<Any>).encode(item, writer)
+                outFile.outputStream().use {
+                    writer.writeTo(it)
+                }
             } else {
                 outFile.outputStream().use {
                     ObjectOutputStream(it).use {
@@ -101,6 +110,33 @@ class GenerationalClassUtil constructor(
         }
     }
 
+    /**
+     * Reads the file in the binary format, falling back to java serialization for files written
+     * by older versions of data binding.
+     */
+    private fun <T : Any> readIntermediate(ext: ExtensionFilter, file: File, klass: Class<T>): T? {
+        val codec = binaryCodec(ext) ?: return deserializeObject(file)
+        try {
+            val reader = BinaryIntermediateReader.open(file) ?: return deserializeObject(file)
+            if (reader.kind != ext.ext) {
+                L.e("Unexpected binding intermediate %s in %s", reader.kind, file.absolutePath)
+                return null
+            }
+            return klass.cast(codec.decode(reader))
+        } catch (t: Throwable) {
+            L.e(t, "Could not read Binding intermediate file. %s", file.absolutePath)
+        }
+        return null
+    }
+
+    private fun binaryCodec(ext: ExtensionFilter): BinaryIntermediateCodec<*>? {
+        return when (ext) {
+            ExtensionFilter.BR -> ProcessBindable.BINARY_CODEC
+            ExtensionFilter.LAYOUT -> ProcessExpressions.BINARY_CODEC
+            else -> null
+        }
+    }
+
     @Suppress("UNCHECKED_CAST")
     private fun<T> deserializeObject(file: File) : T? {
         try {
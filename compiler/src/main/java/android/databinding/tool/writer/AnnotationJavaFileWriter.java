@@ -19,13 +19,15 @@ import org.apache.commons.io.IOUtils;
 
 import android.databinding.tool.util.L;
 
+import java.io.BufferedWriter;
 import java.io.IOException;
 import java.io.Writer;
+import java.util.function.Consumer;
 
 import javax.annotation.processing.ProcessingEnvironment;
 import javax.tools.JavaFileObject;
 
-public class AnnotationJavaFileWriter extends JavaFileWriter {
+public class AnnotationJavaFileWriter extends JavaFileWriter implements StreamingJavaFileWriter {
     private final ProcessingEnvironment mProcessingEnvironment;
 
     public AnnotationJavaFileWriter(ProcessingEnvironment processingEnvironment) {
@@ -50,6 +52,26 @@ public class AnnotationJavaFileWriter extends JavaFileWriter {
         }
     }
 
+    @Override
+    public void writeToFile(String canonicalName, Consumer<Writer> contents) {
+        Writer writer = null;
+        try {
+            L.d("writing file %s", canonicalName);
+            JavaFileObject javaFileObject =
+                    mProcessingEnvironment.getFiler().createSourceFile(canonicalName);
+            // the contents are appended in many small pieces
+            writer = new BufferedWriter(javaFileObject.openWriter());
+            contents.accept(writer);
+            writer.flush();
+        } catch (IOException e) {
+            L.e(e, "Could not write to %s", canonicalName);
+        } finally {
+            if (writer != null) {
+                IOUtils.closeQuietly(writer);
+            }
+        }
+    }
+
     @Override
     public void deleteFile(String canonicalName) {
         throw new UnsupportedOperationException("cannot delete file in annotation processor");
@@ -0,0 +1,31 @@
+/*
+ * Copyright (C) 2021 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package android.databinding.tool.writer;
+
+import java.io.Writer;
+import java.util.function.Consumer;
+
+/**
+ * A {@link JavaFileWriter} that can hand out the writer of the file so that large sources can be
+ * written without first being built as a String.
+ */
+public interface StreamingJavaFileWriter {
+    /**
+     * Creates the file and passes its writer to {@code contents}. The writer is closed once
+     * {@code contents} returns.
+     */
+    void writeToFile(String canonicalName, Consumer<Writer> contents);
+}
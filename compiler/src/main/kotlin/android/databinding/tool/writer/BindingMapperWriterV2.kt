@@ -29,7 +29,6 @@ import android.databinding.tool.store.GenClassInfoLog
 import com.squareup.javapoet.AnnotationSpec
 import com.squareup.javapoet.ArrayTypeName
 import com.squareup.javapoet.ClassName
-import com.squareup.javapoet.CodeBlock
 import com.squareup.javapoet.FieldSpec
 import com.squareup.javapoet.MethodSpec
 import com.squareup.javapoet.ParameterSpec
@@ -37,7 +36,6 @@ import com.squareup.javapoet.ParameterizedTypeName
 import com.squareup.javapoet.TypeName
 import com.squareup.javapoet.TypeSpec
 import java.util.Locale
-import java.util.HashMap
 import javax.lang.model.element.Modifier
 import kotlin.collections.ArrayList
 import kotlin.collections.List
@@ -56,12 +54,12 @@ import kotlin.collections.mapIndexed
 import kotlin.collections.mutableMapOf
 import kotlin.collections.plus
 import kotlin.collections.sortedBy
-import kotlin.collections.sumBy
 
 class BindingMapperWriterV2(genClassInfoLog: GenClassInfoLog,
                             compilerArgs: CompilerArguments,
                             libTypes: LibTypes,
-                            modulePackages: MutableSet<String>) {
+                            modulePackages: MutableSet<String>,
+                            lazyDependencyLogs: Map<String, GenClassInfoLog>?) {
     companion object {
         private val VIEW = ClassName
                 .get("android.view", "View")
@@ -73,15 +71,10 @@ class BindingMapperWriterV2(genClassInfoLog: GenClassInfoLog,
                 .get("java.lang", "IllegalArgumentException")
         private val STRING = ClassName
                 .get("java.lang", "String")
-        private val INTEGER = ClassName
-                .get("java.lang", "Integer")
         private const val LAYOUT_ID_LOOKUP_MAP_NAME = "INTERNAL_LAYOUT_ID_LOOKUP"
         private const val IMPL_CLASS_NAME = "DataBinderMapperImpl"
         private val SPARSE_INT_ARRAY =
                 ClassName.get("android.util", "SparseIntArray")
-        private val SPARSE_ARRAY =
-                ClassName.get("android.util", "SparseArray")
-        private val HASH_MAP = ClassName.get(HashMap::class.java)
 
         @JvmStatic
         fun createMapperQName(modulePackage: String) = "$modulePackage.$IMPL_CLASS_NAME"
@@ -93,13 +86,6 @@ class BindingMapperWriterV2(genClassInfoLog: GenClassInfoLog,
          * id and calls it directly.
          */
         private const val GET_VIEW_BINDING_CHUNK_SIZE = 50
-
-        /**
-         * Java has a limit on the # of lines in a code block (function). This constant controls
-         * how many statements we add into a code block. [addChunkedStaticBlock] method uses
-         * it to divide long static statement blocks into smaller methods if necessary.
-         */
-        private const val METHOD_BODY_CHUNK_SIZE = 500
     }
 
     private val rClassMap = mutableMapOf<String, ClassName>()
@@ -170,6 +156,11 @@ class BindingMapperWriterV2(genClassInfoLog: GenClassInfoLog,
     private val dependencyModulePackages = modulePackages.filter {
         it != pkg
     }
+    // when set, dependencies are returned as proxies that create their mappers on demand
+    private val lazyDependencies = lazyDependencyLogs?.let {
+        LazyDependencyMapperWriter(it.filterKeys { key -> key != pkg }, dependencyModulePackages,
+                libTypes)
+    }
 
     private fun getRClass(pkg: String): ClassName {
         return rClassMap.getOrPut(pkg) {
@@ -203,6 +194,7 @@ class BindingMapperWriterV2(genClassInfoLog: GenClassInfoLog,
         addMethod(generateCollectDependencies())
         addType(generateInnerBrLookup(brValueLookup))
         addType(generateInnerLayoutIdLookup())
+        lazyDependencies?.addTo(this)
         // must write this at the end
         createLocalizedLayoutIds(this)
     }.build()
@@ -247,30 +239,15 @@ class BindingMapperWriterV2(genClassInfoLog: GenClassInfoLog,
             .classBuilder("InnerBrLookup").apply {
                 /**
                  * generated code looks like:
-                 * static final SparseArray<String> sKeys = new SparseArray<String>(214);
+                 * static final String[] sKeys0 = new String[214];
                  * static {
-                 *     sKeys.put(foo.bar.BR._all, "_all");
+                 *     sKeys0[0] = "_all";
                  *     ....//for all BRs
+                 *
+                 * see [BrLookupWriter] for feature modules and sparse ids.
                  */
                 addModifiers(Modifier.PRIVATE, Modifier.STATIC)
-                val keysTypeName = ParameterizedTypeName.get(
-                        SPARSE_ARRAY,
-                        STRING
-                )
-                val keysField = FieldSpec.builder(keysTypeName, "sKeys").apply {
-                    addModifiers(Modifier.STATIC, Modifier.FINAL)
-                    initializer("new $T($L)", keysTypeName, brValueLookup.size)
-                }.build()
-                addField(keysField)
-                addChunkedStaticBlock(
-                        methodPrefix = "internalPopulateBRLookup",
-                        items = brValueLookup.props
-                ) {
-                    addStatement("$N.put($L, $S)",
-                            keysField,
-                            it.second,
-                            it.first)
-                }
+                BrLookupWriter.addLookup(this, brValueLookup.props)
             }.build()
 
     private fun generateConvertBrIdToString() = MethodSpec
@@ -281,7 +258,8 @@ class BindingMapperWriterV2(genClassInfoLog: GenClassInfoLog,
                 addParameter(idParam)
                 returns(STRING)
                 val tmpResult = "tmpVal"
-                addStatement("$T $L = InnerBrLookup.sKeys.get($N)", STRING, tmpResult, idParam)
+                addStatement("$T $L = InnerBrLookup.$L($N)", STRING, tmpResult,
+                        BrLookupWriter.METHOD_NAME, idParam)
                 addStatement("return $L", tmpResult)
             }.build()
 
@@ -289,40 +267,24 @@ class BindingMapperWriterV2(genClassInfoLog: GenClassInfoLog,
             .classBuilder("InnerLayoutIdLookup").apply {
                 /**
                  * generated code looks like:
-                 * static final HashMap<String, Integer> sKeys = new HashMap<String, Integer>(214);
-                 * static {
-                 *     sKeys.put("layout/main_0", foo.bar.R.layout);
-                 *     ....//for all data binding layouts
+                 * static int getLayoutId(String tag) {
+                 *     switch (tag) {
+                 *         case "layout/main_0": return foo.bar.R.layout.main;
+                 *         ....//for all data binding layouts
+                 *
+                 * see [LayoutIdLookupWriter] for how large modules are chunked.
                  */
                 addModifiers(Modifier.PRIVATE, Modifier.STATIC)
-                val keysTypeName = ParameterizedTypeName.get(
-                        HASH_MAP,
-                        STRING,
-                        INTEGER
-                )
-                val keysField = FieldSpec.builder(keysTypeName, "sKeys").apply {
-                    addModifiers(Modifier.STATIC, Modifier.FINAL)
-                    initializer("new $T($L)",
-                            keysTypeName,
-                            allMappings.sumBy { it.genClass.implementations.size })
-                }.build()
-                addField(keysField)
-                val items = allMappings.flatMap { mapping ->
+                val entries = allMappings.flatMap { mapping ->
                     val rClass = getRClass(mapping.genClass.modulePackage)
                     mapping.genClass.implementations.map { impl ->
-                        Triple(mapping, rClass, impl)
+                        Pair("${impl.tag}_0", "$rClass.layout.${mapping.layoutName}")
                     }
                 }
-                addChunkedStaticBlock(
-                        methodPrefix = "internalPopulateLayoutIdLookup",
-                        items = items
-                ) {
-                    val (mapping, rClass, impl) = it
-                    addStatement("$N.put($S, $L)",
-                            keysField,
-                            "${impl.tag}_0",
-                            "$rClass.layout.${mapping.layoutName}")
-                }
+                LayoutIdLookupWriter.addLookupMethods(
+                        builder = this,
+                        entries = entries,
+                        chunkSize = METHOD_BODY_CHUNK_SIZE)
             }.build()
 
     private fun generateGetLayoutId() = MethodSpec.methodBuilder("getLayoutId").apply {
@@ -334,9 +296,8 @@ class BindingMapperWriterV2(genClassInfoLog: GenClassInfoLog,
         beginControlFlow("if ($N == null)", tagParam).apply {
             addStatement("return 0")
         }.endControlFlow()
-        val tmpResult = "tmpVal"
-        addStatement("$T $L = InnerLayoutIdLookup.sKeys.get($N)", INTEGER, tmpResult, tagParam)
-        addStatement("return $L == null ? 0 : $L", tmpResult, tmpResult)
+        addStatement("return InnerLayoutIdLookup.$L($N)",
+                LayoutIdLookupWriter.METHOD_NAME, tagParam)
     }.build()
 
     /**
@@ -569,83 +530,21 @@ class BindingMapperWriterV2(genClassInfoLog: GenClassInfoLog,
                     ClassName.get(List::class.java),
                     dataBinderMapper
             ))
-            addStatement("$T result = new $T($L)",
-                    listType, listType, dependencyModulePackages.size)
-            dependencyModulePackages.forEach {
-                val mapperType = ClassName.get(it, IMPL_CLASS_NAME)
-                addStatement("result.add(new $T())", mapperType)
+            if (lazyDependencies != null) {
+                val proxyNames = lazyDependencies.proxyNames
+                addStatement("$T result = new $T($L)", listType, listType, proxyNames.size)
+                proxyNames.forEach {
+                    addStatement("result.add(new $L())", it)
+                }
+            } else {
+                addStatement("$T result = new $T($L)",
+                        listType, listType, dependencyModulePackages.size)
+                dependencyModulePackages.forEach {
+                    val mapperType = ClassName.get(it, IMPL_CLASS_NAME)
+                    addStatement("result.add(new $T())", mapperType)
+                }
             }
             addStatement("return result")
         }.build()
     }
-
-    /**
-     * Helper function to generate static code blocks that avoid java method limit.
-     * Based on the given chunk size, this either generates a code section like:
-     *
-     * static {
-     *    // handle item 1
-     *    // handle item 2 ...
-     * }
-     *
-     * or if the list if bigger than [chunkSize], it generates something like:
-     *
-     * private static void prefix1() {
-     *    // handle item 1
-     *    // handle item 2
-     *    ...
-     * }
-     *
-     * private static void prefix2() {
-     *    // handle item 1000
-     *    // handle item 1001
-     *    ...
-     * }
-     *
-     * static {
-     *     prefix1()
-     *     prefix2()
-     *     ...
-     * }
-     */
-    private fun <T> TypeSpec.Builder.addChunkedStaticBlock(
-            methodPrefix:String,
-            chunkSize : Int = METHOD_BODY_CHUNK_SIZE,
-            items: List<T>,
-            addItem : CodeBlock.Builder.(T) -> Unit
-    ) {
-        if (items.isEmpty()) {
-            return
-        }
-        if (items.size <= chunkSize) {
-            // dont create any methods
-            addStaticBlock(CodeBlock.builder()
-                    .apply {
-                        items.forEach {
-                            this.addItem(it)
-                        }
-                    }.build())
-        } else {
-            // divide it into methods to avoid java method size limit
-            val methods = items.chunked(chunkSize).mapIndexed { index, chunk ->
-                MethodSpec.methodBuilder("$methodPrefix$index")
-                        .addModifiers(Modifier.STATIC, Modifier.PRIVATE)
-                        .addCode(CodeBlock.builder().apply {
-                            chunk.forEach {
-                                this.addItem(it)
-                            }
-                        }.build())
-                        .build()
-            }
-            methods.forEach {
-                this.addMethod(it)
-            }
-            // add 1 static block to call all
-            addStaticBlock(CodeBlock.builder().apply {
-                methods.forEach {
-                    addStatement("$N()", it)
-                }
-            }.build())
-        }
-    }
 }
@@ -0,0 +1,149 @@
+/*
+ * Copyright (C) 2021 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package android.databinding.tool.writer
+
+import android.databinding.tool.ext.L
+import android.databinding.tool.ext.N
+import android.databinding.tool.ext.S
+import android.databinding.tool.ext.T
+import com.squareup.javapoet.ArrayTypeName
+import com.squareup.javapoet.ClassName
+import com.squareup.javapoet.FieldSpec
+import com.squareup.javapoet.MethodSpec
+import com.squareup.javapoet.ParameterSpec
+import com.squareup.javapoet.ParameterizedTypeName
+import com.squareup.javapoet.TypeName
+import com.squareup.javapoet.TypeSpec
+import javax.lang.model.element.Modifier
+
+/**
+ * Generates the lookup from a BR id to the name of its property.
+ *
+ * BR ids are assigned densely starting from 0, or from the feature's package id shifted by 16 bits
+ * in feature modules. Each such range is kept in a `String[]` indexed by the lower 16 bits of the
+ * id:
+ * ```
+ * static final String[] sKeys0 = new String[214];
+ * static {
+ *     sKeys0[0] = "_all";
+ *     ....//for all BRs
+ * }
+ * static String get(int id) {
+ *     int index = id & 0xffff;
+ *     switch (id >>> 16) {
+ *         case 0: return index < sKeys0.length ? sKeys0[index] : null;
+ *     }
+ *     return null;
+ * }
+ * ```
+ * If the ids of a range leave more than half of its array empty, all ids are kept in a
+ * `SparseArray` instead.
+ */
+object BrLookupWriter {
+    const val METHOD_NAME = "get"
+
+    private val STRING = ClassName.get("java.lang", "String")
+    private val SPARSE_ARRAY = ClassName.get("android.util", "SparseArray")
+
+    /**
+     * Adds the fields holding the given property name to id pairs and a static `get(int)` method
+     * returning the name of an id or null if the id is unknown.
+     */
+    @JvmStatic
+    @JvmOverloads
+    fun addLookup(
+            builder: TypeSpec.Builder,
+            props: List<Pair<String, Int>>,
+            chunkSize: Int = METHOD_BODY_CHUNK_SIZE
+    ) {
+        val ranges = props.groupBy { it.second ushr 16 }.toSortedMap()
+        if (ranges.values.all { isDense(it) }) {
+            addArrayLookup(builder, ranges, chunkSize)
+        } else {
+            addSparseArrayLookup(builder, props, chunkSize)
+        }
+    }
+
+    private fun isDense(range: List<Pair<String, Int>>) = range.size * 2 >= arraySize(range)
+
+    private fun arraySize(range: List<Pair<String, Int>>) =
+            range.fold(0) { max, prop -> maxOf(max, prop.second and 0xffff) } + 1
+
+    private fun addArrayLookup(
+            builder: TypeSpec.Builder,
+            ranges: Map<Int, List<Pair<String, Int>>>,
+            chunkSize: Int
+    ) = builder.apply {
+        val arrayType = ArrayTypeName.of(STRING)
+        val fields = ranges.map { (range, props) ->
+            val field = FieldSpec.builder(arrayType, "sKeys$range").apply {
+                addModifiers(Modifier.STATIC, Modifier.FINAL)
+                initializer("new $T[$L]", STRING, arraySize(props))
+            }.build()
+            addField(field)
+            addChunkedStaticBlock(
+                    methodPrefix = "internalPopulateBRLookup${range}_",
+                    chunkSize = chunkSize,
+                    items = props
+            ) {
+                addStatement("$N[$L] = $S", field, it.second and 0xffff, it.first)
+            }
+            Pair(range, field)
+        }
+        addMethod(MethodSpec.methodBuilder(METHOD_NAME).apply {
+            addModifiers(Modifier.STATIC)
+            returns(STRING)
+            val idParam = ParameterSpec.builder(TypeName.INT, "id").build()
+            addParameter(idParam)
+            addStatement("int index = $N & 0xffff", idParam)
+            beginControlFlow("switch ($N >>> 16)", idParam)
+            fields.forEach { (range, field) ->
+                addStatement("case $L: return index < $N.length ? $N[index] : null",
+                        range, field, field)
+            }
+            endControlFlow()
+            addStatement("return null")
+        }.build())
+    }
+
+    private fun addSparseArrayLookup(
+            builder: TypeSpec.Builder,
+            props: List<Pair<String, Int>>,
+            chunkSize: Int
+    ) = builder.apply {
+        val keysTypeName = ParameterizedTypeName.get(SPARSE_ARRAY, STRING)
+        val keysField = FieldSpec.builder(keysTypeName, "sKeys").apply {
+            addModifiers(Modifier.STATIC, Modifier.FINAL)
+            initializer("new $T($L)", keysTypeName, props.size)
+        }.build()
+        addField(keysField)
+        addChunkedStaticBlock(
+                methodPrefix = "internalPopulateBRLookup",
+                chunkSize = chunkSize,
+                items = props
+        ) {
+            addStatement("$N.put($L, $S)", keysField, it.second, it.first)
+        }
+        addMethod(MethodSpec.methodBuilder(METHOD_NAME).apply {
+            addModifiers(Modifier.STATIC)
+            returns(STRING)
+            val idParam = ParameterSpec.builder(TypeName.INT, "id").build()
+            addParameter(idParam)
+            addStatement("return $N.get($N)", keysField, idParam)
+        }.build())
+    }
+}
@@ -0,0 +1,100 @@
+/*
+ * Copyright (C) 2021 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package android.databinding.tool.writer
+
+import android.databinding.tool.ext.N
+import com.squareup.javapoet.CodeBlock
+import com.squareup.javapoet.MethodSpec
+import com.squareup.javapoet.TypeSpec
+import javax.lang.model.element.Modifier
+
+/**
+ * Java has a limit on the # of lines in a code block (function). This constant controls
+ * how many statements we add into a code block. [addChunkedStaticBlock] method uses
+ * it to divide long static statement blocks into smaller methods if necessary.
+ */
+const val METHOD_BODY_CHUNK_SIZE = 500
+
+/**
+ * Helper function to generate static code blocks that avoid java method limit.
+ * Based on the given chunk size, this either generates a code section like:
+ *
+ * static {
+ *    // handle item 1
+ *    // handle item 2 ...
+ * }
+ *
+ * or if the list if bigger than [chunkSize], it generates something like:
+ *
+ * private static void prefix1() {
+ *    // handle item 1
+ *    // handle item 2
+ *    ...
+ * }
+ *
+ * private static void prefix2() {
+ *    // handle item 1000
+ *    // handle item 1001
+ *    ...
+ * }
+ *
+ * static {
+ *     prefix1()
+ *     prefix2()
+ *     ...
+ * }
+ */
+internal fun <T> TypeSpec.Builder.addChunkedStaticBlock(
+        methodPrefix:String,
+        chunkSize : Int = METHOD_BODY_CHUNK_SIZE,
+        items: List<T>,
+        addItem : CodeBlock.Builder.(T) -> Unit
+) {
+    if (items.isEmpty()) {
+        return
+    }
+    if (items.size <= chunkSize) {
+        // dont create any methods
+        addStaticBlock(CodeBlock.builder()
+                .apply {
+                    items.forEach {
+                        this.addItem(it)
+                    }
+                }.build())
+    } else {
+        // divide it into methods to avoid java method size limit
+        val methods = items.chunked(chunkSize).mapIndexed { index, chunk ->
+            MethodSpec.methodBuilder("$methodPrefix$index")
+                    .addModifiers(Modifier.STATIC, Modifier.PRIVATE)
+                    .addCode(CodeBlock.builder().apply {
+                        chunk.forEach {
+                            this.addItem(it)
+                        }
+                    }.build())
+                    .build()
+        }
+        methods.forEach {
+            this.addMethod(it)
+        }
+        // add 1 static block to call all
+        addStaticBlock(CodeBlock.builder().apply {
+            methods.forEach {
+                addStatement("$N()", it)
+            }
+        }.build())
+    }
+}
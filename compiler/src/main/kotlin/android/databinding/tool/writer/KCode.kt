@@ -131,7 +131,7 @@ class KCode (private val s : String? = null){
     }
 
 
-    fun toS(n : Int, sb : StringBuilder) {
+    fun toS(n : Int, sb : Appendable) {
         if (s != null) {
             sb.append(s)
         }
@@ -164,6 +164,14 @@ class KCode (private val s : String? = null){
         toS(0, sb)
         return sb.toString()
     }
+
+    /**
+     * Renders the code straight into the given output, e.g. the writer of the generated file,
+     * without first building the whole source as a String.
+     */
+    fun generate(out : Appendable) {
+        toS(0, out)
+    }
 }
 
 fun kcode(s : String?, init : (KCode.() -> Unit)? = null) : KCode {
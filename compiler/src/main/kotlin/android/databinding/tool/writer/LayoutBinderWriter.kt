@@ -16,9 +16,12 @@ package android.databinding.tool.writer
 import android.databinding.tool.Binding
 import android.databinding.tool.BindingTarget
 import android.databinding.tool.CallbackWrapper
+import android.databinding.tool.CompilerOptions
+import android.databinding.tool.Context
 import android.databinding.tool.InverseBinding
 import android.databinding.tool.LayoutBinder
 import android.databinding.tool.LibTypes
+import android.databinding.tool.MergedBinding
 import android.databinding.tool.expr.Expr
 import android.databinding.tool.expr.ExprModel
 import android.databinding.tool.expr.FieldAccessExpr
@@ -329,6 +332,27 @@ fun indexFromTag(tag : String) : kotlin.Int {
     return Integer.parseInt(tag.substring(startIndex))
 }
 
+private const val DIRTY_FLAGS_UPDATER = "sDirtyFlagsUpdater"
+
+private const val ATOMIC_LONG_FIELD_UPDATER = "java.util.concurrent.atomic.AtomicLongFieldUpdater"
+
+// rough bytecode sizes used to decide when to split executeBindings, on the high side so that
+// the generated methods stay within the budget
+private const val LOCAL_LOAD_SIZE = 2
+private const val EXPR_NODE_SIZE = 6
+private const val READ_SIZE = 40
+private const val SETTER_CALL_SIZE = 12
+private const val API_CHECK_SIZE = 10
+private const val DIRTY_CHECK_SIZE = 14
+private const val VALUE_CHECK_SIZE = 28
+private const val LAST_VALUE_SIZE = 8
+private const val LOCAL_DECLARATION_SIZE = 8
+private const val FLAGS_SIZE = 24
+private const val FLAGS_WORD_SIZE = 16
+private const val HELPER_CALL_SIZE = 4
+private const val INCLUDED_BINDING_SIZE = 10
+private const val VIEW_STUB_BINDING_SIZE = 24
+
 class LayoutBinderWriter(val layoutBinder : LayoutBinder, val libTypes: LibTypes) {
     val hasBaseBinder = layoutBinder.enableV2() || layoutBinder.hasVariations()
     val model = layoutBinder.model
@@ -343,6 +367,46 @@ class LayoutBinderWriter(val layoutBinder : LayoutBinder, val libTypes: LibTypes
 
     val className = layoutBinder.implementationName
 
+    /**
+     * When set, the dirty flags are volatile and updated with compare and swap instead of being
+     * guarded by the binding's monitor. See [android.databinding.tool.CompilerOptions].
+     */
+    val lockFreeDirtyFlags = Context.compilerOptions.lockFreeDirtyFlags
+
+    /**
+     * When set, setters whose values did not change since they were last applied are skipped.
+     * See [android.databinding.tool.CompilerOptions].
+     */
+    val skipUnchangedSetters = Context.compilerOptions.skipUnchangedSetters
+
+    /**
+     * Estimated bytecode size above which the setters of executeBindings are moved into helper
+     * methods, 0 to never split. See [android.databinding.tool.CompilerOptions].
+     */
+    val executeBindingsBudget = Context.compilerOptions.executeBindingsBudget
+
+    /**
+     * When set, the child indices of the bound views are recorded by the first instance and later
+     * instances find their views through them instead of walking the whole tree. Layouts that
+     * include other layouts or are merged always walk the tree.
+     * See [android.databinding.tool.CompilerOptions].
+     */
+    val usesBindingPaths by lazy {
+        Context.compilerOptions.cacheBindingPaths && !layoutBinder.isMerge &&
+                layoutBinder.bindingTargets.none {
+                    it.isUsed && (it.isDataBindingLayout || it.includedLayout != null)
+                }
+    }
+
+    /**
+     * Bound views that mapBindings finds by their id rather than by their tag.
+     */
+    val viewsWithIds by lazy {
+        layoutBinder.bindingTargets.filter {
+            it.isUsed && !it.isDataBindingLayout && (!it.supportsTag() || (it.id != null && (it.tag == null || it.includedLayout != null)))
+        }
+    }
+
     val baseClassName = "${layoutBinder.className}"
 
     val includedBinders by lazy {
@@ -357,7 +421,13 @@ class LayoutBinderWriter(val layoutBinder : LayoutBinder, val libTypes: LibTypes
         model.exprMap.values.filterIsInstance(LambdaExpr::class.java)
     }
 
-    fun write(minSdk: kotlin.Int): String {
+    fun write(minSdk: kotlin.Int): String = createCode(minSdk).generate()
+
+    /**
+     * Builds the code of the binding class without rendering it, so that it can be streamed into
+     * the generated file via [KCode.generate].
+     */
+    fun createCode(minSdk: kotlin.Int): KCode {
         Scope.reset()
         layoutBinder.resolveWhichExpressionsAreUsed()
         calculateIndices();
@@ -376,6 +446,9 @@ class LayoutBinderWriter(val layoutBinder : LayoutBinder, val libTypes: LibTypes
             annotateWithGenerated()
             block("public class $classDeclaration ${buildImplements()}") {
                 nl(declareIncludeViews())
+                if (usesBindingPaths) {
+                    nl(declareBindingPaths())
+                }
                 nl(declareViews())
                 nl(declareVariables())
                 nl(declareBoundValues())
@@ -389,6 +462,7 @@ class LayoutBinderWriter(val layoutBinder : LayoutBinder, val libTypes: LibTypes
                 nl(declareConstructor(minSdk))
                 nl(declareInvalidateAll())
                 nl(declareHasPendingBindings())
+                nl(declareMarkDirty())
                 nl(declareSetVariable())
                 nl(variableSettersAndGetters())
                 nl(declareSetLifecycleOwnerOverride())
@@ -415,7 +489,7 @@ class LayoutBinderWriter(val layoutBinder : LayoutBinder, val libTypes: LibTypes
                 nl(flagMapping())
                 nl("//end")
             }
-        }.generate()
+        }
     }
 
     fun buildImplements(): String {
@@ -499,9 +573,6 @@ class LayoutBinderWriter(val layoutBinder : LayoutBinder, val libTypes: LibTypes
                     }
                 }
             }
-            val viewsWithIds = layoutBinder.bindingTargets.filter {
-                it.isUsed && !it.isDataBindingLayout && (!it.supportsTag() || (it.id != null && (it.tag == null || it.includedLayout != null)))
-            }
             if (viewsWithIds.isEmpty()) {
                 tab("sViewsWithIds = null;")
             } else {
@@ -523,6 +594,100 @@ class LayoutBinderWriter(val layoutBinder : LayoutBinder, val libTypes: LibTypes
         }
     }
 
+    private fun mapBindingsCall(bindingCount: kotlin.Int) = if (usesBindingPaths) {
+        "mapBindingsByPath(bindingComponent, root)"
+    } else {
+        "mapBindings(bindingComponent, root, $bindingCount, sIncludes, sViewsWithIds)"
+    }
+
+    /**
+     * Declares mapBindingsByPath, which reuses the child indices of the views found by the last
+     * call to mapBindings. Every view reached through them is checked against its tag or id and
+     * mapBindings runs again if the tree does not match, recording the paths of the new tree.
+     * Trees whose paths cannot be recorded leave sNoBindingPaths so they are not tried again.
+     */
+    fun declareBindingPaths() = kcode("") {
+        val bindingCount = maxIndex() + 1
+        val targets = arrayOfNulls<BindingTarget>(bindingCount)
+        indices.forEach { (target, index) -> targets[index] = target }
+        val tags = targets.map { target ->
+            if (target == null || viewsWithIds.contains(target) || target.tag == null) {
+                "null"
+            } else {
+                "\"${target.tag}\""
+            }
+        }
+        val ids = targets.map { target ->
+            if (target != null && viewsWithIds.contains(target)) target.androidId else "0"
+        }
+        nl("// child indices from the root to each bound view, recorded by the first instance")
+        nl("private static volatile int[][] sBindingPaths;")
+        nl("private static final int[][] sNoBindingPaths = new int[0][];")
+        nl("private static final String[] sBindingTags = new String[] {${tags.joinToString(", ")}};")
+        nl("private static final int[] sBindingIds = new int[] {${ids.joinToString(", ")}};")
+        nl("")
+        block("private static Object[] mapBindingsByPath(${libTypes.dataBindingComponent} bindingComponent, View root)") {
+            nl("int[][] paths = sBindingPaths;")
+            block("if (paths != null && paths != sNoBindingPaths)") {
+                nl("Object[] bindings = new Object[$bindingCount];")
+                block("if (findBindingsByPath(root, paths, bindings))") {
+                    nl("return bindings;")
+                }
+            }
+            nl("Object[] bindings = mapBindings(bindingComponent, root, $bindingCount, sIncludes, sViewsWithIds);")
+            nl("// the first tree, or another one after a mismatch, e.g. a different configuration")
+            block("if (paths != sNoBindingPaths)") {
+                nl("int[][] recorded = recordBindingPaths(root, bindings);")
+                nl("sBindingPaths = recorded != null ? recorded : sNoBindingPaths;")
+            }
+            nl("return bindings;")
+        }
+        nl("")
+        block("private static boolean findBindingsByPath(View root, int[][] paths, Object[] bindings)") {
+            block("for (int i = 0; i < paths.length; i++)") {
+                nl("int[] path = paths[i];")
+                block("if (path == null)") {
+                    nl("continue;")
+                }
+                nl("View view = root;")
+                block("for (int childIndex : path)") {
+                    block("if (!(view instanceof android.view.ViewGroup) || childIndex >= ((android.view.ViewGroup) view).getChildCount())") {
+                        nl("return false;")
+                    }
+                    nl("view = ((android.view.ViewGroup) view).getChildAt(childIndex);")
+                }
+                nl("String tag = sBindingTags[i];")
+                block("if (tag != null ? !tag.equals(view.getTag()) : view.getId() != sBindingIds[i])") {
+                    nl("return false;")
+                }
+                nl("bindings[i] = view;")
+            }
+            nl("return true;")
+        }
+        nl("")
+        block("private static int[][] recordBindingPaths(View root, Object[] bindings)") {
+            nl("int[][] paths = new int[bindings.length][];")
+            block("for (int i = 0; i < bindings.length; i++)") {
+                block("if (!(bindings[i] instanceof View))") {
+                    nl("continue;")
+                }
+                nl("int depth = 0;")
+                block("for (View view = (View) bindings[i]; view != root; view = (View) view.getParent())") {
+                    block("if (!(view.getParent() instanceof android.view.ViewGroup))") {
+                        nl("return null;")
+                    }
+                    nl("depth++;")
+                }
+                nl("int[] path = new int[depth];")
+                block("for (View view = (View) bindings[i]; view != root; view = (View) view.getParent())") {
+                    nl("path[--depth] = ((android.view.ViewGroup) view.getParent()).indexOfChild(view);")
+                }
+                nl("paths[i] = path;")
+            }
+            nl("return paths;")
+        }
+    }
+
     fun declareConstructor(minSdk: kotlin.Int) = kcode("") {
         val bindingCount = maxIndex() + 1
         val parameterType: String
@@ -538,7 +703,7 @@ class LayoutBinderWriter(val layoutBinder : LayoutBinder, val libTypes: LibTypes
         if (hasBaseBinder) {
             nl("")
             nl("public $className(@Nullable ${libTypes.dataBindingComponent} bindingComponent, @NonNull $parameterType root) {") {
-                tab("this(bindingComponent, root, mapBindings(bindingComponent, root, $bindingCount, sIncludes, sViewsWithIds));")
+                tab("this(bindingComponent, root, ${mapBindingsCall(bindingCount)});")
             }
             nl("}")
             nl("private $className(${libTypes.dataBindingComponent} bindingComponent, $parameterType root, Object[] bindings) {") {
@@ -552,7 +717,7 @@ class LayoutBinderWriter(val layoutBinder : LayoutBinder, val libTypes: LibTypes
         } else {
             nl("public $baseClassName(@NonNull ${libTypes.dataBindingComponent} bindingComponent, @NonNull $parameterType root) {") {
                 tab("super(bindingComponent, $superParam, ${model.observables.size});")
-                tab("final Object[] bindings = mapBindings(bindingComponent, root, $bindingCount, sIncludes, sViewsWithIds);")
+                tab("final Object[] bindings = ${mapBindingsCall(bindingCount)};")
             }
         }
         if (layoutBinder.requiredComponent != null) {
@@ -714,9 +879,15 @@ class LayoutBinderWriter(val layoutBinder : LayoutBinder, val libTypes: LibTypes
         block("public void invalidateAll()") {
             val fs = FlagSet(layoutBinder.model.invalidateAnyBitSet,
                     layoutBinder.model.flagBucketCount);
-            block("synchronized(this)") {
+            if (lockFreeDirtyFlags) {
                 for (i in (0..(mDirtyFlags.buckets.size - 1))) {
-                    tab("${mDirtyFlags.localValue(i)} = ${fs.localValue(i)};")
+                    nl("${mDirtyFlags.localValue(i)} = ${fs.localValue(i)};")
+                }
+            } else {
+                block("synchronized(this)") {
+                    for (i in (0..(mDirtyFlags.buckets.size - 1))) {
+                        tab("${mDirtyFlags.localValue(i)} = ${fs.localValue(i)};")
+                    }
                 }
             }
             includedBinders.filter { it.isUsed }.forEach { binder ->
@@ -730,16 +901,23 @@ class LayoutBinderWriter(val layoutBinder : LayoutBinder, val libTypes: LibTypes
         nl("@Override")
         nl("public boolean hasPendingBindings() {") {
             if (mDirtyFlags.buckets.size > 0) {
-                tab("synchronized(this) {") {
-                    val flagCheck = 0.rangeTo(mDirtyFlags.buckets.size - 1).map {
-                        "${mDirtyFlags.localValue(it)} != 0"
-                    }.joinToString(" || ")
+                val flagCheck = 0.rangeTo(mDirtyFlags.buckets.size - 1).map {
+                    "${mDirtyFlags.localValue(it)} != 0"
+                }.joinToString(" || ")
+                if (lockFreeDirtyFlags) {
                     tab("if ($flagCheck) {") {
                         tab("return true;")
                     }
                     tab("}")
+                } else {
+                    tab("synchronized(this) {") {
+                        tab("if ($flagCheck) {") {
+                            tab("return true;")
+                        }
+                        tab("}")
+                    }
+                    tab("}")
                 }
-                tab("}")
             }
             includedBinders.filter { it.isUsed }.forEach { binder ->
                 tab("if (${binder.fieldName}.hasPendingBindings()) {") {
@@ -752,6 +930,38 @@ class LayoutBinderWriter(val layoutBinder : LayoutBinder, val libTypes: LibTypes
         nl("}")
     }
 
+    /**
+     * Declares the compare and swap loop used to set dirty flags when [lockFreeDirtyFlags] is
+     * enabled. It always writes, even if the flags are already set, so that the values written
+     * before it are published to the thread running executeBindings.
+     */
+    fun declareMarkDirty() = kcode("") {
+        if (lockFreeDirtyFlags && mDirtyFlags.buckets.isNotEmpty()) {
+            block("private void markDirty(${dirtyFlagsUpdaterType()} updater, long flags)") {
+                nl("long current;")
+                block("do") {
+                    nl("current = updater.get(this);")
+                }.app(" while (!updater.compareAndSet(this, current, current | flags));")
+            }
+        }
+    }
+
+    private fun dirtyFlagsUpdaterType() = "$ATOMIC_LONG_FIELD_UPDATER<$className>"
+
+    /**
+     * Ors [flagSet] into the dirty flags. [locked] writes the update for when the dirty flags are
+     * guarded by the monitor of [owner].
+     */
+    private fun KCode.orDirtyFlags(flagSet: FlagSet, owner: String, locked: KCode.() -> Unit) {
+        if (lockFreeDirtyFlags) {
+            mDirtyFlags.mapOr(flagSet) { suffix, index ->
+                nl("markDirty($DIRTY_FLAGS_UPDATER$suffix, ${flagSet.localValue(index)});")
+            }
+        } else {
+            block("synchronized($owner)", locked)
+        }
+    }
+
     fun declareSetVariable() = kcode("") {
         nl("@Override")
         block("public boolean setVariable(int variableId, @Nullable Object variable) ") {
@@ -789,7 +999,7 @@ class LayoutBinderWriter(val layoutBinder : LayoutBinder, val libTypes: LibTypes
                     if (used) {
                         // set dirty flags!
                         val flagSet = it.invalidateFlagSet
-                        block("synchronized(this)") {
+                        orDirtyFlags(flagSet, "this") {
                             mDirtyFlags.mapOr(flagSet) { suffix, index ->
                                 nl("${mDirtyFlags.localName}$suffix |= ${flagSet.localValue(index)};")
                             }
@@ -844,22 +1054,22 @@ class LayoutBinderWriter(val layoutBinder : LayoutBinder, val libTypes: LibTypes
 
         model.observables.forEach {
             block("private boolean ${it.onChangeName}(${it.resolvedType.toJavaCode()} ${it.readableName}, int fieldId)") {
-                block("if (fieldId == ${"".br()})") {
-                    val flagSet: FlagSet
-                    if (it is FieldAccessExpr && it.resolvedType.observableGetterName != null) {
-                        flagSet = it.bindableDependents.map { expr -> expr.invalidateFlagSet }
-                                .foldRight(it.invalidateFlagSet) { l, r -> l.or(r) }
-                    } else {
-                        flagSet = it.invalidateFlagSet
-                    }
-
-                    block("synchronized(this)") {
-                        mDirtyFlags.mapOr(flagSet) { suffix, index ->
-                            tab("${mDirtyFlags.localName}$suffix |= ${flagSet.localValue(index)};")
+                val cases = arrayListOf<Pair<String, KCode.() -> Unit>>()
+                val allFlagSet: FlagSet
+                if (it is FieldAccessExpr && it.resolvedType.observableGetterName != null) {
+                    allFlagSet = it.bindableDependents.map { expr -> expr.invalidateFlagSet }
+                            .foldRight(it.invalidateFlagSet) { l, r -> l.or(r) }
+                } else {
+                    allFlagSet = it.invalidateFlagSet
+                }
+                cases.add(Pair("".br()) {
+                    orDirtyFlags(allFlagSet, "this") {
+                        mDirtyFlags.mapOr(allFlagSet) { suffix, index ->
+                            tab("${mDirtyFlags.localName}$suffix |= ${allFlagSet.localValue(index)};")
                         }
                     }
                     nl("return true;")
-                }
+                })
 
                 val accessedFields: List<FieldAccessExpr> = it.parents.filterIsInstance(FieldAccessExpr::class.java)
                 accessedFields.filter { it.isUsed && it.hasBindableAnnotations() }
@@ -869,18 +1079,33 @@ class LayoutBinderWriter(val layoutBinder : LayoutBinder, val libTypes: LibTypes
                             // If two expressions look different but resolve to the same method,
                             // we are not yet able to merge them. This is why we merge their
                             // flags below.
-                            block("else if (fieldId == ${it.key})") {
-                                block("synchronized(this)") {
-                                    val flagSet = it.value.foldRight(FlagSet()) { l, r -> l.second.invalidateFlagSet.or(r) }
-
+                            val flagSet = it.value.foldRight(FlagSet()) { l, r -> l.second.invalidateFlagSet.or(r) }
+                            cases.add(Pair(it.key) {
+                                orDirtyFlags(flagSet, "this") {
                                     mDirtyFlags.mapOr(flagSet) { _, index ->
                                         tab("${mDirtyFlags.localValue(index)} |= ${flagSet.localValue(index)};")
                                     }
                                 }
                                 nl("return true;")
+                            })
+                        }
+                if (Context.finalBrIds && cases.size > 1) {
+                    // BR ids are constants, let javac pick a table or lookup switch instead of
+                    // comparing the id against every property.
+                    block("switch (fieldId)") {
+                        cases.forEach { (label, body) ->
+                            block("case $label:") {
+                                body()
                             }
-
                         }
+                    }
+                } else {
+                    cases.forEachIndexed { index, (label, body) ->
+                        block("${if (index == 0) "" else "else "}if (fieldId == $label)") {
+                            body()
+                        }
+                    }
+                }
                 nl("return false;")
             }
             nl("")
@@ -917,10 +1142,49 @@ class LayoutBinderWriter(val layoutBinder : LayoutBinder, val libTypes: LibTypes
         }
     }
 
+    /**
+     * Whether the setter of this binding is only called when its values changed. Bindings that
+     * need the old value already receive it and decide on their own. Values of non dynamic
+     * expressions only change on invalidateAll, which always runs the setters.
+     *
+     * Attributes the view changes on its own, i.e. two-way attributes and their events, always
+     * run the setter since the last value set by the binding may no longer be what the view
+     * shows.
+     *
+     * Values are only compared when they are read into locals of executeBindings, so the check
+     * does not evaluate them again.
+     */
+    private fun Binding.skipsUnchangedValues() = skipUnchangedSetters != null &&
+            !requiresOldValue() &&
+            componentExpressions.all { it.isDynamic && it.needsLocalField } &&
+            !isChangedByView()
+
+    private fun Binding.isChangedByView(): Boolean {
+        val attributes = ((this as? MergedBinding)?.attributes?.toList() ?: listOf(name))
+                .map { it.substringAfterLast(':') }
+        return target.inverseBindings.any { inverse ->
+            inverse.name.substringAfterLast(':') in attributes ||
+                    inverse.getterCall?.eventAttribute?.substringAfterLast(':') in attributes
+        }
+    }
+
+    private fun Binding.keepsLastValues() = requiresOldValue() || skipsUnchangedValues()
+
+    private fun Binding.valuesChangedCheck() = componentExpressions.joinToString(" || ") { expr ->
+        val value = expr.executePendingLocalName
+        val lastValue = "this.${expr.oldValueName}"
+        if (expr.resolvedType.isPrimitive
+                || skipUnchangedSetters == CompilerOptions.ValueEquality.IDENTITY) {
+            "$lastValue != $value"
+        } else {
+            "($lastValue != $value && ($value == null || !$value.equals($lastValue)))"
+        }
+    }
+
     fun declareBoundValues() = kcode("// values") {
         layoutBinder.sortedTargets.filter { it.isUsed }
                 .flatMap { it.bindings }
-                .filter { it.requiresOldValue() }
+                .filter { it.keepsLastValues() }
                 .flatMap { it.componentExpressions.toList() }
                 .groupBy { it }
                 .forEach {
@@ -962,10 +1226,10 @@ class LayoutBinderWriter(val layoutBinder : LayoutBinder, val libTypes: LibTypes
                             nl(inverseBinding.callbackExprModel.localizeGlobalVariables(valueExpr))
                             nl(inverseBinding.executionPath.toCode())
                         } else {
-                            block("synchronized($className.this)") {
-                                val flagSet = inverseBinding.chainedExpressions.fold(FlagSet(), { initial, expr ->
-                                    initial.or(FlagSet(expr.id))
-                                })
+                            val flagSet = inverseBinding.chainedExpressions.fold(FlagSet(), { initial, expr ->
+                                initial.or(FlagSet(expr.id))
+                            })
+                            orDirtyFlags(flagSet, "$className.this") {
                                 mDirtyFlags.mapOr(flagSet) { _, index ->
                                     tab("${mDirtyFlags.localValue(index)} |= ${flagSet.binaryCode(index)};")
                                 }
@@ -982,10 +1246,21 @@ class LayoutBinderWriter(val layoutBinder : LayoutBinder, val libTypes: LibTypes
         model.ext.localizedFlags.forEach { flag ->
             flag.notEmpty { suffix, value ->
                 nl("private")
-                app(" ", if (flag.isDynamic) null else "static final");
+                app(" ", if (flag.isDynamic) {
+                    if (lockFreeDirtyFlags) "volatile" else null
+                } else {
+                    "static final"
+                });
                 app(" ", " ${flag.type} ${flag.localName}$suffix = ${longToBinary(value)};")
             }
         }
+        if (lockFreeDirtyFlags) {
+            for (i in (0 until mDirtyFlags.buckets.size)) {
+                val suffix = getWordSuffix(i)
+                nl("private static final ${dirtyFlagsUpdaterType()} $DIRTY_FLAGS_UPDATER$suffix =")
+                tab("$ATOMIC_LONG_FIELD_UPDATER.newUpdater($className.class, \"${mDirtyFlags.localValue(i)}\");")
+            }
+        }
     }
 
     fun flagMapping() = kcode("/* flag mapping") {
@@ -1006,10 +1281,16 @@ class LayoutBinderWriter(val layoutBinder : LayoutBinder, val libTypes: LibTypes
             for (i in (0 until mDirtyFlags.buckets.size)) {
                 nl("${tmpDirtyFlags.type} ${tmpDirtyFlags.localValue(i)} = 0;")
             }
-            block("synchronized(this)") {
+            if (lockFreeDirtyFlags) {
                 for (i in (0 until mDirtyFlags.buckets.size)) {
-                    nl("${tmpDirtyFlags.localValue(i)} = ${mDirtyFlags.localValue(i)};")
-                    nl("${mDirtyFlags.localValue(i)} = 0;")
+                    nl("${tmpDirtyFlags.localValue(i)} = $DIRTY_FLAGS_UPDATER${getWordSuffix(i)}.getAndSet(this, 0);")
+                }
+            } else {
+                block("synchronized(this)") {
+                    for (i in (0 until mDirtyFlags.buckets.size)) {
+                        nl("${tmpDirtyFlags.localValue(i)} = ${mDirtyFlags.localValue(i)};")
+                        nl("${mDirtyFlags.localValue(i)} = 0;")
+                    }
                 }
             }
             model.pendingExpressions.filter { it.needsLocalField }.forEach {
@@ -1038,48 +1319,79 @@ class LayoutBinderWriter(val layoutBinder : LayoutBinder, val libTypes: LibTypes
                         + "Please report on b.android.com. %d %s %s", layoutBinder.layoutname,
                         batch.size, batch[0], batch[0].toCode().generate())
             }
-            //
+            // setters run regardless of their last values after invalidateAll
+            val invalidateAllFlags = FlagSet(model.invalidateAnyBitSet, model.flagBucketCount)
+            val invalidatedAll = tmpDirtyFlags.mapOr(invalidateAllFlags) { _, index ->
+                "(${tmpDirtyFlags.localValue(index)} & ${invalidateAllFlags.localValue(index)}) != 0"
+            }.joinToString(" || ")
+            val chunks = arrayListOf<SplitChunk>()
             layoutBinder.sortedTargets.filter { it.isUsed }
                     .flatMap { it.bindings }
                     .groupBy {
                         tmpDirtyFlags.mapOr(it.expr.dirtyFlagSet) { _, index ->
                             "(${tmpDirtyFlags.localValue(index)} & ${it.expr.dirtyFlagSet.localValue(index)}) != 0"
                         }.joinToString(" || ")
-                    }.forEach {
-                block("if (${it.key})") {
-                    it.value.groupBy { Math.max(1, it.minApi) }.forEach {
-                        val setterValues = kcode("") {
-                            it.value.forEach { binding ->
-                                nl(binding.toAssignmentCode()).app(";")
-                            }
-                        }
-                        nl("// api target ${it.key}")
-                        if (it.key > 1) {
-                            block("if(getBuildSdkInt() >= ${it.key})") {
-                                nl(setterValues)
+                    }.forEach { (condition, bindings) ->
+                val dirtyCheck = dirtyCheckSize(tmpDirtyFlags, bindings.first().expr.dirtyFlagSet)
+                chunkedByBudget(bindings, dirtyCheck) { it.estimatedSetterSize() }.forEach { part ->
+                    val size = dirtyCheck + part.sumBy { it.estimatedSetterSize() }
+                    chunks.add(SplitChunk(size, localParams(part.map { it.expr })) {
+                        block("if ($condition)") {
+                            part.groupBy { Math.max(1, it.minApi) }.forEach {
+                                val setterValues = kcode("") {
+                                    it.value.forEach { binding ->
+                                        if (binding.skipsUnchangedValues()) {
+                                            block("if ($invalidatedAll || ${binding.valuesChangedCheck()})") {
+                                                nl(binding.toAssignmentCode()).app(";")
+                                            }
+                                        } else {
+                                            nl(binding.toAssignmentCode()).app(";")
+                                        }
+                                    }
+                                }
+                                nl("// api target ${it.key}")
+                                if (it.key > 1) {
+                                    block("if(getBuildSdkInt() >= ${it.key})") {
+                                        nl(setterValues)
+                                    }
+                                } else {
+                                    nl(setterValues)
+                                }
                             }
-                        } else {
-                            nl(setterValues)
                         }
-                    }
+                    })
                 }
             }
 
 
             layoutBinder.sortedTargets.filter { it.isUsed }
                     .flatMap { it.bindings }
-                    .filter { it.requiresOldValue() }
+                    .filter { it.keepsLastValues() }
                     .groupBy {
                         tmpDirtyFlags.mapOr(it.expr.dirtyFlagSet) { _, index ->
                             "(${tmpDirtyFlags.localValue(index)} & ${it.expr.dirtyFlagSet.localValue(index)}) != 0"
                         }.joinToString(" || ")
-                    }.forEach {
-                block("if (${it.key})") {
-                    it.value.groupBy { it.expr }.map { it.value.first() }.forEach {
-                        it.componentExpressions.forEach { expr ->
-                            nl("this.${expr.oldValueName} = ${expr.toCode().generate()};")
+                    }.forEach { (condition, bindings) ->
+                val dirtyCheck = dirtyCheckSize(tmpDirtyFlags, bindings.first().expr.dirtyFlagSet)
+                val lastValues = bindings.groupBy { it.expr }.map { it.value.first() }
+                        .flatMap { it.componentExpressions.toList() }
+                chunkedByBudget(lastValues, dirtyCheck) { it.lastValueSize() }.forEach { part ->
+                    val size = dirtyCheck + part.sumBy { it.lastValueSize() }
+                    chunks.add(SplitChunk(size, localParams(part)) {
+                        block("if ($condition)") {
+                            part.forEach { expr ->
+                                nl("this.${expr.oldValueName} = ${expr.executePendingLocalName};")
+                            }
                         }
-                    }
+                    })
+                }
+            }
+            val helpers = splitExecuteBindings(chunks, tmpDirtyFlags)
+            if (helpers.isEmpty()) {
+                chunks.forEach { it.write(this) }
+            } else {
+                helpers.forEach {
+                    nl("${it.first}(${it.second.joinToString(", ") { it.name }});")
                 }
             }
             includedBinders.filter { it.isUsed }.forEach { binder ->
@@ -1093,8 +1405,158 @@ class LayoutBinderWriter(val layoutBinder : LayoutBinder, val libTypes: LibTypes
                 }
             }
         }
+        executeBindingsHelpers.forEach { (name, params, chunks) ->
+            nl("")
+            block("private void $name(${params.joinToString(", ") { "${it.type} ${it.name}" }})") {
+                chunks.forEach { it.write(this) }
+            }
+        }
     }
 
+    private val executeBindingsHelpers =
+            arrayListOf<Triple<String, List<MethodParam>, List<SplitChunk>>>()
+
+    /**
+     * Moves the setters of executeBindings into helper methods if the method is estimated to go
+     * past [executeBindingsBudget]. Reads stay in executeBindings since they assign locals that
+     * later reads use. Returns the helpers to call along with their arguments, or an empty list if
+     * the code is not split.
+     *
+     * Reports an error if executeBindings or one of its helpers cannot be kept within the budget,
+     * e.g. because the reads alone are larger.
+     */
+    private fun splitExecuteBindings(chunks: List<SplitChunk>,
+                                     tmpDirtyFlags: FlagSet): List<Pair<String, List<MethodParam>>> {
+        executeBindingsHelpers.clear()
+        if (executeBindingsBudget <= 0) {
+            return emptyList()
+        }
+        val locals = model.pendingExpressions.filter { it.needsLocalField }
+        val readsSize = FLAGS_SIZE + tmpDirtyFlags.buckets.size * FLAGS_WORD_SIZE +
+                locals.sumBy { LOCAL_DECLARATION_SIZE + it.estimatedReadSize() } +
+                includedBinders.count { it.isUsed } * INCLUDED_BINDING_SIZE +
+                layoutBinder.sortedTargets.count {
+                    it.isUsed && it.resolvedType != null && it.resolvedType.extendsViewStub
+                } * VIEW_STUB_BINDING_SIZE
+        if (readsSize + chunks.sumBy { it.size } <= executeBindingsBudget) {
+            return emptyList()
+        }
+        val dirtyWords = (0 until tmpDirtyFlags.buckets.size).map {
+            MethodParam(tmpDirtyFlags.type, tmpDirtyFlags.localValue(it))
+        }
+        val dirtyWordSlots = dirtyWords.sumBy { it.slots }
+        if (chunks.any { chunk -> chunk.params.sumBy { it.slots } + dirtyWordSlots > MAX_PARAM_SLOTS }) {
+            L.e("executeBindings of %s reads too many values to be split into methods of the " +
+                    "executeBindingsBudget of %d bytes.", className, executeBindingsBudget)
+            return emptyList()
+        }
+        val oversized = chunks.filter { it.size > executeBindingsBudget }
+        if (oversized.isNotEmpty()) {
+            L.e("executeBindings of %s has setters of about %d bytes that cannot be split to " +
+                    "fit the executeBindingsBudget of %d bytes.", className,
+                    oversized.fold(0) { max, chunk -> Math.max(max, chunk.size) },
+                    executeBindingsBudget)
+        }
+        val helpers = splitIntoMethods(chunks, executeBindingsBudget, dirtyWords.toSet()).map { group ->
+            val name = model.getUniqueMethodName("executeBindingsPart", false)
+            val params = dirtyWords + group.flatMap { it.params }.distinct()
+            executeBindingsHelpers.add(Triple(name, params, group))
+            name to params
+        }
+        val size = readsSize + helpers.sumBy { (_, params) ->
+            HELPER_CALL_SIZE + params.size * LOCAL_LOAD_SIZE
+        }
+        if (size > executeBindingsBudget) {
+            // reads are shared by the setters and stay in executeBindings
+            L.e("executeBindings of %s needs about %d bytes to read its values and call the " +
+                    "setters, more than the executeBindingsBudget of %d bytes. Raise the " +
+                    "budget or move some of the bindings into another layout.",
+                    className, size, executeBindingsBudget)
+        }
+        return helpers
+    }
+
+    /**
+     * Splits [items] into runs that fit into the budget along with [overhead], so that code
+     * guarded by a single check can still be moved into several helpers. Items are kept together
+     * if there is no budget.
+     */
+    private fun <T> chunkedByBudget(items: List<T>, overhead: kotlin.Int,
+                                    size: (T) -> kotlin.Int): List<List<T>> {
+        if (executeBindingsBudget <= 0) {
+            return listOf(items)
+        }
+        val result = arrayListOf<List<T>>()
+        var current = arrayListOf<T>()
+        var currentSize = overhead
+        items.forEach { item ->
+            val itemSize = size(item)
+            if (current.isNotEmpty() && currentSize + itemSize > executeBindingsBudget) {
+                result.add(current)
+                current = arrayListOf()
+                currentSize = overhead
+            }
+            current.add(item)
+            currentSize += itemSize
+        }
+        if (current.isNotEmpty()) {
+            result.add(current)
+        }
+        return result
+    }
+
+    /**
+     * The locals, passed as parameters when split into a helper, that the code of the given
+     * expressions reads.
+     */
+    private fun localParams(exprs: List<Expr>): Set<MethodParam> {
+        val locals = LinkedHashSet<Expr>()
+        exprs.forEach { it.collectLocals(locals) }
+        return locals.mapTo(LinkedHashSet()) {
+            MethodParam(it.resolvedType.toDeclarationCode(), it.executePendingLocalName)
+        }
+    }
+
+    private fun Expr.collectLocals(locals: MutableSet<Expr>) {
+        if (isDynamic && needsLocalField) {
+            locals.add(this)
+        } else {
+            children.forEach { it.collectLocals(locals) }
+        }
+    }
+
+    /**
+     * Rough estimate of the bytecode that reads the value of this expression in executeBindings.
+     */
+    private fun Expr.estimatedCodeSize(): kotlin.Int = if (isDynamic && needsLocalField) {
+        LOCAL_LOAD_SIZE
+    } else {
+        EXPR_NODE_SIZE + children.sumBy { it.estimatedCodeSize() }
+    }
+
+    /**
+     * Rough estimate of the bytecode that reads this expression into its local, including the
+     * checks of its dirty flags and of null receivers.
+     */
+    private fun Expr.estimatedReadSize(): kotlin.Int =
+            READ_SIZE + children.sumBy { it.estimatedCodeSize() }
+
+    private fun Binding.estimatedSetterSize(): kotlin.Int {
+        var size = SETTER_CALL_SIZE + expr.estimatedCodeSize()
+        if (minApi > 1) {
+            size += API_CHECK_SIZE
+        }
+        if (skipsUnchangedValues()) {
+            size += DIRTY_CHECK_SIZE + componentExpressions.size * VALUE_CHECK_SIZE
+        }
+        return size
+    }
+
+    private fun Expr.lastValueSize() = LAST_VALUE_SIZE + estimatedCodeSize()
+
+    private fun dirtyCheckSize(tmpDirtyFlags: FlagSet, flagSet: FlagSet) =
+            DIRTY_CHECK_SIZE * tmpDirtyFlags.mapOr(flagSet) { _, _ -> Unit }.size
+
     fun readWithDependants(expressionList: List<Expr>, justRead: MutableList<Expr>,
                            batch: MutableList<Expr>, tmpDirtyFlags: FlagSet,
                            inheritedFlags: FlagSet? = null): KCode = kcode("") {
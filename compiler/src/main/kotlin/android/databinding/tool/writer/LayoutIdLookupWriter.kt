@@ -0,0 +1,125 @@
+/*
+ * Copyright (C) 2021 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package android.databinding.tool.writer
+
+import android.databinding.tool.ext.L
+import android.databinding.tool.ext.N
+import android.databinding.tool.ext.S
+import com.squareup.javapoet.ClassName
+import com.squareup.javapoet.MethodSpec
+import com.squareup.javapoet.ParameterSpec
+import com.squareup.javapoet.TypeName
+import com.squareup.javapoet.TypeSpec
+import javax.lang.model.element.Modifier
+
+/**
+ * Generates the lookup from a layout tag, e.g. `layout/main_0`, to its layout id.
+ *
+ * The lookup is a `switch` on the tag so that nothing needs to be built when the class is
+ * initialized and no [Integer] is unboxed per lookup. Since a large switch does not fit into a
+ * single method, tags are distributed into [chunkSize] sized methods by their [String.hashCode],
+ * which is specified by the language and so is the same while generating and at runtime.
+ *
+ * generated code looks like:
+ * ```
+ * static int getLayoutId(String tag) {
+ *     switch ((tag.hashCode() & 0x7fffffff) % 2) {
+ *         case 0: return getLayoutId0(tag);
+ *         case 1: return getLayoutId1(tag);
+ *     }
+ *     return 0;
+ * }
+ * private static int getLayoutId0(String tag) {
+ *     switch (tag) {
+ *         case "layout/main_0": return foo.bar.R.layout.main;
+ *         ...
+ *     }
+ *     return 0;
+ * }
+ * ```
+ * or a single method with the switch for small modules.
+ */
+object LayoutIdLookupWriter {
+    const val METHOD_NAME = "getLayoutId"
+
+    private val STRING = ClassName.get("java.lang", "String")
+
+    /**
+     * Adds a static `getLayoutId(String)` method to the given type that returns the id code of
+     * the matching entry or 0 if there is no match. Entries are pairs of tags to java code that
+     * evaluates to their layout id.
+     */
+    @JvmStatic
+    fun addLookupMethods(
+            builder: TypeSpec.Builder,
+            entries: List<Pair<String, String>>,
+            chunkSize: Int
+    ) {
+        val chunkCount = (entries.size + chunkSize - 1) / chunkSize
+        if (chunkCount <= 1) {
+            builder.addMethod(createSwitchMethod(METHOD_NAME, entries)
+                    .addModifiers(Modifier.STATIC)
+                    .build())
+            return
+        }
+        val chunks = (0 until chunkCount).map { arrayListOf<Pair<String, String>>() }
+        entries.forEach {
+            chunks[bucketOf(it.first, chunkCount)].add(it)
+        }
+        val methods = chunks.mapIndexed { index, chunk ->
+            createSwitchMethod("$METHOD_NAME$index", chunk)
+                    .addModifiers(Modifier.PRIVATE, Modifier.STATIC)
+                    .build()
+        }
+        builder.addMethods(methods)
+        builder.addMethod(MethodSpec.methodBuilder(METHOD_NAME).apply {
+            addModifiers(Modifier.STATIC)
+            returns(TypeName.INT)
+            val tagParam = ParameterSpec.builder(STRING, "tag").build()
+            addParameter(tagParam)
+            beginControlFlow("switch (($N.hashCode() & 0x7fffffff) % $L)", tagParam, chunkCount)
+            methods.forEachIndexed { index, method ->
+                addStatement("case $L: return $N($N)", index, method, tagParam)
+            }
+            endControlFlow()
+            addStatement("return 0")
+        }.build())
+    }
+
+    /**
+     * Returns the chunk that the generated lookup searches for the given tag.
+     */
+    @JvmStatic
+    fun bucketOf(tag: String, chunkCount: Int) = (tag.hashCode() and 0x7fffffff) % chunkCount
+
+    private fun createSwitchMethod(
+            name: String,
+            entries: List<Pair<String, String>>
+    ) = MethodSpec.methodBuilder(name).apply {
+        returns(TypeName.INT)
+        val tagParam = ParameterSpec.builder(STRING, "tag").build()
+        addParameter(tagParam)
+        if (entries.isNotEmpty()) {
+            beginControlFlow("switch ($N)", tagParam)
+            entries.forEach {
+                addStatement("case $S: return $L", it.first, it.second)
+            }
+            endControlFlow()
+        }
+        addStatement("return 0")
+    }
+}
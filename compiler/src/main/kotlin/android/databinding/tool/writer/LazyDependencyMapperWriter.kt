@@ -0,0 +1,311 @@
+/*
+ * Copyright (C) 2021 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package android.databinding.tool.writer
+
+import android.databinding.tool.LibTypes
+import android.databinding.tool.ext.L
+import android.databinding.tool.ext.N
+import android.databinding.tool.ext.T
+import android.databinding.tool.store.GenClassInfoLog
+import com.squareup.javapoet.ArrayTypeName
+import com.squareup.javapoet.ClassName
+import com.squareup.javapoet.FieldSpec
+import com.squareup.javapoet.MethodSpec
+import com.squareup.javapoet.ParameterSpec
+import com.squareup.javapoet.ParameterizedTypeName
+import com.squareup.javapoet.TypeName
+import com.squareup.javapoet.TypeSpec
+import javax.lang.model.element.Modifier
+
+/**
+ * Generates proxies for the mappers of a module's dependencies that create the real mapper only
+ * when a layout of that dependency is inflated, so that the static lookups of every dependency's
+ * mapper are not initialized when the app starts.
+ *
+ * The module's mapper returns one proxy for every module in its transitive dependencies that has
+ * layouts, and the proxies have no dependencies themselves. A shared table maps the layout ids of
+ * all dependencies to the proxy that owns them:
+ * ```
+ * private static class InnerDependencyLookup {
+ *     static final SparseIntArray sOwners = new SparseIntArray(42);
+ *     static {
+ *         sOwners.put(com.lib.R.layout.lib_item, 1);
+ *         ...//for all layouts of all dependencies
+ * ```
+ * Tags are resolved by each proxy with a [LayoutIdLookupWriter] switch and BR ids are left to the
+ * module's own mapper, whose BR lookup includes the properties of its dependencies, so neither
+ * creates the dependency's mapper.
+ *
+ * A layout that exists in more than one dependency must resolve to the same binding as without
+ * proxies, where the first mapper in a depth first walk of the direct dependencies wins. That walk
+ * cannot be done here since the dependencies of a dependency are not known, so such layouts are
+ * owned by [CONFLICTS_NAME] instead, which creates the mappers of the direct dependencies in a
+ * MergedDataBinderMapper when one of them is first inflated.
+ */
+class LazyDependencyMapperWriter(
+        dependencyLogs: Map<String, GenClassInfoLog>,
+        private val directDependencies: Collection<String>,
+        libTypes: LibTypes) {
+    companion object {
+        private const val OWNER_LOOKUP_NAME = "InnerDependencyLookup"
+        private const val PROXY_NAME_PREFIX = "LazyDependencyMapper"
+        internal const val CONFLICTS_NAME = "LazyDependencyConflicts"
+        // owner of the layouts that exist in more than one dependency
+        internal const val CONFLICTS_OWNER_ID = -1
+        private val VIEW = ClassName.get("android.view", "View")
+        private val STRING = ClassName.get("java.lang", "String")
+        private val SPARSE_INT_ARRAY = ClassName.get("android.util", "SparseIntArray")
+    }
+
+    private class Dependency(
+            val ownerId: Int,
+            val modulePackage: String,
+            val layouts: List<Pair<String, GenClassInfoLog.GenClass>>) {
+        val proxyName = "$PROXY_NAME_PREFIX$ownerId"
+    }
+
+    private val viewDataBinding = ClassName.bestGuess(libTypes.viewDataBinding)
+    private val bindingComponent = ClassName.bestGuess(libTypes.dataBindingComponent)
+    private val dataBinderMapper = ClassName.bestGuess(libTypes.dataBinderMapper)
+    private val mergedDataBinderMapper = ClassName.get(libTypes.bindingPackage,
+            "MergedDataBinderMapper")
+
+    private val dependencies: List<Dependency>
+
+    // layouts of more than one dependency, with the GenClass of each dependency that has them
+    private val conflicts: List<Pair<String, List<GenClassInfoLog.GenClass>>>
+
+    init {
+        val sortedPackages = dependencyLogs.keys.sorted()
+        val claims = sortedPackages
+                .flatMap { pkg -> dependencyLogs.getValue(pkg).mappings().entries }
+                .groupBy({ it.key }, { it.value })
+        conflicts = claims
+                .filterValues { it.size > 1 }
+                .toSortedMap()
+                .map { Pair(it.key, it.value) }
+        dependencies = sortedPackages
+                .map { pkg ->
+                    Pair(pkg, dependencyLogs.getValue(pkg).mappings()
+                            .entries
+                            .sortedBy { it.key }
+                            .filter { claims.getValue(it.key).size == 1 }
+                            .map { Pair(it.key, it.value) })
+                }
+                .filter { it.second.isNotEmpty() }
+                .mapIndexed { index, (pkg, layouts) ->
+                    // 0 is returned by the owner table for unknown layouts
+                    Dependency(index + 1, pkg, layouts)
+                }
+    }
+
+    /**
+     * Names of the generated mappers to return as dependencies: one proxy per dependency with
+     * layouts of its own and [CONFLICTS_NAME] if some layouts exist in more than one dependency.
+     */
+    val proxyNames: List<String>
+        get() = dependencies.map { it.proxyName } +
+                if (conflicts.isEmpty()) emptyList() else listOf(CONFLICTS_NAME)
+
+    fun addTo(builder: TypeSpec.Builder) {
+        if (dependencies.isEmpty() && conflicts.isEmpty()) {
+            return
+        }
+        builder.addType(generateOwnerLookup())
+        dependencies.forEach {
+            builder.addType(generateProxy(it))
+        }
+        if (conflicts.isNotEmpty()) {
+            builder.addType(generateConflicts())
+        }
+    }
+
+    private fun generateOwnerLookup() = TypeSpec.classBuilder(OWNER_LOOKUP_NAME).apply {
+        addModifiers(Modifier.PRIVATE, Modifier.STATIC)
+        val layouts = dependencies.flatMap { dependency ->
+            dependency.layouts.map { (layoutName, genClass) ->
+                Triple(ClassName.get(genClass.modulePackage, "R"), layoutName, dependency.ownerId)
+            }
+        } + conflicts.map { (layoutName, genClasses) ->
+            // the merged R class has the same id for the layout in all of them
+            Triple(ClassName.get(genClasses.first().modulePackage, "R"), layoutName,
+                    CONFLICTS_OWNER_ID)
+        }
+        val ownersField = FieldSpec.builder(SPARSE_INT_ARRAY, "sOwners").apply {
+            addModifiers(Modifier.STATIC, Modifier.FINAL)
+            initializer("new $T($L)", SPARSE_INT_ARRAY, layouts.size)
+        }.build()
+        addField(ownersField)
+        addChunkedStaticBlock(
+                methodPrefix = "internalPopulateDependencyLookup",
+                items = layouts
+        ) {
+            val (rClass, layoutName, ownerId) = it
+            addStatement("$N.put($T.layout.$L, $L)", ownersField, rClass, layoutName, ownerId)
+        }
+    }.build()
+
+    private fun generateProxy(dependency: Dependency) = TypeSpec
+            .classBuilder(dependency.proxyName).apply {
+                val mapperType = ClassName.bestGuess(
+                        BindingMapperWriterV2.createMapperQName(dependency.modulePackage))
+                addJavadoc("Creates {@link $T} when one of its layouts is first inflated.\n",
+                        mapperType)
+                addModifiers(Modifier.PRIVATE, Modifier.STATIC, Modifier.FINAL)
+                superclass(dataBinderMapper)
+                val mapperField = FieldSpec.builder(dataBinderMapper, "mMapper")
+                        .addModifiers(Modifier.PRIVATE, Modifier.VOLATILE)
+                        .build()
+                addField(mapperField)
+                val getMapper = MethodSpec.methodBuilder("getMapper").apply {
+                    addModifiers(Modifier.PRIVATE)
+                    returns(dataBinderMapper)
+                    // creating the mapper twice in a race is harmless
+                    addStatement("$T mapper = $N", dataBinderMapper, mapperField)
+                    beginControlFlow("if (mapper == null)").apply {
+                        addStatement("mapper = new $T()", mapperType)
+                        addStatement("$N = mapper", mapperField)
+                    }.endControlFlow()
+                    addStatement("return mapper")
+                }.build()
+                addMethod(getMapper)
+                addMethod(generateGetDataBinder(dependency.ownerId, getMapper, VIEW, "view"))
+                addMethod(generateGetDataBinder(dependency.ownerId, getMapper,
+                        ArrayTypeName.of(VIEW), "views"))
+                addMethod(MethodSpec.methodBuilder("getLayoutId").apply {
+                    addModifiers(Modifier.PUBLIC)
+                    addAnnotation(Override::class.java)
+                    returns(TypeName.INT)
+                    val tagParam = ParameterSpec.builder(STRING, "tag").build()
+                    addParameter(tagParam)
+                    beginControlFlow("if ($N == null)", tagParam).apply {
+                        addStatement("return 0")
+                    }.endControlFlow()
+                    addStatement("return InnerTagLookup.$L($N)",
+                            LayoutIdLookupWriter.METHOD_NAME, tagParam)
+                }.build())
+                addMethod(generateConvertBrIdToString())
+                addMethod(generateCollectDependencies())
+                addType(generateTagLookup(dependency.layouts))
+            }.build()
+
+    /**
+     * Generates the mapper of the layouts that exist in more than one dependency, which asks the
+     * mappers of the direct dependencies in the order the module's mapper would return them.
+     */
+    private fun generateConflicts() = TypeSpec.classBuilder(CONFLICTS_NAME).apply {
+        addJavadoc("Resolves the layouts of more than one dependency like their own mappers do.\n")
+        addModifiers(Modifier.PRIVATE, Modifier.STATIC, Modifier.FINAL)
+        superclass(dataBinderMapper)
+        val mapperField = FieldSpec.builder(mergedDataBinderMapper, "mMapper")
+                .addModifiers(Modifier.PRIVATE, Modifier.VOLATILE)
+                .build()
+        addField(mapperField)
+        val getMapper = MethodSpec.methodBuilder("getMapper").apply {
+            addModifiers(Modifier.PRIVATE)
+            returns(dataBinderMapper)
+            // creating the mapper twice in a race is harmless
+            addStatement("$T mapper = $N", mergedDataBinderMapper, mapperField)
+            beginControlFlow("if (mapper == null)").apply {
+                addStatement("mapper = new $T()", mergedDataBinderMapper)
+                directDependencies.forEach {
+                    addStatement("mapper.addMapper(new $T())",
+                            ClassName.bestGuess(BindingMapperWriterV2.createMapperQName(it)))
+                }
+                addStatement("$N = mapper", mapperField)
+            }.endControlFlow()
+            addStatement("return mapper")
+        }.build()
+        addMethod(getMapper)
+        addMethod(generateGetDataBinder(CONFLICTS_OWNER_ID, getMapper, VIEW, "view"))
+        addMethod(generateGetDataBinder(CONFLICTS_OWNER_ID, getMapper,
+                ArrayTypeName.of(VIEW), "views"))
+        addMethod(MethodSpec.methodBuilder("getLayoutId").apply {
+            addModifiers(Modifier.PUBLIC)
+            addAnnotation(Override::class.java)
+            returns(TypeName.INT)
+            val tagParam = ParameterSpec.builder(STRING, "tag").build()
+            addParameter(tagParam)
+            beginControlFlow("if ($N == null)", tagParam).apply {
+                addStatement("return 0")
+            }.endControlFlow()
+            addStatement("return InnerTagLookup.$L($N)",
+                    LayoutIdLookupWriter.METHOD_NAME, tagParam)
+        }.build())
+        addMethod(generateConvertBrIdToString())
+        addMethod(generateCollectDependencies())
+        addType(generateTagLookup(conflicts.flatMap { (layoutName, genClasses) ->
+            genClasses.map { Pair(layoutName, it) }
+        }))
+    }.build()
+
+    private fun generateConvertBrIdToString() = MethodSpec.methodBuilder("convertBrIdToString")
+            .apply {
+                addModifiers(Modifier.PUBLIC)
+                addAnnotation(Override::class.java)
+                addParameter(TypeName.INT, "localId")
+                returns(STRING)
+                addStatement("return null")
+            }.build()
+
+    private fun generateCollectDependencies() = MethodSpec.methodBuilder("collectDependencies")
+            .apply {
+                addModifiers(Modifier.PUBLIC)
+                addAnnotation(Override::class.java)
+                returns(ParameterizedTypeName.get(
+                        ClassName.get(List::class.java),
+                        dataBinderMapper
+                ))
+                addStatement("return $T.emptyList()", ClassName.get("java.util", "Collections"))
+            }.build()
+
+    private fun generateTagLookup(
+            layouts: List<Pair<String, GenClassInfoLog.GenClass>>
+    ) = TypeSpec.classBuilder("InnerTagLookup").apply {
+        addModifiers(Modifier.PRIVATE, Modifier.STATIC)
+        val entries = layouts.flatMap { (layoutName, genClass) ->
+            val rClass = ClassName.get(genClass.modulePackage, "R")
+            genClass.implementations.map { impl ->
+                Pair("${impl.tag}_0", "$rClass.layout.$layoutName")
+            }
+        }.distinctBy { it.first }
+        LayoutIdLookupWriter.addLookupMethods(this, entries, METHOD_BODY_CHUNK_SIZE)
+    }.build()
+
+    private fun generateGetDataBinder(
+            ownerId: Int,
+            getMapper: MethodSpec,
+            viewType: TypeName,
+            viewName: String
+    ) = MethodSpec.methodBuilder("getDataBinder").apply {
+        addModifiers(Modifier.PUBLIC)
+        addAnnotation(Override::class.java)
+        returns(viewDataBinding)
+        val componentParam = ParameterSpec.builder(bindingComponent, "component").build()
+        val viewParam = ParameterSpec.builder(viewType, viewName).build()
+        val layoutIdParam = ParameterSpec.builder(TypeName.INT, "layoutId").build()
+        addParameter(componentParam)
+        addParameter(viewParam)
+        addParameter(layoutIdParam)
+        beginControlFlow("if ($L.sOwners.get($N) != $L)",
+                OWNER_LOOKUP_NAME, layoutIdParam, ownerId).apply {
+            addStatement("return null")
+        }.endControlFlow()
+        addStatement("return $N().getDataBinder($N, $N, $N)",
+                getMapper, componentParam, viewParam, layoutIdParam)
+    }.build()
+}
@@ -0,0 +1,78 @@
+/*
+ * Copyright (C) 2021 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package android.databinding.tool.writer
+
+/**
+ * A parameter of a generated helper method. Helpers receive the locals of the method they were
+ * split from under the same names, so the moved code does not need to be rewritten.
+ */
+data class MethodParam(val type: String, val name: String) {
+    /**
+     * Number of local variable slots the parameter takes.
+     */
+    val slots: Int
+        get() = if (type == "long" || type == "double") 2 else 1
+}
+
+/**
+ * A statement that can be moved into a helper method along with its estimated bytecode size and
+ * the locals it reads.
+ */
+class SplitChunk(val size: Int, val params: Set<MethodParam>, val write: KCode.() -> Unit)
+
+/**
+ * Packs chunks, in order, into helper methods whose estimated size fits in [budget] and whose
+ * parameters fit in the parameter slots a method can have. [fixedParams] are passed to every
+ * helper. A chunk that does not fit in the budget on its own gets a helper of its own.
+ */
+fun splitIntoMethods(chunks: List<SplitChunk>, budget: Int,
+                     fixedParams: Set<MethodParam> = emptySet()): List<List<SplitChunk>> {
+    val fixedSlots = fixedParams.sumBy { it.slots }
+    val result = arrayListOf<List<SplitChunk>>()
+    var current = arrayListOf<SplitChunk>()
+    var size = 0
+    val params = HashSet<MethodParam>()
+    var slots = fixedSlots
+    chunks.forEach { chunk ->
+        val newParams = chunk.params.filter { it !in fixedParams && it !in params }
+        val newSlots = newParams.sumBy { it.slots }
+        if (current.isNotEmpty() &&
+                (size + chunk.size > budget || slots + newSlots > MAX_PARAM_SLOTS)) {
+            result.add(current)
+            current = arrayListOf()
+            size = 0
+            params.clear()
+            slots = fixedSlots
+            chunk.params.filterTo(params) { it !in fixedParams }
+            slots += params.sumBy { it.slots }
+        } else {
+            params.addAll(newParams)
+            slots += newSlots
+        }
+        current.add(chunk)
+        size += chunk.size
+    }
+    if (current.isNotEmpty()) {
+        result.add(current)
+    }
+    return result
+}
+
+/**
+ * Parameter slots of an instance method, one of the 255 is taken by `this`.
+ */
+const val MAX_PARAM_SLOTS = 254
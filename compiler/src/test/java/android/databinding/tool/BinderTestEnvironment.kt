@@ -0,0 +1,758 @@
+/*
+ * Copyright (C) 2021 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package android.databinding.tool
+
+import android.databinding.tool.reflection.ModelAnalyzer
+import android.databinding.tool.reflection.java.JavaAnalyzer
+import android.databinding.tool.store.Location
+import android.databinding.tool.store.ResourceBundle
+import android.databinding.tool.store.SetterStore
+import android.databinding.tool.util.GenerationalClassUtil
+import android.databinding.tool.util.L
+import android.databinding.tool.util.RelativizableFile
+import java.io.Closeable
+import java.io.File
+import java.lang.reflect.Field
+import java.lang.reflect.Method
+import java.net.URL
+import java.net.URLClassLoader
+import java.nio.file.Files
+import javax.tools.Diagnostic
+import javax.tools.DiagnosticCollector
+import javax.tools.JavaFileObject
+import javax.tools.ToolProvider
+
+/**
+ * Generates layout binders the way the annotation processor does and compiles them against stubs
+ * of the data binding runtime, so that tests can check that the generated code is valid Java.
+ *
+ * Layouts are V1 layouts without variations, so each binder extends ViewDataBinding and does not
+ * need a generated base class. The reflection backed [JavaAnalyzer] loads the runtime stubs,
+ * [VIEW_MODEL] and [ADAPTERS] from a temporary folder and the framework from the latest
+ * android.jar. The setter store has two-way adapters for `android:checked` on CompoundButton
+ * and `android:text` on TextView, everything else resolves to framework setters.
+ *
+ * Compiled binders can be run with [load], which replaces the framework with fakes that keep
+ * their state and record the setters called on them.
+ */
+class BinderTestEnvironment private constructor(
+        private val dir: File,
+        options: CompilerOptions
+) : Closeable {
+    private val stubsDir = File(dir, "stubs")
+    private val fakesDir = File(dir, "fakes")
+    private val androidJar = JavaAnalyzer.findAndroidJar()
+    private val layoutNames = sortedSetOf<String>()
+    private val ids = sortedSetOf<String>()
+    private val variables = sortedSetOf("_all")
+    private val layoutViews = hashMapOf<String, List<ViewSpec>>()
+    private val binderClasses = hashMapOf<String, String>()
+    private var compilations = 0
+
+    /**
+     * Errors reported while generating binders.
+     */
+    val errors = arrayListOf<String>()
+
+    /**
+     * Warnings reported while generating binders.
+     */
+    val warnings = arrayListOf<String>()
+
+    init {
+        compile(stubsDir, RUNTIME_STUBS)
+        compile(fakesDir, FRAMEWORK_FAKES)
+        JavaAnalyzer.initForTests(listOf(stubsDir))
+        val storeDir = File(dir, "store")
+        storeDir.mkdirs()
+        File(storeDir, "test-setter_store.json").writeText(SETTER_STORE)
+        val analyzer = ModelAnalyzer.getInstance()
+        Context.initForTests(analyzer, Context.sdkUtil!!,
+                SetterStore.create(analyzer, GenerationalClassUtil(storeDir, null)), options)
+        L.setClient(L.Client { kind, message, _ ->
+            when (kind) {
+                Diagnostic.Kind.ERROR -> errors.add(message)
+                Diagnostic.Kind.WARNING, Diagnostic.Kind.MANDATORY_WARNING -> warnings.add(message)
+                else -> Unit
+            }
+        })
+    }
+
+    /**
+     * Creates the bundle of a layout whose root is a LinearLayout.
+     */
+    fun layout(name: String, init: LayoutBuilder.() -> Unit): ResourceBundle.LayoutFileBundle {
+        layoutNames.add(name)
+        val builder = LayoutBuilder(name).apply(init)
+        layoutViews[name] = builder.views
+        return builder.bundle
+    }
+
+    /**
+     * Parses, seals and writes the binders of the given layouts. Returns their sources by
+     * qualified class name.
+     */
+    @JvmOverloads
+    fun writeBinders(vararg bundles: ResourceBundle.LayoutFileBundle,
+                     minSdk: Int = 21): Map<String, String> {
+        return bundles.associate { bundle ->
+            val binder = LayoutBinder(bundle, false)
+            binder.sealModel()
+            val className = "${binder.`package`}.${binder.implementationName}"
+            binderClasses[binder.layoutname] = className
+            Pair(className, binder.writeViewBinder(minSdk))
+        }
+    }
+
+    /**
+     * Compiles the given sources, by qualified class name, along with the R and BR classes of
+     * the layouts created so far. Fails with the javac errors if they do not compile.
+     *
+     * @return The folder of the compiled classes.
+     */
+    fun compile(sources: Map<String, String>): File {
+        val out = File(dir, "classes${compilations++}")
+        compile(out, sources + mapOf("$MODULE_PACKAGE.R" to rClass(),
+                "$MODULE_PACKAGE.BR" to brClass()))
+        return out
+    }
+
+    private fun compile(out: File, sources: Map<String, String>) {
+        val sourceDir = File(out.path + "-src")
+        val files = sources.map { (name, source) ->
+            File(sourceDir, name.replace('.', '/') + ".java").apply {
+                parentFile.mkdirs()
+                writeText(source)
+            }
+        }
+        out.mkdirs()
+        val classPath = listOf(stubsDir.path, androidJar.path,
+                System.getProperty("java.class.path")).joinToString(File.pathSeparator)
+        val javac = ToolProvider.getSystemJavaCompiler()
+        val diagnostics = DiagnosticCollector<JavaFileObject>()
+        javac.getStandardFileManager(diagnostics, null, Charsets.UTF_8).use { fileManager ->
+            val compiled = javac.getTask(null, fileManager, diagnostics,
+                    listOf("-d", out.path, "-classpath", classPath, "-proc:none"), null,
+                    fileManager.getJavaFileObjectsFromFiles(files)).call()
+            if (!compiled) {
+                throw AssertionError("cannot compile ${sources.keys}:\n" +
+                        diagnostics.diagnostics.filter { it.kind == Diagnostic.Kind.ERROR }
+                                .joinToString("\n"))
+            }
+        }
+    }
+
+    /**
+     * Loads the classes compiled by [compile] along with the runtime stubs and the fakes of the
+     * framework, which take precedence over any android.jar on the class path.
+     */
+    fun load(classes: File): LoadedBinders {
+        val urls = listOf(classes, fakesDir, stubsDir).map { it.toURI().toURL() }
+        return LoadedBinders(ChildFirstClassLoader(urls.toTypedArray(),
+                BinderTestEnvironment::class.java.classLoader))
+    }
+
+    private fun rClass() = buildString {
+        append("package $MODULE_PACKAGE;\n")
+        append("public final class R {\n")
+        append("    public static final class layout {\n")
+        layoutNames.forEachIndexed { index, name ->
+            append("        public static final int $name = ${0x7f0b0000 + index};\n")
+        }
+        append("    }\n")
+        append("    public static final class id {\n")
+        ids.forEachIndexed { index, name ->
+            append("        public static final int $name = ${0x7f080000 + index};\n")
+        }
+        append("    }\n")
+        append("}\n")
+    }
+
+    private fun idValue(name: String) = 0x7f080000 + ids.indexOf(name)
+
+    private fun brClass() = buildString {
+        append("package $MODULE_PACKAGE;\n")
+        append("public class BR {\n")
+        variables.forEachIndexed { index, name ->
+            append("    public static final int $name = $index;\n")
+        }
+        append("}\n")
+    }
+
+    override fun close() {
+        L.setClient(null)
+        dir.deleteRecursively()
+    }
+
+    inner class LayoutBuilder internal constructor(name: String) {
+        private val location = Location(0, 0, 0, 0)
+        private var boundViews = 0
+        internal val views = arrayListOf<ViewSpec>()
+
+        val bundle = ResourceBundle.LayoutFileBundle(
+                RelativizableFile.fromAbsoluteFile(File("$name.xml").absoluteFile, null),
+                "$name.xml", "layout", MODULE_PACKAGE, false, true, LINEAR_LAYOUT, null)
+
+        init {
+            bundle.createBindingTarget(null, LINEAR_LAYOUT, true, "layout/${name}_0", null,
+                    location)
+        }
+
+        @JvmOverloads
+        fun variable(name: String, type: String = VIEW_MODEL) {
+            variables.add(name)
+            bundle.addVariable(name, type, location, true)
+        }
+
+        /**
+         * Adds a view with the given bindings from attribute to expression. Attributes in
+         * [twoWay] are bound with `@={}`.
+         */
+        @JvmOverloads
+        fun view(type: String, id: String? = null, bindings: Map<String, String> = emptyMap(),
+                 twoWay: Set<String> = emptySet()) {
+            id?.let { ids.add(it) }
+            val tag = if (bindings.isEmpty()) null else "binding_${++boundViews}"
+            views.add(ViewSpec(type, id, tag))
+            val target = bundle.createBindingTarget(id?.let { "@+id/$it" }, type, true, tag,
+                    null, location)
+            bindings.forEach { (attribute, expr) ->
+                target.addBinding(attribute, expr, attribute in twoWay, location, location)
+            }
+        }
+    }
+
+    /**
+     * The views of a layout as the layout inflater would create them.
+     */
+    internal class ViewSpec(val type: String, val id: String?, val tag: String?)
+
+    /**
+     * Binders and fake views loaded by [load]. Everything is reached through reflection since the
+     * classes live in their own class loader.
+     */
+    inner class LoadedBinders internal constructor(val classLoader: ClassLoader) {
+        /**
+         * The number of times the tree of views has been walked by mapBindings.
+         */
+        val mapBindingsCalls: Int
+            get() = classLoader.loadClass("androidx.databinding.ViewDataBinding")
+                    .getField("sMapBindingsCalls").getInt(null)
+
+        /**
+         * Creates the views of the given layout under a LinearLayout root. If [wrapped] is set,
+         * the views are added to a LinearLayout inside the root, so the tree no longer matches
+         * the one the layout describes.
+         */
+        @JvmOverloads
+        fun inflate(layout: String, wrapped: Boolean = false): Any {
+            val root = newView(LINEAR_LAYOUT)
+            call(root, "setTag", "layout/${layout}_0")
+            val parent = if (wrapped) newView(LINEAR_LAYOUT).also { call(root, "addView", it) }
+                    else root
+            layoutViews.getValue(layout).forEach { spec ->
+                val view = newView(spec.type)
+                spec.tag?.let { call(view, "setTag", it) }
+                spec.id?.let { call(view, "setId", idValue(it)) }
+                call(parent, "addView", view)
+            }
+            return root
+        }
+
+        /**
+         * Creates the binder of the given layout for views created by [inflate].
+         */
+        fun bind(layout: String, root: Any): Any {
+            val binderClass = classLoader.loadClass(binderClasses.getValue(layout))
+            return binderClass.getConstructor(
+                    classLoader.loadClass("androidx.databinding.DataBindingComponent"),
+                    classLoader.loadClass("android.view.View")).newInstance(null, root)
+        }
+
+        /**
+         * The child of [root] at the given child indices.
+         */
+        fun child(root: Any, vararg path: Int): Any = path.fold(root) { view, index ->
+            call(view, "getChildAt", index)!!
+        }
+
+        /**
+         * The framework setters called on the given view so far, e.g. `setText(title)`.
+         */
+        @Suppress("UNCHECKED_CAST")
+        fun calls(view: Any): List<String> = field(view, "calls") as List<String>
+
+        fun newViewModel(): Any = classLoader.loadClass(VIEW_MODEL).newInstance()
+
+        /**
+         * The id of the given variable in the BR class.
+         */
+        fun variableId(name: String): Int =
+                classLoader.loadClass("$MODULE_PACKAGE.BR").getField(name).getInt(null)
+
+        fun setVariable(binder: Any, name: String, value: Any?) {
+            call(binder, "setVariable", variableId(name), value)
+        }
+
+        fun executePendingBindings(binder: Any) {
+            call(binder, "executePendingBindings")
+        }
+
+        /**
+         * Calls the public method of [target] with the given name that takes the arguments.
+         */
+        fun call(target: Any, name: String, vararg args: Any?): Any? {
+            val method = target.javaClass.methods.firstOrNull { method ->
+                method.name == name && method.parameterTypes.size == args.size &&
+                        method.parameterTypes.indices.all { accepts(method, it, args[it]) }
+            } ?: throw NoSuchMethodException("${target.javaClass.name}.$name")
+            // listeners are anonymous classes whose methods are not accessible otherwise
+            method.isAccessible = true
+            return method.invoke(target, *args)
+        }
+
+        /**
+         * Reads a field of [target] or of its super classes, regardless of its visibility.
+         */
+        fun field(target: Any, name: String): Any? = findField(target.javaClass, name).get(target)
+
+        private fun findField(type: Class<*>, name: String): Field = try {
+            type.getDeclaredField(name).apply { isAccessible = true }
+        } catch (e: NoSuchFieldException) {
+            findField(type.superclass ?: throw e, name)
+        }
+
+        private fun accepts(method: Method, index: Int, arg: Any?): Boolean {
+            val type = method.parameterTypes[index]
+            return when {
+                arg == null -> !type.isPrimitive
+                type == Int::class.javaPrimitiveType -> arg is Int
+                type == Boolean::class.javaPrimitiveType -> arg is Boolean
+                type == Long::class.javaPrimitiveType -> arg is Long
+                else -> type.isInstance(arg)
+            }
+        }
+
+        private fun newView(type: String): Any = classLoader.loadClass(type)
+                .getConstructor(classLoader.loadClass("android.content.Context"))
+                .newInstance(null)
+    }
+
+    /**
+     * Looks up classes in its own urls before its parent, so that the fakes replace the classes
+     * of android.jar when it is on the class path of the test.
+     */
+    private class ChildFirstClassLoader(urls: Array<URL>, parent: ClassLoader) :
+            URLClassLoader(urls, parent) {
+        override fun loadClass(name: String, resolve: Boolean): Class<*> {
+            synchronized(getClassLoadingLock(name)) {
+                val type = findLoadedClass(name) ?: try {
+                    findClass(name)
+                } catch (e: ClassNotFoundException) {
+                    return super.loadClass(name, resolve)
+                }
+                if (resolve) {
+                    resolveClass(type)
+                }
+                return type
+            }
+        }
+    }
+
+    companion object {
+        const val MODULE_PACKAGE = "com.example.binding"
+        const val VIEW_MODEL = "$MODULE_PACKAGE.TestViewModel"
+        const val ADAPTERS = "$MODULE_PACKAGE.TestAdapters"
+        const val LINEAR_LAYOUT = "android.widget.LinearLayout"
+        const val TEXT_VIEW = "android.widget.TextView"
+        const val CHECK_BOX = "android.widget.CheckBox"
+
+        @JvmStatic
+        @JvmOverloads
+        fun create(options: CompilerOptions = CompilerOptions.DEFAULT): BinderTestEnvironment {
+            return BinderTestEnvironment(Files.createTempDirectory("binder-test").toFile(),
+                    options)
+        }
+
+        private const val INVERSE_LISTENER = "androidx.databinding.InverseBindingListener"
+
+        private val SETTER_STORE = """
+            {"version":5,
+            "adapterMethods":{
+              "checkedAttrChanged":[[
+                {"viewType":"android.widget.CompoundButton","valueType":"$INVERSE_LISTENER"},
+                {"type":"$ADAPTERS","method":"setCheckedListener","requiresOldValue":false,
+                 "isStatic":true,"componentClass":null}]],
+              "textAttrChanged":[[
+                {"viewType":"android.widget.TextView","valueType":"$INVERSE_LISTENER"},
+                {"type":"$ADAPTERS","method":"setTextListener","requiresOldValue":false,
+                 "isStatic":true,"componentClass":null}]]},
+            "renamedMethods":{},"conversionMethods":{},"untaggableTypes":{},
+            "multiValueAdapters":[],
+            "inverseAdapters":{
+              "checked":[[
+                {"viewType":"android.widget.CompoundButton","valueType":"boolean"},
+                {"type":"$ADAPTERS","method":"getChecked","requiresOldValue":false,
+                 "isStatic":true,"componentClass":null,"event":"checkedAttrChanged"}]],
+              "text":[[
+                {"viewType":"android.widget.TextView","valueType":"java.lang.String"},
+                {"type":"$ADAPTERS","method":"getText","requiresOldValue":false,
+                 "isStatic":true,"componentClass":null,"event":"textAttrChanged"}]]},
+            "inverseMethods":{},"twoWayMethods":[]}
+            """.trimIndent()
+
+        /**
+         * The parts of the framework that binders and the runtime stubs use. Views keep their
+         * tag, id and children and record the setters the binders call in `calls`.
+         */
+        private val FRAMEWORK_FAKES = mapOf(
+                "android.content.Context" to """
+                    package android.content;
+                    public class Context {}
+                    """.trimIndent(),
+                "android.util.SparseIntArray" to """
+                    package android.util;
+                    public class SparseIntArray {
+                        private final java.util.HashMap<Integer, Integer> mValues =
+                                new java.util.HashMap<>();
+                        public void put(int key, int value) {
+                            mValues.put(key, value);
+                        }
+                        public int get(int key) {
+                            return get(key, 0);
+                        }
+                        public int get(int key, int valueIfKeyNotFound) {
+                            Integer value = mValues.get(key);
+                            return value == null ? valueIfKeyNotFound : value;
+                        }
+                    }
+                    """.trimIndent(),
+                "android.view.LayoutInflater" to """
+                    package android.view;
+                    public abstract class LayoutInflater {}
+                    """.trimIndent(),
+                "android.view.ViewParent" to """
+                    package android.view;
+                    public interface ViewParent {}
+                    """.trimIndent(),
+                "android.view.View" to """
+                    package android.view;
+                    public class View {
+                        public final java.util.List<String> calls = new java.util.ArrayList<>();
+                        private Object mTag;
+                        private int mId;
+                        ViewParent mParent;
+                        public View(android.content.Context context) {}
+                        public Object getTag() {
+                            return mTag;
+                        }
+                        public void setTag(Object tag) {
+                            mTag = tag;
+                        }
+                        public int getId() {
+                            return mId;
+                        }
+                        public void setId(int id) {
+                            mId = id;
+                        }
+                        public final ViewParent getParent() {
+                            return mParent;
+                        }
+                    }
+                    """.trimIndent(),
+                "android.view.ViewGroup" to """
+                    package android.view;
+                    public abstract class ViewGroup extends View implements ViewParent {
+                        private final java.util.List<View> mChildren =
+                                new java.util.ArrayList<>();
+                        public ViewGroup(android.content.Context context) {
+                            super(context);
+                        }
+                        public void addView(View child) {
+                            mChildren.add(child);
+                            child.mParent = this;
+                        }
+                        public int getChildCount() {
+                            return mChildren.size();
+                        }
+                        public View getChildAt(int index) {
+                            return index < 0 || index >= mChildren.size() ? null
+                                    : mChildren.get(index);
+                        }
+                        public int indexOfChild(View child) {
+                            return mChildren.indexOf(child);
+                        }
+                    }
+                    """.trimIndent(),
+                LINEAR_LAYOUT to """
+                    package android.widget;
+                    public class LinearLayout extends android.view.ViewGroup {
+                        public LinearLayout(android.content.Context context) {
+                            super(context);
+                        }
+                    }
+                    """.trimIndent(),
+                TEXT_VIEW to """
+                    package android.widget;
+                    public class TextView extends android.view.View {
+                        private CharSequence mText = "";
+                        public TextView(android.content.Context context) {
+                            super(context);
+                        }
+                        public final void setText(CharSequence text) {
+                            mText = text;
+                            calls.add("setText(" + text + ")");
+                        }
+                        public CharSequence getText() {
+                            return mText;
+                        }
+                    }
+                    """.trimIndent(),
+                "android.widget.Button" to """
+                    package android.widget;
+                    public class Button extends TextView {
+                        public Button(android.content.Context context) {
+                            super(context);
+                        }
+                    }
+                    """.trimIndent(),
+                "android.widget.CompoundButton" to """
+                    package android.widget;
+                    public abstract class CompoundButton extends Button {
+                        private boolean mChecked;
+                        public CompoundButton(android.content.Context context) {
+                            super(context);
+                        }
+                        public void setChecked(boolean checked) {
+                            mChecked = checked;
+                            calls.add("setChecked(" + checked + ")");
+                        }
+                        public boolean isChecked() {
+                            return mChecked;
+                        }
+                    }
+                    """.trimIndent(),
+                CHECK_BOX to """
+                    package android.widget;
+                    public class CheckBox extends CompoundButton {
+                        public CheckBox(android.content.Context context) {
+                            super(context);
+                        }
+                    }
+                    """.trimIndent()
+        )
+
+        private val RUNTIME_STUBS = mapOf(
+                "androidx.annotation.NonNull" to """
+                    package androidx.annotation;
+                    public @interface NonNull {}
+                    """.trimIndent(),
+                "androidx.annotation.Nullable" to """
+                    package androidx.annotation;
+                    public @interface Nullable {}
+                    """.trimIndent(),
+                "androidx.viewbinding.ViewBinding" to """
+                    package androidx.viewbinding;
+                    public interface ViewBinding {
+                        android.view.View getRoot();
+                    }
+                    """.trimIndent(),
+                "androidx.databinding.DataBindingComponent" to """
+                    package androidx.databinding;
+                    public interface DataBindingComponent {}
+                    """.trimIndent(),
+                "androidx.databinding.BaseObservable" to """
+                    package androidx.databinding;
+                    public class BaseObservable implements Observable {
+                        @Override
+                        public void addOnPropertyChangedCallback(
+                                Observable.OnPropertyChangedCallback callback) {}
+                        @Override
+                        public void removeOnPropertyChangedCallback(
+                                Observable.OnPropertyChangedCallback callback) {}
+                        public void notifyChange() {}
+                        public void notifyPropertyChanged(int fieldId) {}
+                    }
+                    """.trimIndent(),
+                "androidx.databinding.DataBindingUtil" to """
+                    package androidx.databinding;
+                    public class DataBindingUtil {
+                        public static DataBindingComponent getDefaultComponent() {
+                            return null;
+                        }
+                        public static <T extends ViewDataBinding> T inflate(
+                                android.view.LayoutInflater inflater, int layoutId,
+                                android.view.ViewGroup parent, boolean attachToParent,
+                                DataBindingComponent bindingComponent) {
+                            return null;
+                        }
+                    }
+                    """.trimIndent(),
+                "androidx.databinding.ViewDataBinding" to """
+                    package androidx.databinding;
+                    import android.view.View;
+                    public abstract class ViewDataBinding extends BaseObservable
+                            implements androidx.viewbinding.ViewBinding {
+                        protected final DataBindingComponent mBindingComponent;
+                        private final View mRoot;
+                        protected ViewDataBinding(DataBindingComponent bindingComponent,
+                                View root, int localFieldCount) {
+                            mBindingComponent = bindingComponent;
+                            mRoot = root;
+                        }
+                        public static int getBuildSdkInt() {
+                            return 0;
+                        }
+                        public static int sMapBindingsCalls;
+                        protected static Object[] mapBindings(
+                                DataBindingComponent bindingComponent, View root,
+                                int numBindings, IncludedLayouts includes,
+                                android.util.SparseIntArray viewsWithIds) {
+                            sMapBindingsCalls++;
+                            Object[] bindings = new Object[numBindings];
+                            mapBindings(root, bindings, viewsWithIds, true);
+                            return bindings;
+                        }
+                        private static void mapBindings(View view, Object[] bindings,
+                                android.util.SparseIntArray viewsWithIds, boolean isRoot) {
+                            Object tag = view.getTag();
+                            int index = -1;
+                            if (isRoot && tag instanceof String
+                                    && ((String) tag).startsWith("layout")) {
+                                String rootTag = (String) tag;
+                                index = Integer.parseInt(
+                                        rootTag.substring(rootTag.lastIndexOf('_') + 1));
+                            } else if (tag instanceof String
+                                    && ((String) tag).startsWith("binding_")) {
+                                index = Integer.parseInt(((String) tag).substring(8));
+                            } else if (viewsWithIds != null) {
+                                index = viewsWithIds.get(view.getId(), -1);
+                            }
+                            if (index >= 0 && bindings[index] == null) {
+                                bindings[index] = view;
+                            }
+                            if (view instanceof android.view.ViewGroup) {
+                                android.view.ViewGroup group = (android.view.ViewGroup) view;
+                                for (int i = 0; i < group.getChildCount(); i++) {
+                                    mapBindings(group.getChildAt(i), bindings, viewsWithIds,
+                                            false);
+                                }
+                            }
+                        }
+                        protected static Object[] mapBindings(
+                                DataBindingComponent bindingComponent, View[] roots,
+                                int numBindings, IncludedLayouts includes,
+                                android.util.SparseIntArray viewsWithIds) {
+                            return new Object[numBindings];
+                        }
+                        protected static ViewDataBinding bind(Object bindingComponent,
+                                View view, int layoutId) {
+                            return null;
+                        }
+                        protected void setRootTag(View view) {}
+                        protected void setRootTag(View[] views) {}
+                        protected void requestRebind() {}
+                        protected boolean updateRegistration(int localFieldId,
+                                Observable observable) {
+                            return false;
+                        }
+                        protected void executeBindingsOn(ViewDataBinding other) {}
+                        protected void setContainedBinding(ViewDataBinding binding) {}
+                        protected void ensureBindingComponentIsNotNull(Class<?> oneExample) {}
+                        public abstract void invalidateAll();
+                        public abstract boolean hasPendingBindings();
+                        public abstract boolean setVariable(int variableId, Object value);
+                        protected abstract boolean onFieldChange(int localFieldId,
+                                Object object, int fieldId);
+                        protected abstract void executeBindings();
+                        public void executePendingBindings() {
+                            executeBindings();
+                        }
+                        @Override
+                        public View getRoot() {
+                            return mRoot;
+                        }
+                        protected static boolean safeUnbox(Boolean boxed) {
+                            return boxed == null ? false : boxed;
+                        }
+                        protected static int safeUnbox(Integer boxed) {
+                            return boxed == null ? 0 : boxed;
+                        }
+                        protected static long safeUnbox(Long boxed) {
+                            return boxed == null ? 0L : boxed;
+                        }
+                        public static class IncludedLayouts {
+                            public IncludedLayouts(int bindingCount) {}
+                            public void setIncludes(int index, String[] layouts, int[] indexes,
+                                    int[] layoutIds) {}
+                        }
+                    }
+                    """.trimIndent(),
+                VIEW_MODEL to """
+                    package $MODULE_PACKAGE;
+                    public class TestViewModel {
+                        private String mName;
+                        private String mTitle;
+                        private boolean mChecked;
+                        private int mCount;
+                        public String getName() {
+                            return mName;
+                        }
+                        public void setName(String name) {
+                            mName = name;
+                        }
+                        public String getTitle() {
+                            return mTitle;
+                        }
+                        public void setTitle(String title) {
+                            mTitle = title;
+                        }
+                        public boolean isChecked() {
+                            return mChecked;
+                        }
+                        public void setChecked(boolean checked) {
+                            mChecked = checked;
+                        }
+                        public int getCount() {
+                            return mCount;
+                        }
+                        public void setCount(int count) {
+                            mCount = count;
+                        }
+                    }
+                    """.trimIndent(),
+                ADAPTERS to """
+                    package $MODULE_PACKAGE;
+                    import android.widget.CompoundButton;
+                    import android.widget.TextView;
+                    import $INVERSE_LISTENER;
+                    public class TestAdapters {
+                        public static boolean getChecked(CompoundButton view) {
+                            return view.isChecked();
+                        }
+                        public static void setCheckedListener(CompoundButton view,
+                                InverseBindingListener listener) {}
+                        public static String getText(TextView view) {
+                            return view.getText().toString();
+                        }
+                        public static void setTextListener(TextView view,
+                                InverseBindingListener listener) {}
+                    }
+                    """.trimIndent()
+        )
+    }
+}
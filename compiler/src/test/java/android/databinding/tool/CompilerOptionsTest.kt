@@ -0,0 +1,81 @@
+/*
+ * Copyright (C) 2021 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package android.databinding.tool
+
+import android.databinding.tool.CompilerOptions.ValueEquality
+import org.hamcrest.CoreMatchers.`is`
+import org.hamcrest.CoreMatchers.nullValue
+import org.hamcrest.MatcherAssert.assertThat
+import org.junit.Test
+import org.junit.runner.RunWith
+import org.junit.runners.JUnit4
+
+@RunWith(JUnit4::class)
+class CompilerOptionsTest {
+    @Test
+    fun defaults() {
+        assertThat(CompilerOptions.readFromOptions(emptyMap()), `is`(CompilerOptions.DEFAULT))
+    }
+
+    @Test
+    fun skipUnchangedSetters() {
+        assertThat(read(CompilerOptions.PARAM_SKIP_UNCHANGED_SETTERS, "none")
+                .skipUnchangedSetters, nullValue())
+        assertThat(read(CompilerOptions.PARAM_SKIP_UNCHANGED_SETTERS, "identity")
+                .skipUnchangedSetters, `is`(ValueEquality.IDENTITY))
+        assertThat(read(CompilerOptions.PARAM_SKIP_UNCHANGED_SETTERS, " equals ")
+                .skipUnchangedSetters, `is`(ValueEquality.EQUALS))
+    }
+
+    @Test(expected = IllegalArgumentException::class)
+    fun skipUnchangedSettersInvalid() {
+        read(CompilerOptions.PARAM_SKIP_UNCHANGED_SETTERS, "deep")
+    }
+
+    @Test
+    fun lockFreeDirtyFlags() {
+        assertThat(read(CompilerOptions.PARAM_LOCK_FREE_DIRTY_FLAGS, "true").lockFreeDirtyFlags,
+                `is`(true))
+        assertThat(read(CompilerOptions.PARAM_LOCK_FREE_DIRTY_FLAGS, "false").lockFreeDirtyFlags,
+                `is`(false))
+    }
+
+    @Test
+    fun executeBindingsBudget() {
+        assertThat(read(CompilerOptions.PARAM_EXECUTE_BINDINGS_BUDGET, "8000")
+                .executeBindingsBudget, `is`(8000))
+    }
+
+    @Test(expected = IllegalArgumentException::class)
+    fun executeBindingsBudgetNegative() {
+        read(CompilerOptions.PARAM_EXECUTE_BINDINGS_BUDGET, "-1")
+    }
+
+    @Test
+    fun lazyDependencyMappers() {
+        assertThat(read(CompilerOptions.PARAM_LAZY_DEPENDENCY_MAPPERS, "true")
+                .lazyDependencyMappers, `is`(true))
+    }
+
+    @Test
+    fun cacheBindingPaths() {
+        assertThat(read(CompilerOptions.PARAM_CACHE_BINDING_PATHS, "true").cacheBindingPaths,
+                `is`(true))
+    }
+
+    private fun read(key: String, value: String) =
+            CompilerOptions.readFromOptions(mapOf(key to value))
+}
@@ -18,6 +18,8 @@ package android.databinding.tool.expr;
 
 import androidx.databinding.Bindable;
 import androidx.databinding.Observable;
+import android.databinding.tool.CompilerOptions;
+import android.databinding.tool.Context;
 import android.databinding.tool.LayoutBinder;
 import android.databinding.tool.MockLayoutBinder;
 import android.databinding.tool.reflection.ModelAnalyzer;
@@ -25,6 +27,7 @@ import android.databinding.tool.reflection.ModelClass;
 import android.databinding.tool.reflection.java.JavaAnalyzer;
 import android.databinding.tool.store.Location;
 import android.databinding.tool.util.L;
+import android.databinding.tool.writer.FlagSet;
 import android.databinding.tool.writer.KCode;
 
 import org.junit.Before;
@@ -95,6 +98,21 @@ public class ExprModelTest {
         }
     }
 
+    private static class CountingExpr extends DummyExpr {
+
+        int mUpdateCount;
+
+        public CountingExpr(String key, DummyExpr... children) {
+            super(key, children);
+        }
+
+        @Override
+        public void updateExpr(ModelAnalyzer modelAnalyzer) {
+            mUpdateCount++;
+            super.updateExpr(modelAnalyzer);
+        }
+    }
+
     ExprModel mExprModel;
 
     @Rule
@@ -152,6 +170,86 @@ public class ExprModelTest {
         assertEquals(c, mExprModel.register(c2));
     }
 
+    @Test
+    public void testLookupsDoNotRepeatUpdates() {
+        final ModelAnalyzer modelAnalyzer = ModelAnalyzer.getInstance();
+        CountingExpr shared = mExprModel.register(new CountingExpr("shared"));
+        DummyExpr first = mExprModel.register(new DummyExpr("first", shared));
+        DummyExpr second = mExprModel.register(new DummyExpr("second",
+                mExprModel.register(new CountingExpr("shared"))));
+        first.updateExprIfModelChanged(modelAnalyzer);
+        second.updateExprIfModelChanged(modelAnalyzer);
+        assertEquals(1, shared.mUpdateCount);
+
+        // finding an existing expression does not change the model
+        assertSame(shared, mExprModel.register(new CountingExpr("shared")));
+        first.updateExprIfModelChanged(modelAnalyzer);
+        second.updateExprIfModelChanged(modelAnalyzer);
+        assertEquals(1, shared.mUpdateCount);
+
+        mExprModel.register(new DummyExpr("other"));
+        first.updateExprIfModelChanged(modelAnalyzer);
+        second.updateExprIfModelChanged(modelAnalyzer);
+        assertEquals(2, shared.mUpdateCount);
+    }
+
+    @Test
+    public void testPackFlagsKeepsObservableIds() {
+        Context.initForTests(ModelAnalyzer.getInstance(), Context.getSdkUtil(), null,
+                CompilerOptions.readFromOptions(
+                        Collections.singletonMap(CompilerOptions.PARAM_PACK_FLAGS, "true")));
+        MockLayoutBinder lb = new MockLayoutBinder();
+        mExprModel = lb.getModel();
+        lb.addVariable("s0", "java.lang.String", null);
+        lb.addVariable("u1", User.class.getCanonicalName(), null);
+        lb.addVariable("u2", User.class.getCanonicalName(), null);
+        lb.addVariable("s1", "java.lang.String", null);
+        lb.parse("u1.useComment ? s0 : s1", null, null);
+        lb.parse("u2.useComment ? s1 : s0", null, null);
+        mExprModel.seal();
+        List<Expr> observables = mExprModel.getObservables();
+        assertEquals(2, observables.size());
+        for (Expr observable : observables) {
+            // observable ids index the listeners of the binder
+            assertTrue(observable + " has id " + observable.getId(),
+                    observable.getId() < observables.size());
+        }
+    }
+
+    @Test
+    public void testPackFlagsBucketTouches() {
+        Context.initForTests(ModelAnalyzer.getInstance(), Context.getSdkUtil(), null,
+                CompilerOptions.readFromOptions(
+                        Collections.singletonMap(CompilerOptions.PARAM_PACK_FLAGS, "true")));
+        MockLayoutBinder lb = new MockLayoutBinder();
+        mExprModel = lb.getModel();
+        // a form with 70 plain text variables and 4 observable users, one toggle each. The
+        // fields read from the users get flags after the text variables, in the second bucket.
+        for (int i = 0; i < 70; i++) {
+            lb.addVariable("s" + i, "java.lang.String", null);
+            lb.parse("s" + i, null, null);
+        }
+        for (int i = 0; i < 4; i++) {
+            lb.addVariable("u" + i, User.class.getCanonicalName(), null);
+            lb.parse("u" + i + ".useComment", null, null);
+        }
+        mExprModel.seal();
+        assertEquals(4, mExprModel.getObservables().size());
+        // each user and its toggle were in different buckets
+        assertEquals(8, mExprModel.getBucketTouchesBeforePacking());
+        // packed next to the users in the first bucket
+        assertEquals(4, mExprModel.getBucketTouchesAfterPacking());
+        final String[] mapping = mExprModel.getFlagMapping();
+        int toggles = 0;
+        for (int i = 0; i < mapping.length; i++) {
+            if (mapping[i].endsWith("useComment")) {
+                assertTrue(mapping[i] + " has id " + i, i < FlagSet.sBucketSize);
+                toggles++;
+            }
+        }
+        assertEquals(4, toggles);
+    }
+
     @Test
     public void testShouldRead() {
         MockLayoutBinder lb = new MockLayoutBinder();
@@ -299,6 +397,143 @@ public class ExprModelTest {
         assertFalse(mExprModel.markBitsRead());
     }
 
+    @Test
+    public void testFlagMapping() {
+        final String[] mapping = sealNestedTernary();
+        assertEquals(10, mapping.length);
+        for (String name : new String[]{"cond1", "cond2", "a", "b", "c"}) {
+            final Expr variable = getIdentifier(mExprModel, name);
+            assertTrue(variable.getId() < 5);
+            assertEquals(variable.getUniqueKey(), mapping[variable.getId()]);
+            assertSame(variable, mExprModel.findFlagExpression(variable.getId()));
+        }
+        assertEquals(5, mExprModel.getInvalidateAnyFlagIndex());
+        assertEquals("INVALIDATE ANY", mapping[5]);
+        assertNull(mExprModel.findFlagExpression(5));
+        for (Expr expr : mExprModel.getExprMap().values()) {
+            if (expr instanceof TernaryExpr) {
+                assertEquals(expr.getUniqueKey() + "== false",
+                        mapping[expr.getRequirementFlagIndex(false)]);
+                assertEquals(expr.getUniqueKey() + "== true",
+                        mapping[expr.getRequirementFlagIndex(true)]);
+                assertSame(expr, mExprModel.findFlagExpression(
+                        expr.getRequirementFlagIndex(false)));
+                assertSame(expr, mExprModel.findFlagExpression(
+                        expr.getRequirementFlagIndex(true)));
+            }
+        }
+        // sealing the same layout again assigns the same flags
+        assertEquals(Arrays.asList(mapping), Arrays.asList(sealNestedTernary()));
+    }
+
+    @Test
+    public void testFlagsMatchFullScans() {
+        final String[][] models = {
+                {"cond1 ? cond2 ? a : b : c"},
+                {"a == null ? b == null ? c : d : e", "a + e"},
+                {"user.name",
+                        "user.useComment ? user.comment : user.lastName",
+                        "cond1 ? user.name + a : user.getCond(count) ? b : user.lastName",
+                        "user.subObj.finalField + count",
+                        "user.anotherSubObj.finalField",
+                        "cond1 && user.useComment ? c : user.name",
+                        "count > 3 ? (cond2 ? count : count + 1) : 0"}
+        };
+        for (String[] expressions : models) {
+            assertEquals(describeSeal(true, expressions), describeSeal(false, expressions));
+        }
+    }
+
+    /**
+     * Seals a model of the given expressions and describes the flag mapping, the flags and
+     * dependencies of every expression and the expressions read in each step of
+     * {@link ExprModel#markBitsRead()}.
+     */
+    private List<String> describeSeal(boolean fullScans, String... expressions) {
+        MockLayoutBinder lb = new MockLayoutBinder();
+        mExprModel = lb.getModel();
+        if (fullScans) {
+            mExprModel.forceFullScans();
+        }
+        lb.addVariable("user", User.class.getCanonicalName(), null);
+        lb.addVariable("count", "int", null);
+        for (String name : new String[]{"cond1", "cond2"}) {
+            lb.addVariable(name, "boolean", null);
+        }
+        for (String name : new String[]{"a", "b", "c", "d", "e"}) {
+            lb.addVariable(name, "java.lang.String", null);
+        }
+        for (String expression : expressions) {
+            lb.parse(expression, null, null);
+        }
+        mExprModel.seal();
+        List<String> description = new ArrayList<String>(
+                Arrays.asList(mExprModel.getFlagMapping()));
+        for (Expr expr : mExprModel.getExprMap().values()) {
+            List<String> dependencies = new ArrayList<String>();
+            for (Dependency dependency : expr.getDependencies()) {
+                dependencies.add(dependency.getOther().getUniqueKey()
+                        + (dependency.isConditional() ? " if " + dependency.getExpectedOutput()
+                        : ""));
+            }
+            description.add(expr.getUniqueKey() + " id " + expr.getId()
+                    + " invalid " + expr.getInvalidFlags()
+                    + " read " + expr.getShouldReadFlagsWithConditionals()
+                    + " depends on " + dependencies);
+        }
+        int step = 0;
+        do {
+            assertTrue(step < 20);
+            List<String> read = new ArrayList<String>();
+            for (Expr expr : getShouldRead()) {
+                read.add(expr.getUniqueKey() + " " + expr.getShouldReadFlags());
+            }
+            description.add("step " + step++ + " reads " + read);
+        } while (mExprModel.markBitsRead());
+        return description;
+    }
+
+    @Test
+    public void testMarkBitsReadFindsAllDoneExpressions() {
+        MockLayoutBinder lb = new MockLayoutBinder();
+        mExprModel = lb.getModel();
+        for (String name : new String[]{"a", "b", "c", "d", "e"}) {
+            lb.addVariable(name, "java.lang.String", null);
+        }
+        lb.parse("a == null ? b == null ? c : d : e", null, null);
+        lb.parse("a + e", null, null);
+        mExprModel.seal();
+        int steps = 0;
+        while (markBitsReadAndCheckAllDone()) {
+            assertTrue(++steps < 10);
+        }
+    }
+
+    /**
+     * Calls {@link ExprModel#markBitsRead()} and verifies that checking every expression again
+     * does not find any expression that is done but was not marked as read.
+     */
+    private boolean markBitsReadAndCheckAllDone() {
+        final boolean elevated = mExprModel.markBitsRead();
+        for (Expr expr : mExprModel.getExprMap().values()) {
+            if (!expr.isRead()) {
+                assertFalse(expr.toString(), expr.markAsReadIfDone());
+            }
+        }
+        return elevated;
+    }
+
+    private String[] sealNestedTernary() {
+        MockLayoutBinder lb = new MockLayoutBinder();
+        mExprModel = lb.getModel();
+        for (String name : new String[]{"cond1", "cond2", "a", "b", "c"}) {
+            lb.addVariable(name, "boolean", null);
+        }
+        parse(lb, "cond1 ? cond2 ? a : b : c", TernaryExpr.class);
+        mExprModel.seal();
+        return mExprModel.getFlagMapping();
+    }
+
     @Test
     public void testRequirementFlags() {
         MockLayoutBinder lb = new MockLayoutBinder();
@@ -0,0 +1,70 @@
+/*
+ * Copyright (C) 2021 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package android.databinding.tool.expr;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+public class FlagPackerTest {
+    @Test
+    public void testFillsBucketBeforeStraddlingCluster() {
+        List<List<Integer>> clusters = Arrays.asList(
+                Arrays.asList(100, 101, 102),
+                Arrays.asList(200, 201, 202));
+        List<Integer> singles = Arrays.asList(1, 2, 3, 4);
+        List<Integer> packed = FlagPacker.pack(clusters, singles, 4);
+        // the second cluster would straddle the first two buckets, singles fill the first one
+        assertEquals(Arrays.asList(100, 101, 102, 1, 200, 201, 202, 2, 3, 4), packed);
+        assertEquals(2, FlagPacker.countBucketTouches(clusters, packed::indexOf, 4));
+    }
+
+    @Test
+    public void testKeepsEveryFlag() {
+        List<List<Integer>> clusters = new ArrayList<List<Integer>>();
+        List<Integer> singles = new ArrayList<Integer>();
+        int next = 0;
+        for (int i = 0; i < 40; i++) {
+            List<Integer> cluster = new ArrayList<Integer>();
+            for (int j = 0; j < 1 + i % 9; j++) {
+                cluster.add(next++);
+            }
+            clusters.add(cluster);
+            singles.add(next++);
+        }
+        List<Integer> packed = FlagPacker.pack(clusters, singles, 64);
+        assertEquals(next, packed.size());
+        assertEquals(next, new HashSet<Integer>(packed).size());
+        int before = FlagPacker.countBucketTouches(clusters, Integer::intValue, 64);
+        int after = FlagPacker.countBucketTouches(clusters, packed::indexOf, 64);
+        assertEquals(true, after <= before);
+    }
+
+    @Test
+    public void testStraddlesWithoutEnoughSingles() {
+        List<List<Integer>> clusters = Arrays.asList(
+                Arrays.asList(10, 11),
+                Arrays.asList(20, 21, 22));
+        List<Integer> packed = FlagPacker.pack(clusters, Arrays.asList(1), 4);
+        assertEquals(Arrays.asList(10, 11, 20, 21, 22, 1), packed);
+    }
+}
@@ -0,0 +1,113 @@
+/*
+ * Copyright (C) 2021 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package android.databinding.tool.reflection
+
+import org.hamcrest.CoreMatchers.`is`
+import org.hamcrest.MatcherAssert.assertThat
+import org.junit.Rule
+import org.junit.Test
+import org.junit.rules.TemporaryFolder
+import org.junit.runner.RunWith
+import org.junit.runners.JUnit4
+import java.io.File
+
+@RunWith(JUnit4::class)
+class ApiVersionsIndexTest {
+    @JvmField
+    @Rule
+    val tmpFolder = TemporaryFolder()
+
+    @Test
+    fun parse() {
+        val index = ApiVersionsIndex.parse(API_VERSIONS.byteInputStream())
+        assertThat(index.classCount, `is`(2))
+        assertThat(index.methodCount, `is`(4))
+        index.assertLookups()
+    }
+
+    @Test
+    fun writeAndRead() {
+        val file = tmpFolder.newFile()
+        ApiVersionsIndex.parse(API_VERSIONS.byteInputStream()).write(file)
+        val index = ApiVersionsIndex.read(file)
+        assertThat(index.classCount, `is`(2))
+        assertThat(index.methodCount, `is`(4))
+        index.assertLookups()
+    }
+
+    @Test
+    fun checkerCachesIndex() {
+        val apiFile = tmpFolder.newFile("api-versions.xml").apply { writeText(API_VERSIONS) }
+        val cacheDir = tmpFolder.newFolder()
+        val checker = SdkUtil.ApiChecker(apiFile, cacheDir)
+        assertThat(checker.getMinApi("android/view/View", "setElevation(F)V"), `is`(21))
+        val indexFiles = cacheDir.listFiles()!!
+        assertThat(indexFiles.map(File::getName).all { it.endsWith(".idx") }, `is`(true))
+        assertThat(indexFiles.size, `is`(1))
+
+        // a second checker reads the index back, a different api file gets its own index
+        val cached = SdkUtil.ApiChecker(apiFile, cacheDir)
+        assertThat(cached.getMinApi("android/view/View", "setElevation(F)V"), `is`(21))
+        apiFile.writeText(API_VERSIONS.replace("since=\"21\"", "since=\"22\""))
+        val updated = SdkUtil.ApiChecker(apiFile, cacheDir)
+        assertThat(updated.getMinApi("android/view/View", "setElevation(F)V"), `is`(22))
+        assertThat(cacheDir.listFiles()!!.size, `is`(2))
+    }
+
+    @Test
+    fun corruptIndexIsIgnored() {
+        val apiFile = tmpFolder.newFile("api-versions.xml").apply { writeText(API_VERSIONS) }
+        val cacheDir = tmpFolder.newFolder()
+        SdkUtil.ApiChecker(apiFile, cacheDir)
+        val indexFile = cacheDir.listFiles()!!.single()
+        indexFile.writeBytes(indexFile.readBytes().copyOf(20))
+        val checker = SdkUtil.ApiChecker(apiFile, cacheDir)
+        assertThat(checker.getMinApi("android/view/View", "setElevation(F)V"), `is`(21))
+    }
+
+    private fun ApiVersionsIndex.assertLookups() {
+        assertThat(getSince("android/view/View", "setElevation(F)V"), `is`(21))
+        // methods without since inherit the class level
+        assertThat(getSince("android/view/View", "getId()I"), `is`(1))
+        assertThat(getSince("android/widget/Switch", "getId()I"), `is`(14))
+        // repeated methods override the previous entry
+        assertThat(getSince("android/widget/Switch", "setChecked(Z)V"), `is`(17))
+        // fields are not indexed
+        assertThat(getSince("android/view/View", "VISIBLE"), `is`(0))
+        assertThat(getSince("android/view/View", "doesNotExist()V"), `is`(0))
+        assertThat(getSince("android/view/DoesNotExist", "getId()I"), `is`(0))
+    }
+
+    companion object {
+        private val API_VERSIONS = """
+            <?xml version="1.0" encoding="utf-8"?>
+            <api version="2">
+                <class name="android/view/View" since="1">
+                    <extends name="java/lang/Object"/>
+                    <method name="getId()I"/>
+                    <method name="setElevation(F)V" since="21"/>
+                    <field name="VISIBLE"/>
+                </class>
+                <class name="android/widget/Switch" since="14">
+                    <method name="getId()I" since="1"/>
+                    <method name="setChecked(Z)V" since="16"/>
+                    <method name="setChecked(Z)V" since="17"/>
+                </class>
+            </api>
+        """.trimIndent()
+    }
+}
@@ -122,6 +122,76 @@ class ClassFinderCacheTest {
 
     }
 
+    @Test
+    fun fail_cached() {
+        val cache = ClassFinderCache(loggingFinder::doFind)
+        assertThat(cache.find("foo", null), nullValue())
+        assertThat(cache.find("foo", null), nullValue())
+        // the miss should come from cache
+        assertThat(loggingFinder.calls, `is`(
+                listOf(
+                        DoFindCall("foo", null)
+                )
+        ))
+    }
+
+    @Test
+    fun invalidate() {
+        val cache = ClassFinderCache(loggingFinder::doFind)
+        assertThat(cache.find("foo", null), nullValue())
+        val fake = loggingFinder.addClassFor("foo")
+        cache.invalidate("foo")
+        assertThat(cache.find("foo", null), `is`(fake))
+        assertThat(loggingFinder.calls, `is`(
+                listOf(
+                        DoFindCall("foo", null),
+                        DoFindCall("foo", null)
+                )
+        ))
+    }
+
+    @Test
+    fun import_mutated_after_lookup() {
+        val cache = ClassFinderCache(loggingFinder::doFind)
+        val fake = loggingFinder.addClassFor("foo")
+        val imports = MutableImportBag().also {
+            it.put("baz", "foo.baz")
+        }
+        val imports1 = imports.toImmutable()
+        assertThat(cache.find("foo", imports), `is`(fake))
+        // mutating the bag must not change the key of the cached lookup
+        imports.put("bazar", "foo.bazar")
+        assertThat(cache.find("foo", imports1), `is`(fake))
+        assertThat(loggingFinder.calls, `is`(
+                listOf(
+                        DoFindCall("foo", imports1)
+                )
+        ))
+    }
+
+    @Test
+    fun bounded() {
+        val cache = ClassFinderCache(loggingFinder::doFind, 2)
+        val foo = loggingFinder.addClassFor("foo")
+        loggingFinder.addClassFor("bar")
+        loggingFinder.addClassFor("baz")
+        cache.find("foo", null)
+        cache.find("bar", null)
+        // touch foo so that bar is the least recently used one
+        assertThat(cache.find("foo", null), `is`(foo))
+        cache.find("baz", null)
+        cache.find("foo", null)
+        cache.find("bar", null)
+        assertThat(loggingFinder.calls, `is`(
+                listOf(
+                        DoFindCall("foo", null),
+                        DoFindCall("bar", null),
+                        DoFindCall("baz", null),
+                        DoFindCall("bar", null)
+                )
+        ))
+    }
+
     class LoggingFinder {
         val calls = arrayListOf<DoFindCall>()
         private val classes = mutableMapOf<String, ModelClass>()
@@ -0,0 +1,93 @@
+/*
+ * Copyright (C) 2021 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package android.databinding.tool.reflection
+
+import android.databinding.tool.reflection.java.JavaAnalyzer
+import org.hamcrest.CoreMatchers.`is`
+import org.hamcrest.CoreMatchers.notNullValue
+import org.hamcrest.CoreMatchers.nullValue
+import org.hamcrest.MatcherAssert.assertThat
+import org.junit.Before
+import org.junit.Test
+import org.junit.runner.RunWith
+import org.junit.runners.JUnit4
+
+@RunWith(JUnit4::class)
+class ModelClassMembersTest {
+    @Before
+    fun setUp() = JavaAnalyzer.initForTests()
+
+    @Test
+    fun methodsByNameAndArity() {
+        val stringBuilder = findClass(java.lang.StringBuilder::class.java.name)
+        val append = stringBuilder.getMethods("append", 1)
+        assertThat(append.isNotEmpty(), `is`(true))
+        assertThat(append.all { it.name == "append" && it.parameterTypes.size == 1 }, `is`(true))
+        assertThat(stringBuilder.getMethods("doesNotExist", 0).size, `is`(0))
+        assertThat(stringBuilder.findMethods("toString", false).isNotEmpty(), `is`(true))
+        assertThat(stringBuilder.findMethods("toString", true).size, `is`(0))
+    }
+
+    @Test
+    fun strippedFieldNames() {
+        val fields = findClass(Fields::class.java.canonicalName)
+        val count = fields.findGetterOrField("count", false)
+        assertThat(count, notNullValue())
+        assertThat(count!!.type, `is`(Callable.Type.FIELD))
+        assertThat(count.resolvedType.isInt, `is`(true))
+        assertThat(fields.findGetterOrField("title", false)!!.resolvedType.isString, `is`(true))
+        assertThat(fields.findGetterOrField("other", false), nullValue())
+    }
+
+    @Test
+    fun getterIsCached() {
+        val fields = findClass(Fields::class.java.canonicalName)
+        val name = fields.findGetterOrField("name", false)
+        assertThat(name!!.type, `is`(Callable.Type.METHOD))
+        assertThat(name.setterName, `is`("setName"))
+        assertThat(fields.findGetterOrField("name", false) === name, `is`(true))
+        assertThat(fields.findInstanceGetter("name")!!.name, `is`("getName"))
+    }
+
+    @Test
+    fun injectedMembers() {
+        val injected = InjectedClass("com.example.Injected", "java.lang.Object")
+        assertThat(injected.findGetterOrField("foo", false), nullValue())
+        assertThat(injected.findInstanceGetter("foo"), nullValue())
+        injected.addVariable("foo", "java.lang.String", ImportBag.EMPTY)
+        assertThat(injected.findGetterOrField("foo", false), notNullValue())
+        assertThat(injected.findInstanceGetter("foo")!!.name, `is`("getFoo"))
+    }
+
+    private fun findClass(name: String) = ModelAnalyzer.getInstance().findClass(name, null)!!
+
+    @Suppress("unused")
+    class Fields {
+        @JvmField
+        val mCount = 0
+
+        @JvmField
+        var _title = ""
+
+        private var name: String? = null
+
+        fun getName() = name
+
+        fun setName(name: String?) {
+            this.name = name
+        }
+    }
+}
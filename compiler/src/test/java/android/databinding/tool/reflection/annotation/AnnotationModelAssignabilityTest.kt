@@ -88,6 +88,31 @@ class AnnotationModelAssignabilityTest {
     }
   }
 
+  @Test
+  fun cachedAcrossInstances() {
+    runProcessorTest(tmpFolder) { context, processingEnvironment ->
+      val cache = AnnotationAnalyzer.get().assignabilityCache
+      val charSequence = context.requireClass("java.lang.CharSequence")
+      val string = context.requireClass("String")
+      val listOfString = context.requireClass("List<String>")
+      val collectionOfCharSequence = context.requireClass("java.util.Collection<CharSequence>")
+      val misses = cache.missCount
+      val hits = cache.hitCount
+      val saved = cache.savedTypesCallCount
+      charSequence.assertAssignableFrom(string)
+      collectionOfCharSequence.assertNotAssignableFrom(listOfString)
+      assertThat(cache.missCount - misses).isEqualTo(2)
+      assertThat(cache.hitCount - hits).isEqualTo(0)
+
+      // checking again, including with erased forms, hits the cache
+      charSequence.assertAssignableFrom(string.erasure())
+      collectionOfCharSequence.assertNotAssignableFrom(listOfString)
+      assertThat(cache.missCount - misses).isEqualTo(2)
+      assertThat(cache.hitCount - hits).isEqualTo(2)
+      assertThat(cache.savedTypesCallCount - saved).isEqualTo(2L)
+    }
+  }
+
   private fun ModelClass.getField(name:String) = allFields.first {
     it.name == name
   }
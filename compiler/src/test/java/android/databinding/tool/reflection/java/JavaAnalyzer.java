@@ -200,14 +200,53 @@ public class JavaAnalyzer extends ModelAnalyzer {
     }
 
     public static void initForTests() {
+        initForTests(Collections.<File>emptyList());
+    }
+
+    /**
+     * Same as {@link #initForTests()} but also loads classes from the given class path, e.g.
+     * stubs of the data binding runtime.
+     */
+    public static void initForTests(List<File> classPath) {
+        File androidHome = findAndroidHome();
+        File androidJar = findAndroidJar(androidHome);
+        try {
+            URL[] urls = new URL[classPath.size() + 1];
+            for (int i = 0; i < classPath.size(); i++) {
+                urls[i] = classPath.get(i).toURI().toURL();
+            }
+            urls[classPath.size()] = androidJar.toURI().toURL();
+            ClassLoader classLoader = new URLClassLoader(urls,
+                    ModelAnalyzer.class.getClassLoader());
+            JavaAnalyzer javaAnalyzer = new JavaAnalyzer(classLoader, new LibTypes(true));
+            Context.initForTests(javaAnalyzer,
+                    SdkUtil.create(androidHome, 8));
+        } catch (MalformedURLException e) {
+            throw new RuntimeException("cannot create class loader", e);
+        }
+    }
+
+    /**
+     * Returns the android.jar of the latest platform in the SDK, e.g. to compile generated code
+     * against it.
+     */
+    public static File findAndroidJar() {
+        return findAndroidJar(findAndroidHome());
+    }
+
+    private static File findAndroidHome() {
         String androidHome = loadAndroidHome();
         if (Strings.isNullOrEmpty(androidHome) || !new File(androidHome).exists()) {
             throw new IllegalStateException(
                     "you need to have ANDROID_HOME set in your environment"
                             + " to run compiler tests");
         }
+        return new File(androidHome);
+    }
+
+    private static File findAndroidJar(File androidHome) {
         // find latest SDK
-        final File platforms = new File(androidHome + "/platforms");
+        final File platforms = new File(androidHome, "platforms");
         final String prefix = "android-";
         final Collection<File> sdks = FileUtils
                 .listFilesAndDirs(platforms, FileFilterUtils.falseFileFilter(),
@@ -228,16 +267,6 @@ public class JavaAnalyzer extends ModelAnalyzer {
         if (androidJar == null || !androidJar.exists() || !androidJar.canRead()) {
             throw new IllegalStateException("cannot find android jar");
         }
-        // now load android data binding library as well
-
-        try {
-            ClassLoader classLoader = new URLClassLoader(new URL[]{androidJar.toURI().toURL()},
-                    ModelAnalyzer.class.getClassLoader());
-            JavaAnalyzer javaAnalyzer = new JavaAnalyzer(classLoader, new LibTypes(true));
-            Context.initForTests(javaAnalyzer,
-                    SdkUtil.create(new File(androidHome), 8));
-        } catch (MalformedURLException e) {
-            throw new RuntimeException("cannot create class loader", e);
-        }
+        return androidJar;
     }
 }
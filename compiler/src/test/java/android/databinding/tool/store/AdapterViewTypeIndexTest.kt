@@ -0,0 +1,92 @@
+/*
+ * Copyright (C) 2021 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package android.databinding.tool.store
+
+import android.databinding.tool.reflection.ModelAnalyzer
+import android.databinding.tool.reflection.java.JavaAnalyzer
+import android.databinding.tool.store.SetterStore.AccessorKey
+import org.hamcrest.CoreMatchers.`is`
+import org.hamcrest.MatcherAssert.assertThat
+import org.junit.Before
+import org.junit.Test
+import org.junit.runner.RunWith
+import org.junit.runners.JUnit4
+import java.util.TreeMap
+
+@RunWith(JUnit4::class)
+class AdapterViewTypeIndexTest {
+    private lateinit var index: AdapterViewTypeIndex<String>
+
+    @Before
+    fun setUp() {
+        JavaAnalyzer.initForTests()
+        val adapters = TreeMap<AccessorKey, String>()
+        listOf(
+                "java.lang.Object",
+                "java.util.AbstractList",
+                "java.util.ArrayList",
+                "java.util.HashMap",
+                "java.util.List",
+                "java.util.RandomAccess"
+        ).forEach {
+            adapters[AccessorKey(it, "java.lang.String")] = it
+        }
+        index = AdapterViewTypeIndex(adapters, ModelAnalyzer.getInstance())
+    }
+
+    @Test
+    fun superclassChainAndInterfaces() {
+        // interfaces are always candidates, the caller checks assignability
+        assertThat(candidatesFor("java.util.ArrayList"), `is`(listOf(
+                "java.lang.Object",
+                "java.util.AbstractList",
+                "java.util.ArrayList",
+                "java.util.List",
+                "java.util.RandomAccess")))
+        assertThat(candidatesFor("java.util.LinkedList"), `is`(listOf(
+                "java.lang.Object",
+                "java.util.AbstractList",
+                "java.util.List",
+                "java.util.RandomAccess")))
+        assertThat(candidatesFor("java.util.HashMap"), `is`(listOf(
+                "java.lang.Object",
+                "java.util.HashMap",
+                "java.util.List",
+                "java.util.RandomAccess")))
+    }
+
+    @Test
+    fun interfaceTarget() {
+        assertThat(candidatesFor("java.util.Collection"), `is`(listOf(
+                "java.lang.Object",
+                "java.util.List",
+                "java.util.RandomAccess")))
+    }
+
+    @Test
+    fun empty() {
+        val empty = AdapterViewTypeIndex(emptyMap<AccessorKey, String>(),
+                ModelAnalyzer.getInstance())
+        assertThat(empty.candidatesFor(findClass("java.util.ArrayList")).size, `is`(0))
+    }
+
+    private fun candidatesFor(className: String) =
+            index.candidatesFor(findClass(className)).map { it.description }
+
+    private fun findClass(className: String) =
+            ModelAnalyzer.getInstance().findClass(className, null)!!.erasure()
+}
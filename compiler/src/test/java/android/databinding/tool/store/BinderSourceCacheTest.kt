@@ -0,0 +1,135 @@
+/*
+ * Copyright (C) 2021 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package android.databinding.tool.store
+
+import android.databinding.tool.BinderTestEnvironment
+import android.databinding.tool.BinderTestEnvironment.Companion.TEXT_VIEW
+import android.databinding.tool.reflection.InjectedClass
+import android.databinding.tool.reflection.InjectedMethod
+import android.databinding.tool.reflection.ModelAnalyzer
+import org.hamcrest.CoreMatchers.`is`
+import org.hamcrest.CoreMatchers.not
+import org.hamcrest.CoreMatchers.notNullValue
+import org.hamcrest.CoreMatchers.nullValue
+import org.hamcrest.MatcherAssert.assertThat
+import org.junit.Rule
+import org.junit.Test
+import org.junit.rules.TemporaryFolder
+import org.junit.runner.RunWith
+import org.junit.runners.JUnit4
+
+@RunWith(JUnit4::class)
+class BinderSourceCacheTest {
+    @get:Rule
+    val tmpFolder = TemporaryFolder()
+
+    @Test
+    fun miss() {
+        val cache = BinderSourceCache(tmpFolder.newFolder(), "env")
+        assertThat(cache.get("abc"), nullValue())
+    }
+
+    @Test
+    fun putAndGet() {
+        val cache = BinderSourceCache(tmpFolder.newFolder(), "env")
+        cache.put("abc", "class Foo {}")
+        assertThat(cache.get("abc"), `is`("class Foo {}"))
+        assertThat(cache.get("abd"), nullValue())
+    }
+
+    @Test
+    fun survivesAcrossInstances() {
+        val dir = tmpFolder.newFolder()
+        BinderSourceCache(dir, "env").put("abc", "class Foo {}")
+        assertThat(BinderSourceCache(dir, "env").get("abc"), `is`("class Foo {}"))
+    }
+
+    @Test
+    fun overwrite() {
+        val cache = BinderSourceCache(tmpFolder.newFolder(), "env")
+        cache.put("abc", "class Foo {}")
+        cache.put("abc", "class Bar {}")
+        assertThat(cache.get("abc"), `is`("class Bar {}"))
+    }
+
+    @Test
+    fun createsMissingDirectory() {
+        val dir = tmpFolder.root.resolve("not/there/yet")
+        val cache = BinderSourceCache(dir, "env")
+        cache.put("abc", "class Foo {}")
+        assertThat(cache.get("abc"), `is`("class Foo {}"))
+        assertThat(dir.listFiles()!!.size, `is`(1))
+    }
+
+    @Test
+    fun keyTracksTypesOfMethodParameters() {
+        BinderTestEnvironment.create().use { env ->
+            val bundle = env.layout("main") {
+                variable("model", "com.example.Model")
+                view(TEXT_VIEW, bindings = mapOf("android:text" to "model.name"))
+            }
+            injectModel("java.lang.String")
+            val first = BinderSourceCache(tmpFolder.newFolder(), "env").keyFor(bundle)
+            val same = BinderSourceCache(tmpFolder.newFolder(), "env").keyFor(bundle)
+            injectModel("java.lang.Integer")
+            val changed = BinderSourceCache(tmpFolder.newFolder(), "env").keyFor(bundle)
+            assertThat(first, notNullValue())
+            assertThat(same, `is`(first))
+            assertThat(changed, not(first))
+        }
+    }
+
+    @Test
+    fun keyTracksQualifiedNamesInExpressions() {
+        BinderTestEnvironment.create().use { env ->
+            val bundle = env.layout("main") {
+                variable("vm")
+                view(TEXT_VIEW, bindings = mapOf(
+                        "android:text" to "com.example.Formatter.format(vm.name)"))
+            }
+            injectFormatter("java.lang.String")
+            val first = BinderSourceCache(tmpFolder.newFolder(), "env").keyFor(bundle)
+            injectFormatter("java.lang.CharSequence")
+            val changed = BinderSourceCache(tmpFolder.newFolder(), "env").keyFor(bundle)
+            assertThat(first, notNullValue())
+            assertThat(changed, not(first))
+        }
+    }
+
+    /**
+     * Injects a model whose only reference to `com.example.Param` is a method parameter, so the
+     * key can only change with the type of `Param.getValue()` if parameter types are followed.
+     */
+    private fun injectModel(paramValueType: String) {
+        val analyzer = ModelAnalyzer.getInstance()
+        val param = InjectedClass("com.example.Param", "java.lang.Object")
+        param.addMethod(InjectedMethod(param, false, "getValue", null, paramValueType))
+        analyzer.injectClass(param)
+        val model = InjectedClass("com.example.Model", "java.lang.Object")
+        model.addMethod(InjectedMethod(model, false, "getName", null, "java.lang.String"))
+        model.addMethod(InjectedMethod(model, false, "update", null, "void",
+                "com.example.Param"))
+        analyzer.injectClass(model)
+    }
+
+    private fun injectFormatter(parameterType: String) {
+        val formatter = InjectedClass("com.example.Formatter", "java.lang.Object")
+        formatter.addMethod(InjectedMethod(formatter, true, "format", null, "java.lang.String",
+                parameterType))
+        ModelAnalyzer.getInstance().injectClass(formatter)
+    }
+}
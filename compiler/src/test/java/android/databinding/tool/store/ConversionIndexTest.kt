@@ -0,0 +1,78 @@
+/*
+ * Copyright (C) 2021 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package android.databinding.tool.store
+
+import android.databinding.tool.reflection.ModelAnalyzer
+import android.databinding.tool.reflection.java.JavaAnalyzer
+import android.databinding.tool.store.SetterStore.MethodDescription
+import org.hamcrest.CoreMatchers.`is`
+import org.hamcrest.CoreMatchers.nullValue
+import org.hamcrest.CoreMatchers.sameInstance
+import org.hamcrest.MatcherAssert.assertThat
+import org.junit.Before
+import org.junit.Test
+import org.junit.runner.RunWith
+import org.junit.runners.JUnit4
+import java.util.TreeMap
+
+@RunWith(JUnit4::class)
+class ConversionIndexTest {
+    private val numberToString = MethodDescription("com.example.Converters", "numberToString")
+    private val objectToList = MethodDescription("com.example.Converters", "objectToList")
+    private val missing = MethodDescription("com.example.Converters", "missing")
+    private lateinit var index: ConversionIndex
+
+    @Before
+    fun setUp() {
+        JavaAnalyzer.initForTests()
+        val conversions = TreeMap<String, TreeMap<String, MethodDescription>>()
+        conversions["java.lang.Number"] = TreeMap(mapOf("java.lang.String" to numberToString))
+        conversions["java.lang.Object"] = TreeMap(mapOf("java.util.ArrayList" to objectToList))
+        conversions["com.example.DoesNotExist"] = TreeMap(mapOf("java.lang.String" to missing))
+        index = ConversionIndex(conversions, ModelAnalyzer.getInstance())
+    }
+
+    @Test
+    fun exactTypes() {
+        assertThat(find("java.lang.Number", "java.lang.String"), sameInstance(numberToString))
+    }
+
+    @Test
+    fun assignableTypes() {
+        assertThat(find("java.lang.Integer", "java.lang.CharSequence"),
+                sameInstance(numberToString))
+        assertThat(find("java.lang.String", "java.util.List"), sameInstance(objectToList))
+    }
+
+    @Test
+    fun noConversion() {
+        assertThat(find("java.lang.String", "java.lang.Integer"), nullValue())
+        // the miss is remembered
+        assertThat(find("java.lang.String", "java.lang.Integer"), nullValue())
+    }
+
+    @Test
+    fun firstMatchWins() {
+        // Number is before Object in the store
+        assertThat(find("java.lang.Integer", "java.lang.Object"), `is`(numberToString))
+    }
+
+    private fun find(from: String, to: String): MethodDescription? {
+        val analyzer = ModelAnalyzer.getInstance()
+        return index.find(analyzer.findClass(from, null)!!, analyzer.findClass(to, null)!!)
+    }
+}
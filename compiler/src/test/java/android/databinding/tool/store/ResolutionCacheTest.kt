@@ -0,0 +1,136 @@
+/*
+ * Copyright (C) 2021 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package android.databinding.tool.store
+
+import android.databinding.tool.processing.Scope
+import android.databinding.tool.processing.ScopedException
+import android.databinding.tool.processing.scopes.FileScopeProvider
+import android.databinding.tool.processing.scopes.LocationScopeProvider
+import android.databinding.tool.reflection.ModelAnalyzer
+import android.databinding.tool.reflection.MutableImportBag
+import android.databinding.tool.reflection.java.JavaAnalyzer
+import org.hamcrest.CoreMatchers.`is`
+import org.hamcrest.CoreMatchers.nullValue
+import org.hamcrest.MatcherAssert.assertThat
+import org.junit.After
+import org.junit.Before
+import org.junit.Test
+import org.junit.runner.RunWith
+import org.junit.runners.JUnit4
+
+@RunWith(JUnit4::class)
+class ResolutionCacheTest {
+    private val cache = ResolutionCache<String>("test")
+    private var resolveCount = 0
+
+    @Before
+    fun setUp() {
+        JavaAnalyzer.initForTests()
+    }
+
+    @After
+    fun tearDown() {
+        Scope.reset()
+    }
+
+    @Test
+    fun hit() {
+        assertThat(get("text", "java.lang.Object", "java.lang.String"), `is`("resolved"))
+        assertThat(get("text", "java.lang.Object", "java.lang.String"), `is`("resolved"))
+        assertThat(resolveCount, `is`(1))
+        assertThat(cache.hitCount, `is`(1))
+        assertThat(cache.missCount, `is`(1))
+    }
+
+    @Test
+    fun differentTypes() {
+        get("text", "java.lang.Object", "java.lang.String")
+        get("text", "java.lang.Object", "java.lang.Integer")
+        get("text", "java.util.ArrayList", "java.lang.String")
+        get("hint", "java.lang.Object", "java.lang.String")
+        assertThat(resolveCount, `is`(4))
+        assertThat(cache.hitCount, `is`(0))
+    }
+
+    @Test
+    fun nullIsCached() {
+        assertThat(get("text", "java.lang.Object", "java.lang.String") { null }, nullValue())
+        assertThat(get("text", "java.lang.Object", "java.lang.String") { null }, nullValue())
+        assertThat(resolveCount, `is`(1))
+    }
+
+    @Test
+    fun equalImports() {
+        val imports1 = MutableImportBag().apply { put("Foo", "com.example.Foo") }
+        val imports2 = MutableImportBag().apply { put("Foo", "com.example.Foo") }
+        val imports3 = MutableImportBag().apply { put("Foo", "com.example.other.Foo") }
+        get("text", "java.lang.Object", "java.lang.String", imports1)
+        get("text", "java.lang.Object", "java.lang.String", imports2)
+        assertThat(resolveCount, `is`(1))
+        get("text", "java.lang.Object", "java.lang.String", imports3)
+        assertThat(resolveCount, `is`(2))
+    }
+
+    @Test
+    fun clear() {
+        get("text", "java.lang.Object", "java.lang.String")
+        cache.clear()
+        get("text", "java.lang.Object", "java.lang.String")
+        assertThat(resolveCount, `is`(2))
+    }
+
+    @Test
+    fun errorIsReportedAtEachLocation() {
+        val first = Location(1, 0, 1, 10)
+        val second = Location(5, 0, 5, 10)
+        val resolve: () -> String? = { throw ScopedException("cannot find setter") }
+        assertThat(errorLocations(first, resolve), `is`(listOf(first)))
+        assertThat(errorLocations(second, resolve), `is`(listOf(second)))
+        assertThat(resolveCount, `is`(1))
+        assertThat(cache.hitCount, `is`(1))
+    }
+
+    private fun errorLocations(location: Location, resolve: () -> String?): List<Location> {
+        Scope.enter(FileScopeProvider { "/project/res/layout/main.xml" })
+        Scope.enter(LocationScopeProvider { listOf(location) })
+        try {
+            get("text", "java.lang.Object", "java.lang.String", resolve = resolve)
+            throw AssertionError("expected the resolution to fail")
+        } catch (e: ScopedException) {
+            assertThat(e.bareMessage, `is`("cannot find setter"))
+            return e.scopedErrorReport.locations
+        } finally {
+            Scope.exit()
+            Scope.exit()
+        }
+    }
+
+    private fun get(
+            attribute: String,
+            viewType: String,
+            valueType: String,
+            imports: MutableImportBag? = null,
+            resolve: () -> String? = { "resolved" }
+    ): String? {
+        val analyzer = ModelAnalyzer.getInstance()
+        return cache.get(listOf(attribute), analyzer.findClass(viewType, null)!!,
+                listOf(analyzer.findClass(valueType, null)), imports) {
+            resolveCount++
+            resolve()
+        }
+    }
+}
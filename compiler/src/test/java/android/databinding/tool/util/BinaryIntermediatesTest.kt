@@ -0,0 +1,164 @@
+/*
+ * Copyright (C) 2021 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package android.databinding.tool.util
+
+import android.databinding.annotationprocessor.ProcessBindable
+import org.hamcrest.CoreMatchers.`is`
+import org.hamcrest.CoreMatchers.notNullValue
+import org.hamcrest.CoreMatchers.nullValue
+import org.hamcrest.MatcherAssert.assertThat
+import org.junit.Rule
+import org.junit.Test
+import org.junit.rules.TemporaryFolder
+import org.junit.runner.RunWith
+import org.junit.runners.JUnit4
+import java.io.File
+import java.io.ObjectOutputStream
+
+@RunWith(JUnit4::class)
+class BinaryIntermediatesTest {
+    @get:Rule
+    val tmpFolder = TemporaryFolder()
+
+    @Test
+    fun roundTrip() {
+        val reader = writeAndRead(BinaryIntermediateWriter("-br.bin", "com.foo").apply {
+            addEntry("com.foo.Bar", listOf("name", "age"))
+            addEntry("com.foo.Baz", listOf("name", "ünïcode"))
+            addEntry("com.foo.Empty", emptyList())
+        })
+        assertThat(reader.kind, `is`("-br.bin"))
+        assertThat(reader.pkg, `is`("com.foo"))
+        assertThat(reader.size, `is`(3))
+        assertThat(reader.keys, `is`(listOf("com.foo.Bar", "com.foo.Baz", "com.foo.Empty")))
+        assertThat(reader.values("com.foo.Bar"), `is`(listOf("name", "age")))
+        assertThat(reader.values("com.foo.Baz"), `is`(listOf("name", "ünïcode")))
+        assertThat(reader.values("com.foo.Empty"), `is`(emptyList()))
+        assertThat(reader.values("com.foo.Missing"), nullValue())
+    }
+
+    @Test
+    fun memoryMappedMatchesHeap() {
+        val file = write(BinaryIntermediateWriter("-br.bin", "com.foo").apply {
+            addEntry("com.foo.Bar", listOf("name", "age"))
+            addEntry("com.foo.Baz", listOf("ünïcode"))
+        })
+        val heap = BinaryIntermediateReader.open(file)!!
+        val mapped = BinaryIntermediateReader.open(file, true)!!
+        assertThat(mapped.pkg, `is`(heap.pkg))
+        assertThat(mapped.keys, `is`(heap.keys))
+        assertThat((0 until mapped.size).map { mapped.values(it) },
+                `is`((0 until heap.size).map { heap.values(it) }))
+    }
+
+    @Test
+    fun entriesAreSorted() {
+        val reader = writeAndRead(BinaryIntermediateWriter("-br.bin", "com.foo").apply {
+            addEntry("b", listOf("1"))
+            addEntry("a", listOf("2"))
+        })
+        assertThat(reader.keys, `is`(listOf("a", "b")))
+        assertThat(reader.values(0), `is`(listOf("2")))
+    }
+
+    @Test
+    fun stringsAreInterned() {
+        val once = write(BinaryIntermediateWriter("-br.bin", "com.foo").apply {
+            addEntry("a", listOf("someLongPropertyName"))
+        })
+        val twice = write(BinaryIntermediateWriter("-br.bin", "com.foo").apply {
+            addEntry("a", listOf("someLongPropertyName"))
+            addEntry("b", listOf("someLongPropertyName"))
+        })
+        // only the new key, one index entry and one value list are added
+        assertThat(twice.length() - once.length(), `is`((4L + 1) + 8 + 8))
+    }
+
+    @Test
+    fun stringMap() {
+        val map = writeAndRead(BinaryIntermediateWriter("-layoutinfo.bin", "com.foo").apply {
+            addEntry("main.xml", listOf("<Layout main/>"))
+            addEntry("other.xml", listOf("<Layout other/>"))
+        }).asStringMap()
+        assertThat(map.size, `is`(2))
+        assertThat(map["main.xml"], `is`("<Layout main/>"))
+        assertThat(map["missing.xml"], nullValue())
+        assertThat(map.keys, `is`(setOf("main.xml", "other.xml")))
+        assertThat(map.toMap(), `is`(mapOf(
+                "main.xml" to "<Layout main/>",
+                "other.xml" to "<Layout other/>")))
+    }
+
+    @Test
+    fun javaSerializedFileIsNotBinary() {
+        val file = tmpFolder.newFile()
+        ObjectOutputStream(file.outputStream()).use {
+            it.writeObject(hashMapOf("a" to "b"))
+        }
+        assertThat(BinaryIntermediateReader.open(file), nullValue())
+    }
+
+    @Test
+    fun emptyFileIsNotBinary() {
+        assertThat(BinaryIntermediateReader.open(tmpFolder.newFile()), nullValue())
+    }
+
+    @Test
+    fun fileIsNotHeldOpen() {
+        val file = write(BinaryIntermediateWriter("-br.bin", "com.foo").apply {
+            addEntry("a", listOf("b"))
+        })
+        val reader = BinaryIntermediateReader.open(file)!!
+        assertThat(file.delete(), `is`(true))
+        assertThat(reader.values("a"), `is`(listOf("b")))
+    }
+
+    @Test
+    fun decodedBrIntermediateCanBeModified() {
+        val original = ProcessBindable.IntermediateV1("com.foo")
+        original.addProperty("com.foo.Bar", "name")
+        val decoded = decodeBr(encodeBr(original))
+        decoded.addProperty("com.foo.Bar", "age")
+        decoded.addProperty("com.foo.Baz", "title")
+        val reread = BinaryIntermediateReader.open(encodeBr(decoded))!!
+        assertThat(reread.pkg, `is`("com.foo"))
+        assertThat(reread.values("com.foo.Bar"), `is`(listOf("age", "name")))
+        assertThat(reread.values("com.foo.Baz"), `is`(listOf("title")))
+    }
+
+    private fun encodeBr(intermediate: ProcessBindable.Intermediate): File {
+        val writer = BinaryIntermediateWriter("-br.bin", intermediate.getPackage())
+        ProcessBindable.BINARY_CODEC.encode(intermediate, writer)
+        return write(writer)
+    }
+
+    private fun decodeBr(file: File): ProcessBindable.Intermediate {
+        return ProcessBindable.BINARY_CODEC.decode(BinaryIntermediateReader.open(file)!!)
+    }
+
+    private fun write(writer: BinaryIntermediateWriter): File {
+        val file = tmpFolder.newFile()
+        file.outputStream().use { writer.writeTo(it) }
+        return file
+    }
+
+    private fun writeAndRead(writer: BinaryIntermediateWriter): BinaryIntermediateReader {
+        val reader = BinaryIntermediateReader.open(write(writer))
+        assertThat(reader, notNullValue())
+        return reader!!
+    }
+}
@@ -0,0 +1,70 @@
+/*
+ * Copyright (C) 2021 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package android.databinding.tool.writer
+
+import com.squareup.javapoet.TypeSpec
+import org.hamcrest.CoreMatchers.`is`
+import org.hamcrest.MatcherAssert.assertThat
+import org.junit.Test
+import org.junit.runner.RunWith
+import org.junit.runners.JUnit4
+
+@RunWith(JUnit4::class)
+class BrLookupWriterTest {
+    @Test
+    fun denseIds() {
+        val type = write(listOf("_all" to 0, "name" to 1, "age" to 2))
+        assertThat(type.fieldSpecs.map { it.name }, `is`(listOf("sKeys0")))
+        assertThat(type.fieldSpecs[0].initializer.toString(), `is`("new java.lang.String[3]"))
+        assertThat(type.staticBlock.toString().contains("sKeys0[2] = \"age\";"), `is`(true))
+    }
+
+    @Test
+    fun featureRange() {
+        val feature = 3 shl 16
+        val type = write(listOf("_all" to 0, "name" to 1, "age" to feature, "title" to feature + 1))
+        assertThat(type.fieldSpecs.map { it.name }, `is`(listOf("sKeys0", "sKeys3")))
+        assertThat(type.fieldSpecs[1].initializer.toString(), `is`("new java.lang.String[2]"))
+        assertThat(type.staticBlock.toString().contains("sKeys3[1] = \"title\";"), `is`(true))
+        val get = type.methodSpecs.single { it.name == BrLookupWriter.METHOD_NAME }
+        assertThat(get.code.toString().contains(
+                "case 3: return index < sKeys3.length ? sKeys3[index] : null;"), `is`(true))
+    }
+
+    @Test
+    fun sparseIdsFallBack() {
+        val type = write(listOf("_all" to 0, "name" to 1, "age" to 100))
+        assertThat(type.fieldSpecs.single().type.toString(),
+                `is`("android.util.SparseArray<java.lang.String>"))
+        assertThat(type.staticBlock.toString().contains("sKeys.put(100, \"age\");"), `is`(true))
+    }
+
+    @Test
+    fun chunked() {
+        val type = write((0 until 10).map { "prop$it" to it }, chunkSize = 4)
+        assertThat(type.methodSpecs.map { it.name }, `is`(listOf(
+                "internalPopulateBRLookup0_0",
+                "internalPopulateBRLookup0_1",
+                "internalPopulateBRLookup0_2",
+                BrLookupWriter.METHOD_NAME)))
+    }
+
+    private fun write(props: List<Pair<String, Int>>, chunkSize: Int = 500) =
+            TypeSpec.classBuilder("Lookup").apply {
+                BrLookupWriter.addLookup(this, props, chunkSize)
+            }.build()
+}
@@ -0,0 +1,46 @@
+/*
+ * Copyright (C) 2021 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package android.databinding.tool.writer
+
+import org.hamcrest.CoreMatchers.`is`
+import org.hamcrest.MatcherAssert.assertThat
+import org.junit.Test
+import org.junit.runner.RunWith
+import org.junit.runners.JUnit4
+import java.io.StringWriter
+
+@RunWith(JUnit4::class)
+class KCodeTest {
+    @Test
+    fun streamedMatchesString() {
+        val code = kcode("class Foo {") {
+            tab("int a;")
+            nl("")
+            block("void bar()") {
+                tab("a = 1;")
+                nl("if (a > 0)") {
+                    app(" {")
+                    tab("a--;")
+                    nl("}")
+                }
+            }
+            nl("}")
+        }
+        val writer = StringWriter()
+        code.generate(writer)
+        assertThat(writer.toString(), `is`(code.generate()))
+    }
+}
@@ -0,0 +1,299 @@
+/*
+ * Copyright (C) 2021 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package android.databinding.tool.writer
+
+import android.databinding.tool.BinderTestEnvironment
+import android.databinding.tool.BinderTestEnvironment.Companion.CHECK_BOX
+import android.databinding.tool.BinderTestEnvironment.Companion.TEXT_VIEW
+import android.databinding.tool.BinderTestEnvironment.LoadedBinders
+import android.databinding.tool.CompilerOptions
+import org.hamcrest.CoreMatchers.`is`
+import org.hamcrest.CoreMatchers.containsString
+import org.hamcrest.CoreMatchers.hasItem
+import org.hamcrest.MatcherAssert.assertThat
+import org.junit.Test
+import org.junit.runner.RunWith
+import org.junit.runners.JUnit4
+import java.io.File
+import java.nio.ByteBuffer
+
+/**
+ * Generates binders with the optional code generation strategies of [CompilerOptions], compiles
+ * them against the runtime stubs of [BinderTestEnvironment] and runs them against its fake views.
+ */
+@RunWith(JUnit4::class)
+class LayoutBinderWriterTest {
+    @Test
+    fun lockFreeDirtyFlags() {
+        BinderTestEnvironment.create(CompilerOptions(lockFreeDirtyFlags = true)).use { env ->
+            // more variables than fit in a single word of dirty flags
+            val layout = env.layout("lock_free") {
+                for (i in 0 until 70) {
+                    variable("text$i", "java.lang.String")
+                }
+                // reading a view attribute makes its inverse listener mark the flags dirty
+                view(CHECK_BOX, id = "check")
+                for (i in 0 until 70) {
+                    view(TEXT_VIEW, bindings = mapOf("android:text" to "text$i"))
+                }
+                view(TEXT_VIEW, bindings = mapOf("android:text" to "check.checked ? text0 : text1"))
+            }
+            val sources = env.writeBinders(layout)
+            assertThat(env.errors, `is`(emptyList<String>()))
+            val binders = env.load(env.compile(sources))
+            val root = binders.inflate("lock_free")
+            val binder = binders.bind("lock_free", root)
+            assertThat(dirtyFlags(binders, binder).size > 1, `is`(true))
+            binders.executePendingBindings(binder)
+            assertThat(dirtyFlags(binders, binder).all { it == 0L }, `is`(true))
+
+            binders.setVariable(binder, "text3", "three")
+            binders.setVariable(binder, "text68", "sixty eight")
+            assertThat(dirtyFlags(binders, binder).sumBy { java.lang.Long.bitCount(it) }, `is`(2))
+            binders.executePendingBindings(binder)
+            assertThat(dirtyFlags(binders, binder).all { it == 0L }, `is`(true))
+            // the text views follow the check box
+            assertThat(binders.calls(binders.child(root, 4)),
+                    `is`(listOf("setText(null)", "setText(three)")))
+            assertThat(binders.calls(binders.child(root, 69)),
+                    `is`(listOf("setText(null)", "setText(sixty eight)")))
+            assertThat(binders.calls(binders.child(root, 6)), `is`(listOf("setText(null)")))
+
+            binders.setVariable(binder, "text0", "zero")
+            binders.setVariable(binder, "text1", "one")
+            binders.executePendingBindings(binder)
+            val check = binders.child(root, 0)
+            binders.call(check, "setChecked", true)
+            binders.call(inverseListener(binders, binder, "check"), "onChange")
+            assertThat(dirtyFlags(binders, binder).any { it != 0L }, `is`(true))
+            binders.executePendingBindings(binder)
+            assertThat(binders.calls(binders.child(root, 71)).last(), `is`("setText(zero)"))
+            assertThat(dirtyFlags(binders, binder).all { it == 0L }, `is`(true))
+        }
+    }
+
+    @Test
+    fun skipUnchangedSettersKeepsTwoWaySetters() {
+        val options = CompilerOptions(skipUnchangedSetters = CompilerOptions.ValueEquality.EQUALS)
+        BinderTestEnvironment.create(options).use { env ->
+            val layout = env.layout("skip_unchanged") {
+                variable("vm")
+                view(TEXT_VIEW, id = "title", bindings = mapOf("android:text" to "vm.title"))
+                view(CHECK_BOX, id = "check", bindings = mapOf("android:checked" to "vm.checked"),
+                        twoWay = setOf("android:checked"))
+            }
+            val sources = env.writeBinders(layout)
+            assertThat(env.errors, `is`(emptyList<String>()))
+            val binders = env.load(env.compile(sources))
+            val root = binders.inflate("skip_unchanged")
+            val binder = binders.bind("skip_unchanged", root)
+            val title = binders.child(root, 0)
+            val check = binders.child(root, 1)
+            val vm = binders.newViewModel()
+            binders.call(vm, "setTitle", "title")
+            binders.call(vm, "setChecked", true)
+            binders.setVariable(binder, "vm", vm)
+            binders.executePendingBindings(binder)
+            // same values, the check box may have been toggled by the user in between
+            binders.setVariable(binder, "vm", vm)
+            binders.executePendingBindings(binder)
+            assertThat(binders.calls(title), `is`(listOf("setText(title)")))
+            assertThat(binders.calls(check), `is`(listOf("setChecked(true)", "setChecked(true)")))
+
+            binders.call(vm, "setTitle", "other")
+            binders.setVariable(binder, "vm", vm)
+            binders.executePendingBindings(binder)
+            assertThat(binders.calls(title), `is`(listOf("setText(title)", "setText(other)")))
+
+            // invalidateAll runs every setter
+            binders.call(binder, "invalidateAll")
+            binders.executePendingBindings(binder)
+            assertThat(binders.calls(title),
+                    `is`(listOf("setText(title)", "setText(other)", "setText(other)")))
+        }
+    }
+
+    @Test
+    fun executeBindingsBudget() {
+        BinderTestEnvironment.create(CompilerOptions(executeBindingsBudget = 500)).use { env ->
+            val layout = env.layout("large") {
+                variable("vm")
+                view(CHECK_BOX, id = "check", bindings = mapOf("android:checked" to "vm.checked"),
+                        twoWay = setOf("android:checked"))
+                for (i in 0 until 60) {
+                    view(TEXT_VIEW, bindings = mapOf("android:text" to
+                            if (i % 2 == 0) "vm.title" else "vm.name"))
+                }
+            }
+            val sources = env.writeBinders(layout)
+            assertThat(env.errors, `is`(emptyList<String>()))
+            val classes = env.compile(sources)
+            val classFile = File(classes, sources.keys.single().replace('.', '/') + ".class")
+            val sizes = codeSizes(classFile).filterKeys { it.startsWith("executeBindings") }
+            // the setters of each dirty flag check do not fit in a single helper either
+            assertThat(sizes.keys.size > 2, `is`(true))
+            sizes.forEach { (method, size) ->
+                assertThat("$method has $size bytes", size <= 500, `is`(true))
+            }
+
+            val binders = env.load(classes)
+            val root = binders.inflate("large")
+            val binder = binders.bind("large", root)
+            val vm = binders.newViewModel()
+            binders.call(vm, "setTitle", "title")
+            binders.call(vm, "setName", "name")
+            binders.setVariable(binder, "vm", vm)
+            binders.executePendingBindings(binder)
+            for (i in 0 until 60) {
+                assertThat(binders.calls(binders.child(root, i + 1)).last(),
+                        `is`(if (i % 2 == 0) "setText(title)" else "setText(name)"))
+            }
+        }
+    }
+
+    @Test
+    fun executeBindingsBudgetTooSmallForReads() {
+        BinderTestEnvironment.create(CompilerOptions(executeBindingsBudget = 500)).use { env ->
+            val layout = env.layout("many_reads") {
+                variable("vm")
+                view(CHECK_BOX, id = "check", bindings = mapOf("android:checked" to "vm.checked"),
+                        twoWay = setOf("android:checked"))
+                for (i in 0 until 60) {
+                    view(TEXT_VIEW, bindings = mapOf("android:text" to
+                            "check.checked ? vm.name + `$i` : String.valueOf(vm.count + $i)"))
+                }
+            }
+            env.writeBinders(layout)
+            assertThat(env.errors, hasItem(containsString("executeBindingsBudget of 500")))
+        }
+    }
+
+    @Test
+    fun cacheBindingPaths() {
+        BinderTestEnvironment.create(CompilerOptions(cacheBindingPaths = true)).use { env ->
+            val layout = env.layout("paths") {
+                variable("vm")
+                view(TEXT_VIEW, id = "title", bindings = mapOf("android:text" to "vm.title"))
+                view(TEXT_VIEW, bindings = mapOf("android:text" to "vm.name"))
+            }
+            val sources = env.writeBinders(layout)
+            assertThat(env.errors, `is`(emptyList<String>()))
+            val binders = env.load(env.compile(sources))
+            val vm = binders.newViewModel()
+            binders.call(vm, "setTitle", "title")
+            binders.call(vm, "setName", "name")
+
+            // the first tree is walked and later trees reuse its paths
+            binders.bind("paths", binders.inflate("paths"))
+            assertThat(binders.mapBindingsCalls, `is`(1))
+            val root = binders.inflate("paths")
+            val binder = binders.bind("paths", root)
+            assertThat(binders.mapBindingsCalls, `is`(1))
+            binders.setVariable(binder, "vm", vm)
+            binders.executePendingBindings(binder)
+            assertThat(binders.calls(binders.child(root, 0)), `is`(listOf("setText(title)")))
+            assertThat(binders.calls(binders.child(root, 1)), `is`(listOf("setText(name)")))
+
+            // a tree that does not match is walked and its paths are recorded instead
+            binders.bind("paths", binders.inflate("paths", wrapped = true))
+            assertThat(binders.mapBindingsCalls, `is`(2))
+            val wrapped = binders.inflate("paths", wrapped = true)
+            val wrappedBinder = binders.bind("paths", wrapped)
+            assertThat(binders.mapBindingsCalls, `is`(2))
+            binders.setVariable(wrappedBinder, "vm", vm)
+            binders.executePendingBindings(wrappedBinder)
+            assertThat(binders.calls(binders.child(wrapped, 0, 0)), `is`(listOf("setText(title)")))
+            assertThat(binders.calls(binders.child(wrapped, 0, 1)), `is`(listOf("setText(name)")))
+
+            binders.bind("paths", binders.inflate("paths"))
+            assertThat(binders.mapBindingsCalls, `is`(3))
+        }
+    }
+
+    /**
+     * Reads the length of the bytecode of each method of a class file by method name, keeping the
+     * largest of overloads.
+     */
+    private fun codeSizes(classFile: File): Map<String, Int> {
+        val buffer = ByteBuffer.wrap(classFile.readBytes())
+        fun skip(bytes: Int) = buffer.position(buffer.position() + bytes)
+        fun u2() = buffer.short.toInt() and 0xffff
+        skip(8) // magic and version
+        val utf8 = hashMapOf<Int, String>()
+        val constantCount = u2()
+        var index = 1
+        while (index < constantCount) {
+            val tag = buffer.get().toInt()
+            when (tag) {
+                1 -> {
+                    val bytes = ByteArray(u2())
+                    buffer.get(bytes)
+                    utf8[index] = String(bytes, Charsets.UTF_8)
+                }
+                3, 4, 9, 10, 11, 12, 17, 18 -> skip(4)
+                // longs and doubles take two entries
+                5, 6 -> {
+                    skip(8)
+                    index++
+                }
+                7, 8, 16, 19, 20 -> skip(2)
+                15 -> skip(3)
+                else -> throw IllegalStateException("unknown constant $tag in $classFile")
+            }
+            index++
+        }
+        skip(6) // access flags, this and super class
+        skip(2 * u2()) // interfaces
+        val sizes = hashMapOf<String, Int>()
+        // fields, then methods
+        for (isMethod in listOf(false, true)) {
+            repeat(u2()) {
+                skip(2)
+                val name = utf8.getValue(u2())
+                skip(2)
+                repeat(u2()) {
+                    val attribute = utf8.getValue(u2())
+                    val length = buffer.int
+                    val end = buffer.position() + length
+                    if (isMethod && attribute == "Code") {
+                        skip(4) // max stack and locals
+                        sizes[name] = Math.max(sizes[name] ?: 0, buffer.int)
+                    }
+                    buffer.position(end)
+                }
+            }
+        }
+        return sizes
+    }
+
+    /**
+     * The words of the dirty flags of the binder.
+     */
+    private fun dirtyFlags(binders: LoadedBinders, binder: Any): List<Long> =
+            binder.javaClass.declaredFields.filter { it.name.startsWith("mDirtyFlags") }
+                    .map { binders.field(binder, it.name) as Long }
+
+    /**
+     * The listener that marks the attributes of the view with the given field name dirty.
+     */
+    private fun inverseListener(binders: LoadedBinders, binder: Any, viewField: String): Any {
+        val field = binder.javaClass.declaredFields.first {
+            it.name.startsWith(viewField) && it.type.simpleName == "InverseBindingListener"
+        }
+        return binders.field(binder, field.name)!!
+    }
+}
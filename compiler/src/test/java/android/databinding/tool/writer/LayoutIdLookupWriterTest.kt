@@ -0,0 +1,67 @@
+/*
+ * Copyright (C) 2021 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package android.databinding.tool.writer
+
+import com.squareup.javapoet.TypeSpec
+import org.hamcrest.CoreMatchers.`is`
+import org.hamcrest.MatcherAssert.assertThat
+import org.junit.Test
+import org.junit.runner.RunWith
+import org.junit.runners.JUnit4
+
+@RunWith(JUnit4::class)
+class LayoutIdLookupWriterTest {
+    private val entries = (0 until 10).map { Pair("layout/layout_${it}_0", "R.layout.layout_$it") }
+
+    @Test
+    fun singleSwitch() {
+        val type = write(entries, 10)
+        assertThat(type.methodSpecs.map { it.name }, `is`(listOf("getLayoutId")))
+        val code = type.methodSpecs[0].code.toString()
+        entries.forEach {
+            assertThat(code.contains("case \"${it.first}\": return ${it.second};"), `is`(true))
+        }
+    }
+
+    @Test
+    fun chunksByHash() {
+        val type = write(entries, 4)
+        val methods = type.methodSpecs.associateBy { it.name }
+        assertThat(methods.keys, `is`(setOf("getLayoutId0", "getLayoutId1", "getLayoutId2",
+                "getLayoutId")))
+        assertThat(methods.getValue("getLayoutId").code.toString()
+                .contains("switch ((tag.hashCode() & 0x7fffffff) % 3)"), `is`(true))
+        entries.forEach {
+            val bucket = LayoutIdLookupWriter.bucketOf(it.first, 3)
+            methods.filterKeys { name -> name != "getLayoutId" }.forEach { (name, method) ->
+                assertThat(method.code.toString().contains("\"${it.first}\""),
+                        `is`(name == "getLayoutId$bucket"))
+            }
+        }
+    }
+
+    @Test
+    fun empty() {
+        val type = write(emptyList(), 10)
+        assertThat(type.methodSpecs.single().code.toString(), `is`("return 0;\n"))
+    }
+
+    private fun write(entries: List<Pair<String, String>>, chunkSize: Int) =
+            TypeSpec.classBuilder("Lookup").apply {
+                LayoutIdLookupWriter.addLookupMethods(this, entries, chunkSize)
+            }.build()
+}
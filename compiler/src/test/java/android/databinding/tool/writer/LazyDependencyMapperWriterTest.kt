@@ -0,0 +1,106 @@
+/*
+ * Copyright (C) 2021 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package android.databinding.tool.writer
+
+import android.databinding.tool.LibTypes
+import android.databinding.tool.store.GenClassInfoLog
+import com.squareup.javapoet.TypeSpec
+import org.hamcrest.CoreMatchers.`is`
+import org.hamcrest.CoreMatchers.containsString
+import org.hamcrest.CoreMatchers.not
+import org.hamcrest.MatcherAssert.assertThat
+import org.junit.Test
+import org.junit.runner.RunWith
+import org.junit.runners.JUnit4
+
+@RunWith(JUnit4::class)
+class LazyDependencyMapperWriterTest {
+    private val libTypes = LibTypes(true)
+
+    @Test
+    fun proxyPerDependency() {
+        val writer = LazyDependencyMapperWriter(mapOf(
+                "lib.b" to log("lib.b", "b_item"),
+                "lib.a" to log("lib.a", "a_item", "a_row")), listOf("lib.a", "lib.b"), libTypes)
+        assertThat(writer.proxyNames, `is`(listOf("LazyDependencyMapper1",
+                "LazyDependencyMapper2")))
+        val types = write(writer)
+        assertThat(types.keys, `is`(setOf("InnerDependencyLookup", "LazyDependencyMapper1",
+                "LazyDependencyMapper2")))
+        val owners = types.getValue("InnerDependencyLookup")
+        assertThat(owners, containsString("sOwners.put(lib.a.R.layout.a_item, 1);"))
+        assertThat(owners, containsString("sOwners.put(lib.a.R.layout.a_row, 1);"))
+        assertThat(owners, containsString("sOwners.put(lib.b.R.layout.b_item, 2);"))
+        val proxy = types.getValue("LazyDependencyMapper1")
+        assertThat(proxy, containsString("mapper = new lib.a.DataBinderMapperImpl();"))
+        assertThat(proxy, containsString("if (InnerDependencyLookup.sOwners.get(layoutId) != 1)"))
+        assertThat(proxy, containsString("case \"layout/a_item_0\": return lib.a.R.layout.a_item;"))
+        assertThat(proxy, not(containsString("b_item")))
+    }
+
+    @Test
+    fun sharedLayoutsUseDependencyOrder() {
+        // lib.c is a transitive dependency that sorts before the direct dependency lib.d
+        val writer = LazyDependencyMapperWriter(mapOf(
+                "lib.c" to log("lib.c", "c_item", "shared"),
+                "lib.d" to log("lib.d", "shared"),
+                "lib.e" to log("lib.e", "e_item")), listOf("lib.d", "lib.e"), libTypes)
+        assertThat(writer.proxyNames, `is`(listOf("LazyDependencyMapper1",
+                "LazyDependencyMapper2", "LazyDependencyConflicts")))
+        val types = write(writer)
+        assertThat(types.keys, `is`(setOf("InnerDependencyLookup", "LazyDependencyMapper1",
+                "LazyDependencyMapper2", "LazyDependencyConflicts")))
+        val owners = types.getValue("InnerDependencyLookup")
+        assertThat(owners, containsString("sOwners.put(lib.c.R.layout.c_item, 1);"))
+        assertThat(owners, containsString("sOwners.put(lib.e.R.layout.e_item, 2);"))
+        assertThat(owners, containsString("sOwners.put(lib.c.R.layout.shared, -1);"))
+        // lib.d has no layouts of its own so it does not get a proxy
+        assertThat(types.getValue("LazyDependencyMapper1"), not(containsString("shared")))
+        assertThat(types.getValue("LazyDependencyMapper2"), not(containsString("lib.d")))
+        val conflicts = types.getValue("LazyDependencyConflicts")
+        assertThat(conflicts, containsString(
+                "if (InnerDependencyLookup.sOwners.get(layoutId) != -1)"))
+        // the direct dependencies in the order the module's mapper returns them
+        val addD = conflicts.indexOf("mapper.addMapper(new lib.d.DataBinderMapperImpl());")
+        val addE = conflicts.indexOf("mapper.addMapper(new lib.e.DataBinderMapperImpl());")
+        assertThat(addD >= 0 && addE > addD, `is`(true))
+        assertThat(conflicts, not(containsString("lib.c.DataBinderMapperImpl")))
+        assertThat(conflicts.split("case \"layout/shared_0\"").size, `is`(2))
+    }
+
+    @Test
+    fun noLayouts() {
+        val writer = LazyDependencyMapperWriter(mapOf("lib.a" to GenClassInfoLog()),
+                listOf("lib.a"), libTypes)
+        assertThat(writer.proxyNames, `is`(emptyList<String>()))
+        assertThat(write(writer), `is`(emptyMap<String, String>()))
+    }
+
+    private fun write(writer: LazyDependencyMapperWriter) =
+            TypeSpec.classBuilder("Mapper").apply {
+                writer.addTo(this)
+            }.build().typeSpecs.associate { Pair(it.name, it.toString()) }
+
+    private fun log(modulePackage: String, vararg layouts: String) = GenClassInfoLog().apply {
+        layouts.forEach { layout ->
+            val className = "$modulePackage.databinding.${layout.replace("_", "")}Binding"
+            addMapping(layout, GenClassInfoLog.GenClass(className, modulePackage, emptyMap(),
+                    setOf(GenClassInfoLog.GenClassImpl("layout/$layout", null, "${className}Impl",
+                            false))))
+        }
+    }
+}
@@ -0,0 +1,119 @@
+/*
+ * Copyright (C) 2021 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package android.databinding.tool.writer;
+
+import android.databinding.tool.BinderTestEnvironment;
+import android.databinding.tool.CompilerOptions;
+import android.databinding.tool.store.ResourceBundle;
+
+import org.junit.Test;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import kotlin.Unit;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Stress tests the dirty flags of a binder generated with lock free dirty flags. Several threads
+ * set variables while another one executes the bindings, the last value of every variable must
+ * end up in its view.
+ */
+public class LockFreeDirtyFlagsTest {
+    private static final int WRITERS = 4;
+    private static final int ITERATIONS = 20000;
+
+    @Test
+    public void testNoUpdateIsLost() throws Exception {
+        CompilerOptions options = CompilerOptions.readFromOptions(Collections.singletonMap(
+                CompilerOptions.PARAM_LOCK_FREE_DIRTY_FLAGS, "true"));
+        try (BinderTestEnvironment env = BinderTestEnvironment.create(options)) {
+            ResourceBundle.LayoutFileBundle layout = env.layout("stress", builder -> {
+                for (int i = 0; i < WRITERS; i++) {
+                    builder.variable("text" + i, "java.lang.String");
+                    builder.view(BinderTestEnvironment.TEXT_VIEW, null,
+                            Collections.singletonMap("android:text", "text" + i));
+                }
+                return Unit.INSTANCE;
+            });
+            Map<String, String> sources = env.writeBinders(layout);
+            assertEquals(Collections.emptyList(), env.getErrors());
+            BinderTestEnvironment.LoadedBinders binders = env.load(env.compile(sources));
+            Object root = binders.inflate("stress");
+            Object binder = binders.bind("stress", root);
+            Method setVariable = binder.getClass().getMethod("setVariable", int.class,
+                    Object.class);
+            Method executePendingBindings = binder.getClass().getMethod("executePendingBindings");
+
+            CountDownLatch start = new CountDownLatch(1);
+            AtomicBoolean done = new AtomicBoolean();
+            AtomicReference<Throwable> failure = new AtomicReference<>();
+            List<Thread> threads = new ArrayList<>();
+            for (int i = 0; i < WRITERS; i++) {
+                int variableId = binders.variableId("text" + i);
+                threads.add(new Thread(() -> run(start, failure, () -> {
+                    for (int value = 1; value <= ITERATIONS; value++) {
+                        setVariable.invoke(binder, variableId, String.valueOf(value));
+                    }
+                })));
+            }
+            Thread executor = new Thread(() -> run(start, failure, () -> {
+                while (!done.get()) {
+                    executePendingBindings.invoke(binder);
+                }
+            }));
+            threads.forEach(Thread::start);
+            executor.start();
+            start.countDown();
+            for (Thread writer : threads) {
+                writer.join();
+            }
+            done.set(true);
+            executor.join();
+            assertEquals(null, failure.get());
+
+            // the last change of every writer is either bound already or still marked dirty
+            executePendingBindings.invoke(binder);
+            for (int i = 0; i < WRITERS; i++) {
+                Object view = binders.child(root, i);
+                assertEquals(String.valueOf(ITERATIONS), binders.call(view, "getText"));
+            }
+            assertEquals(0L, binders.field(binder, "mDirtyFlags"));
+        }
+    }
+
+    private static void run(CountDownLatch start, AtomicReference<Throwable> failure,
+            Action action) {
+        try {
+            start.await();
+            action.run();
+        } catch (Throwable t) {
+            failure.compareAndSet(null, t);
+        }
+    }
+
+    private interface Action {
+        void run() throws Exception;
+    }
+}
@@ -0,0 +1,70 @@
+/*
+ * Copyright (C) 2021 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package android.databinding.tool.writer
+
+import org.hamcrest.CoreMatchers.`is`
+import org.hamcrest.MatcherAssert.assertThat
+import org.junit.Test
+import org.junit.runner.RunWith
+import org.junit.runners.JUnit4
+
+@RunWith(JUnit4::class)
+class MethodSplitterTest {
+    private val dirtyFlags = setOf(MethodParam("long", "dirtyFlags"))
+
+    @Test
+    fun keepsOrderAndStaysInBudget() {
+        val chunks = (0 until 100).map { chunk(10 + it % 7, "local${it % 13}") }
+        val methods = splitIntoMethods(chunks, 100, dirtyFlags)
+        assertThat(methods.flatten(), `is`(chunks))
+        methods.forEach { method ->
+            assertThat(method.sumBy { it.size } <= 100, `is`(true))
+        }
+        assertThat(methods.size < chunks.size, `is`(true))
+    }
+
+    @Test
+    fun oversizedChunkGetsItsOwnMethod() {
+        val small = chunk(10, "a")
+        val big = chunk(500, "b")
+        val methods = splitIntoMethods(listOf(small, big, small), 100, dirtyFlags)
+        assertThat(methods, `is`(listOf(listOf(small), listOf(big), listOf(small))))
+    }
+
+    @Test
+    fun staysInParameterSlots() {
+        // every chunk reads two longs, so a method fits (254 - 2) / 4 = 63 of them
+        val chunks = (0 until 100).map {
+            SplitChunk(1, setOf(MethodParam("long", "a$it"), MethodParam("double", "b$it"))) {}
+        }
+        val methods = splitIntoMethods(chunks, Int.MAX_VALUE, dirtyFlags)
+        assertThat(methods.map { it.size }, `is`(listOf(63, 37)))
+        methods.forEach { method ->
+            val slots = dirtyFlags.sumBy { it.slots } +
+                    method.flatMap { it.params }.distinct().sumBy { it.slots }
+            assertThat(slots <= MAX_PARAM_SLOTS, `is`(true))
+        }
+    }
+
+    @Test
+    fun sharedParamsCountOnce() {
+        val chunks = (0 until 300).map { chunk(1, "shared") }
+        assertThat(splitIntoMethods(chunks, Int.MAX_VALUE, dirtyFlags).size, `is`(1))
+    }
+
+    private fun chunk(size: Int, local: String) =
+            SplitChunk(size, setOf(MethodParam("java.lang.String", local))) {}
+}
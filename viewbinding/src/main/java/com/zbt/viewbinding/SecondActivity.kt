@@ -8,7 +8,10 @@ import com.zbt.viewbinding.databinding.ActivityMainBinding
  *Time: 2021/6/27 12:24
  *Description: This is SecondActivity
  */
-class SecondActivity: BaseActivity<ActivityMainBinding, TestViewModel>() {
+class SecondActivity: BaseActivity<ActivityMainBinding, TestViewModel>(
+    ActivityMainBinding::inflate,
+    TestViewModel::class.java
+) {
     override fun initView() {
         binding.tvTitle.text = "这是SecondActivity"
 
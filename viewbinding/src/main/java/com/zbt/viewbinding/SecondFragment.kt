@@ -8,7 +8,10 @@ import com.zbt.viewbinding.databinding.FragmentMainBinding
  *Time: 2021/6/27 15:13
  *Description: This is SecondFragment
  */
-class SecondFragment : BaseFragment<FragmentMainBinding, TestViewModel>() {
+class SecondFragment : BaseFragment<FragmentMainBinding, TestViewModel>(
+    FragmentMainBinding::inflate,
+    TestViewModel::class.java
+) {
     override fun initView() {
         binding.tvShowText.text = "这是第二个Fragment"
     }
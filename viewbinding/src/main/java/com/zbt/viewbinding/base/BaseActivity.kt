@@ -6,14 +6,16 @@ import androidx.appcompat.app.AppCompatActivity
 import androidx.lifecycle.ViewModel
 import androidx.lifecycle.ViewModelProvider
 import androidx.viewbinding.ViewBinding
-import java.lang.reflect.ParameterizedType
 
 /**
  *Author: zbt
  *Time: 2021/6/27 11:27
  *Description: This is BaseActivity
  */
-abstract class BaseActivity<VB : ViewBinding, VM : ViewModel> : AppCompatActivity() {
+abstract class BaseActivity<VB : ViewBinding, VM : ViewModel>(
+    private val inflate: (LayoutInflater) -> VB,
+    private val viewModelClass: Class<VM>
+) : AppCompatActivity() {
 
     lateinit var binding: VB
     lateinit var viewModel: VM
@@ -21,14 +23,10 @@ abstract class BaseActivity<VB : ViewBinding, VM : ViewModel> : AppCompatActivit
     override fun onCreate(savedInstanceState: Bundle?) {
         super.onCreate(savedInstanceState)
 
-        val parameterizedType = this.javaClass.genericSuperclass as ParameterizedType
-        val types = parameterizedType.actualTypeArguments
-        val vb = types[0] as Class<VB>
-        binding = vb.getMethod("inflate", LayoutInflater::class.java)
-            .invoke(null, layoutInflater) as VB
+        binding = inflate(layoutInflater)
 
         viewModel = ViewModelProvider(this, ViewModelProvider.NewInstanceFactory())
-            .get(types[1] as Class<VM>)
+            .get(viewModelClass)
 
         setContentView(binding.root)
 
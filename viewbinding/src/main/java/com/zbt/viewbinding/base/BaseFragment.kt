@@ -8,14 +8,16 @@ import androidx.fragment.app.Fragment
 import androidx.lifecycle.ViewModel
 import androidx.lifecycle.ViewModelProvider
 import androidx.viewbinding.ViewBinding
-import java.lang.reflect.ParameterizedType
 
 /**
  *Author: zbt
  *Time: 2021/6/27 11:28
  *Description: This is BaseFragment
  */
-abstract class BaseFragment<VB : ViewBinding, VM : ViewModel> : Fragment() {
+abstract class BaseFragment<VB : ViewBinding, VM : ViewModel>(
+    private val inflate: (LayoutInflater) -> VB,
+    private val viewModelClass: Class<VM>
+) : Fragment() {
 
     protected lateinit var binding: VB
     protected lateinit var viewModel: VM
@@ -25,14 +27,10 @@ abstract class BaseFragment<VB : ViewBinding, VM : ViewModel> : Fragment() {
         container: ViewGroup?,
         savedInstanceState: Bundle?
     ): View? {
-        val parameterizedType = javaClass.genericSuperclass as ParameterizedType
-        val types = parameterizedType.actualTypeArguments
-        val vb = types[0] as Class<VB>
-        binding = vb.getMethod("inflate", LayoutInflater::class.java)
-            .invoke(null, layoutInflater) as VB
+        binding = inflate(inflater)
 
         viewModel = ViewModelProvider(this, ViewModelProvider.NewInstanceFactory())
-            .get(types[1] as Class<VM>)
+            .get(viewModelClass)
 
         return binding.root
     }